@@ -0,0 +1,33 @@
+package edu.uwsp.cnmt110;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event marking a new ball entering a Pong match.
+ */
+@Name("edu.uwsp.cnmt110.BallSpawn")
+@Label("Ball Spawn")
+@Category({"Pong Game", "Match"})
+@StackTrace(false)
+class BallSpawnEvent extends Event {
+  @Label("X")
+  int x;
+
+  @Label("Y")
+  int y;
+
+  @Label("Angle")
+  float angle;
+
+  @Label("Speed")
+  int speed;
+
+  @Label("Sprites")
+  @Description("Sprites in the game once the ball is added")
+  int sprites;
+}
@@ -0,0 +1,176 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Plays the computer's paddle of a one player Pong game. For every ball it
+ * works out when the ball will reach the paddle and where, and it moves the
+ * paddle towards the ball that arrives first.
+ *
+ * A ball keeps its horizontal speed when it bounces off the top or bottom
+ * wall, so the game time at which it arrives only changes when it bounces off
+ * a paddle. The balls are kept in a heap ordered by that time, and a ball is
+ * only looked at again when it is spawned, bounces off a paddle or leaves:
+ * finding the next ball takes O(1) per update and each of those events
+ * O(log n). Where the ball arrives follows from where it was when it was last
+ * looked at: its path up and down is a straight line folded at the walls.
+ */
+final class ComputerPlayer {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final PongGame game;
+  private final IndexedHeap arrivals = new IndexedHeap(DEFAULT_CAPACITY);
+  private Sprite[] balls = new Sprite[DEFAULT_CAPACITY];
+  private long[] startTimes = new long[DEFAULT_CAPACITY];
+  private float[] startYs = new float[DEFAULT_CAPACITY];
+  private float[] velocitiesY = new float[DEFAULT_CAPACITY];
+  private Difficulty difficulty = Difficulty.PERFECT;
+
+  /**
+   * Creates an instance of the ComputerPlayer class.
+   * @param game The game whose computer paddle to play.
+   */
+  ComputerPlayer(PongGame game) {
+    this.game = game;
+  }
+
+  /**
+   * Retrieves how well the paddle is played.
+   * @return The difficulty.
+   */
+  Difficulty getDifficulty() {
+    return(difficulty);
+  }
+
+  /**
+   * Sets how well the paddle is played.
+   * @param difficulty The difficulty.
+   */
+  void setDifficulty(Difficulty difficulty) {
+    this.difficulty = difficulty;
+  }
+
+  /**
+   * Retrieves the number of balls being followed.
+   * @return The number of balls.
+   */
+  int size() {
+    return(arrivals.size());
+  }
+
+  /**
+   * Works out when and where a ball will reach the computer's paddle, from
+   * where it is now. Called when a ball is spawned and whenever it bounces
+   * off a paddle. A ball moving away is assumed to be returned by the player.
+   * @param ball The ball, which must be in the game.
+   * @param now The game time at which the ball is where it is.
+   */
+  void track(Sprite ball, long now) {
+    long handle = ball.getHandle();
+    if (handle == 0) {
+      return;
+    }
+    int id = (int) handle;
+    if (id >= balls.length) {
+      int length = Math.max(id + 1, balls.length * 2);
+      balls = Arrays.copyOf(balls, length);
+      startTimes = Arrays.copyOf(startTimes, length);
+      startYs = Arrays.copyOf(startYs, length);
+      velocitiesY = Arrays.copyOf(velocitiesY, length);
+    }
+    balls[id] = ball;
+    startTimes[id] = now;
+    startYs[id] = ball.getExactY();
+    velocitiesY[id] = ball.getVelocityY();
+
+    float velocityX = ball.getVelocityX();
+    float halfWidth = ball.getWidth() / 2f;
+    float computerFace = game.computer.getMinX();
+    float playerFace = game.player.getMaxX();
+    float distance;
+    if (velocityX > 0) {
+      distance = Math.max(0, computerFace - (ball.getExactX() + halfWidth));
+    } else {
+      // there and back again, off the player's paddle
+      distance = Math.max(0, ball.getExactX() - halfWidth - playerFace)
+                 + Math.max(0, computerFace - playerFace - 2 * halfWidth);
+    }
+    double speed = Math.abs(velocityX);
+    arrivals.put(id, (speed > 1e-6) ? now + distance / speed : Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Stops following a ball, such as when it leaves the game.
+   * @param ball The ball.
+   */
+  void forget(Sprite ball) {
+    long handle = ball.getHandle();
+    if ((handle != 0) && arrivals.remove((int) handle)) {
+      balls[(int) handle] = null;
+    }
+  }
+
+  /**
+   * Stops following every ball.
+   */
+  void clear() {
+    while (!arrivals.isEmpty()) {
+      int id = arrivals.peek();
+      arrivals.remove(id);
+      balls[id] = null;
+    }
+  }
+
+  /**
+   * Moves the computer's paddle towards where the next ball will arrive, as
+   * far as the difficulty allows in one update. With no ball due within the
+   * lookahead, the paddle heads back to the middle.
+   * @param now The game time at which the balls are where they are.
+   * @param interval The length of the update in milliseconds.
+   */
+  void update(long now, long interval) {
+    Insets insets = game.getInsets();
+    float bottom = game.getHeight() - insets.bottom - insets.top - 1;
+    float target = bottom / 2;
+    int id = arrivals.peek();
+    long lookahead = difficulty.getLookahead();
+    if ((id >= 0) && ((lookahead == 0) || (arrivals.getKey(id) - now <= lookahead))) {
+      target = predictY(id, bottom);
+    }
+
+    DrawableSprite paddle = game.computer;
+    float y = paddle.getY();
+    if (difficulty.getSpeed() > 0) {
+      float step = difficulty.getSpeed() * (60.0f / 1000.0f) * interval;
+      y += Math.max(-step, Math.min(step, target - y));
+    } else {
+      y = target;
+    }
+    int half = game.BarHeight / 2;
+    int maxY = Math.round(bottom) - half;
+    paddle.moveTo(paddle.getX(), Math.max(half, Math.min(Math.round(y), maxY)));
+  }
+
+  /**
+   * Works out where a ball will be on the vertical axis when it reaches the
+   * paddle, by folding its straight path at the top and bottom walls.
+   * @param id The id of the ball.
+   * @param bottom The bottom wall.
+   * @return The center of the ball on the vertical axis.
+   */
+  private float predictY(int id, float bottom) {
+    float half = balls[id].getHeight() / 2f;
+    float low = half;
+    float span = bottom - half - low;
+    double time = arrivals.getKey(id) - startTimes[id];
+    if ((span <= 0) || Double.isInfinite(time)) {
+      return(startYs[id]);
+    }
+    double offset = (startYs[id] + velocitiesY[id] * time - low) % (2 * span);
+    if (offset < 0) {
+      offset += 2 * span;
+    }
+    return((float) (low + ((offset > span) ? 2 * span - offset : offset)));
+  }
+}
@@ -1,8 +1,7 @@
 package edu.uwsp.cnmt110;
 
 import java.awt.event.*;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.function.Supplier;
 
 /**
  * A demo / sample game that shows the minimum methods necessary.
@@ -10,7 +9,8 @@ import java.util.TimerTask;
  */
 public class DemoGame extends Game {
   private final int MAX_SPRITES = 500;
-  private Timer timer;
+  private final int RANDOM_TAG = 1;
+  private ScheduledTask timer;
 
   /**
    * Creates an instance of the Game class.
@@ -19,29 +19,37 @@ public class DemoGame extends Game {
    * @param height The height of the window.
    */
   public DemoGame(int width, int height) {
-    super("My Demo", width, height);
+    this(width, height, false);
+  }
+
+  /**
+   * Creates an instance of the Game class, optionally without a window.
+   *
+   * @param width    The width of the window or virtual playfield.
+   * @param height   The height of the window or virtual playfield.
+   * @param headless True to run without a window.
+   */
+  public DemoGame(int width, int height, boolean headless) {
+    super("My Demo", width, height, headless);
+    // Many random colors: batch the outlines into a 512 color palette
+    setColorQuantization(3);
     displayRandomMessages();
   }
 
   @Override
-  public void getInput(InputEvent[] events, long interval) {
+  public void getInput(InputSnapshot input, long interval) {
     // If user presses 'r', we'll clear all the sprites and start over.
-    for(InputEvent event: events) {
-      if (event instanceof KeyEvent) {
-        switch (((KeyEvent) event).getKeyChar()) {
-          case 'r':
-            clearSprites();
-            initialize();
-            displayRandomMessages();
-            break;
-          case ' ':
-            initialize();
-            break;
-        }
-      }
-      else if (event instanceof MouseEvent) {
-        //((MouseEvent) event).getX();
-      }
+    // The sprites are recycled, so starting over reuses the same ones.
+    if (input.wasPressed(KeyEvent.VK_R)) {
+      recycleSprites(RANDOM_TAG);
+      initialize();
+      displayRandomMessages();
+    }
+    for (int count = input.getPressCount(KeyEvent.VK_SPACE); count > 0; count--) {
+      initialize();
+    }
+    if (input.hasMouseMoved()) {
+      //input.getMouseX();
     }
   }
 
@@ -60,8 +68,7 @@ public class DemoGame extends Game {
    */
   private void displayRandomMessages() {
     if (timer != null) timer.cancel();
-    timer = new Timer();
-    timer.scheduleAtFixedRate(new TimerTask() {
+    timer = getScheduler().scheduleAtFixedRate(new Runnable() {
       int countDown = 3;
       @Override
       public void run() {
@@ -97,9 +104,9 @@ public class DemoGame extends Game {
   @Override
   public void initialize() {
     // Randomly add sprites to the game / screen
+    Supplier<RandomSprite> factory = () -> new RandomSprite(getWidth(), getHeight());
     for(int index = 0; index < MAX_SPRITES; index++) {
-      Sprite sprite = new RandomSprite(getWidth(), getHeight());
-      addSprite(sprite);
+      spawnSprite(RandomSprite.class, factory).randomize(getWidth(), getHeight()).setTags(RANDOM_TAG);
     }
   }
 }
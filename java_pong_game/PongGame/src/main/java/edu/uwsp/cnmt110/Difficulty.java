@@ -0,0 +1,68 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * How well the computer plays its paddle in a one player Pong game, see
+ * {@link PongSettings#setDifficulty(Difficulty)}.
+ */
+public enum Difficulty {
+  /**
+   * A slow paddle that only notices a ball shortly before it arrives.
+   */
+  EASY(4, 600),
+
+  /**
+   * A paddle as fast as a medium ball that looks a second ahead.
+   */
+  NORMAL(6, 1000),
+
+  /**
+   * A fast paddle that looks far ahead.
+   */
+  HARD(9, 2500),
+
+  /**
+   * A paddle that is always where the next ball arrives and never misses.
+   */
+  PERFECT(0, 0);
+
+  private final int speed;
+  private final long lookahead;
+
+  /**
+   * Creates a difficulty.
+   * @param speed The speed of the paddle, 0 for no limit.
+   * @param lookahead How long before a ball arrives the paddle moves for it,
+   *                  0 for no limit.
+   */
+  Difficulty(int speed, long lookahead) {
+    this.speed = speed;
+    this.lookahead = lookahead;
+  }
+
+  /**
+   * Retrieves the speed of the computer's paddle, in the same units as the
+   * speed of a sprite.
+   * @return The speed, or 0 if the paddle jumps to where it needs to be.
+   */
+  public int getSpeed() {
+    return(speed);
+  }
+
+  /**
+   * Retrieves how long before a ball arrives the computer starts moving its
+   * paddle for it. Until then the paddle heads back to the middle.
+   * @return The time in milliseconds, or 0 if there is no limit.
+   */
+  public long getLookahead() {
+    return(lookahead);
+  }
+
+  /**
+   * Indicates if the computer can miss a ball, which then wins the match for
+   * the player.
+   * @return True if the paddle is limited in speed, false if otherwise.
+   */
+  public boolean canMiss() {
+    return(speed > 0);
+  }
+}
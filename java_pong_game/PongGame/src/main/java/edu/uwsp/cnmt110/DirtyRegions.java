@@ -0,0 +1,171 @@
+package edu.uwsp.cnmt110;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of screen rectangles that need to be redrawn. Rectangles
+ * are kept as x, y, width, height in a flat int array, so collecting them
+ * each frame does not allocate.
+ */
+class DirtyRegions {
+  private int[] rects = new int[64];
+  private int count;
+
+  /**
+   * Retrieves the number of rectangles.
+   * @return The rectangle count.
+   */
+  int size() {
+    return(count);
+  }
+
+  /**
+   * Removes every rectangle.
+   */
+  void clear() {
+    count = 0;
+  }
+
+  /**
+   * Adds a rectangle, ignoring empty ones.
+   * @param x The left edge.
+   * @param y The top edge.
+   * @param width The width.
+   * @param height The height.
+   */
+  void add(int x, int y, int width, int height) {
+    if ((width <= 0) || (height <= 0)) {
+      return;
+    }
+    if (rects.length < (count + 1) * 4) {
+      rects = Arrays.copyOf(rects, rects.length * 2);
+    }
+    int offset = count * 4;
+    rects[offset] = x;
+    rects[offset + 1] = y;
+    rects[offset + 2] = width;
+    rects[offset + 3] = height;
+    count++;
+  }
+
+  /**
+   * Adds every rectangle of another list.
+   * @param regions The rectangles to add.
+   */
+  void addAll(DirtyRegions regions) {
+    for (int index = 0; index < regions.count; index++) {
+      int offset = index * 4;
+      add(regions.rects[offset], regions.rects[offset + 1], regions.rects[offset + 2], regions.rects[offset + 3]);
+    }
+  }
+
+  /**
+   * Retrieves the left edge of a rectangle.
+   * @param index The rectangle index.
+   * @return The left edge.
+   */
+  int getX(int index) {
+    return(rects[index * 4]);
+  }
+
+  /**
+   * Retrieves the top edge of a rectangle.
+   * @param index The rectangle index.
+   * @return The top edge.
+   */
+  int getY(int index) {
+    return(rects[index * 4 + 1]);
+  }
+
+  /**
+   * Retrieves the width of a rectangle.
+   * @param index The rectangle index.
+   * @return The width.
+   */
+  int getWidth(int index) {
+    return(rects[index * 4 + 2]);
+  }
+
+  /**
+   * Retrieves the height of a rectangle.
+   * @param index The rectangle index.
+   * @return The height.
+   */
+  int getHeight(int index) {
+    return(rects[index * 4 + 3]);
+  }
+
+  /**
+   * Calculates the total area of all rectangles. Overlaps are counted more
+   * than once, so call {@link #merge()} first for an exact figure.
+   * @return The area in pixels.
+   */
+  long area() {
+    long area = 0;
+    for (int index = 0; index < count; index++) {
+      area += (long) rects[index * 4 + 2] * rects[index * 4 + 3];
+    }
+    return(area);
+  }
+
+  /**
+   * Replaces overlapping or touching rectangles by their union until no two
+   * rectangles overlap, so no pixel is redrawn twice.
+   */
+  void merge() {
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+      for (int i = 0; i < count; i++) {
+        for (int j = i + 1; j < count; j++) {
+          if (touches(i, j)) {
+            union(i, j);
+            removeAt(j);
+            merged = true;
+            j--;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks if two rectangles overlap or share an edge.
+   * @param i The first rectangle index.
+   * @param j The second rectangle index.
+   * @return True if they touch, false if otherwise.
+   */
+  private boolean touches(int i, int j) {
+    int a = i * 4;
+    int b = j * 4;
+    return((rects[a] <= rects[b] + rects[b + 2]) && (rects[b] <= rects[a] + rects[a + 2]) &&
+           (rects[a + 1] <= rects[b + 1] + rects[b + 3]) && (rects[b + 1] <= rects[a + 1] + rects[a + 3]));
+  }
+
+  /**
+   * Grows the first rectangle to also cover the second.
+   * @param i The rectangle index to grow.
+   * @param j The rectangle index to cover.
+   */
+  private void union(int i, int j) {
+    int a = i * 4;
+    int b = j * 4;
+    int minX = Math.min(rects[a], rects[b]);
+    int minY = Math.min(rects[a + 1], rects[b + 1]);
+    int maxX = Math.max(rects[a] + rects[a + 2], rects[b] + rects[b + 2]);
+    int maxY = Math.max(rects[a + 1] + rects[a + 3], rects[b + 1] + rects[b + 3]);
+    rects[a] = minX;
+    rects[a + 1] = minY;
+    rects[a + 2] = maxX - minX;
+    rects[a + 3] = maxY - minY;
+  }
+
+  /**
+   * Removes a rectangle by moving the last one into its place.
+   * @param index The rectangle index to remove.
+   */
+  private void removeAt(int index) {
+    count--;
+    System.arraycopy(rects, count * 4, rects, index * 4, 4);
+  }
+}
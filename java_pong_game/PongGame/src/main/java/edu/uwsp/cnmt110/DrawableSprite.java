@@ -8,6 +8,9 @@ import java.awt.*;
 public class DrawableSprite extends Sprite implements IDrawable {
   private Color color = Color.WHITE;
   private Color textColor = Color.RED;
+  // the colors as ARGB values, 0 for none, so a save can compare them without touching a Color
+  private int colorValue = Color.WHITE.getRGB();
+  private int textColorValue = Color.RED.getRGB();
   private String name;
 
   /**
@@ -55,9 +58,8 @@ public class DrawableSprite extends Sprite implements IDrawable {
    */
   @Override
   public void paint(Graphics g) {
-    Rectangle boundingRect = getBoundingRect();
     g.setColor(getColor());
-    g.drawRect(boundingRect.getX1(), boundingRect.getY1(), boundingRect.getWidth(), boundingRect.getHeight());
+    g.drawRect(getMinX(), getMinY(), getWidth(), getHeight());
 
     paintLabel(g);
   }
@@ -95,9 +97,18 @@ public class DrawableSprite extends Sprite implements IDrawable {
    */
   public DrawableSprite setColor(Color color) {
     this.color = color;
+    colorValue = (color != null) ? color.getRGB() : 0;
     return(this);
   }
 
+  /**
+   * Retrieves the color of the outline as an ARGB value.
+   * @return The value of {@link Color#getRGB()}, or 0 if there is no color.
+   */
+  int getColorValue() {
+    return(colorValue);
+  }
+
   /**
    * Retrieves the color of the text or label for the Sprite.
    * @return The current text or label color.
@@ -113,6 +124,15 @@ public class DrawableSprite extends Sprite implements IDrawable {
    */
   public DrawableSprite setTextColor(Color textColor) {
     this.textColor = textColor;
+    textColorValue = (textColor != null) ? textColor.getRGB() : 0;
     return(this);
   }
+
+  /**
+   * Retrieves the color of the text as an ARGB value.
+   * @return The value of {@link Color#getRGB()}, or 0 if there is no color.
+   */
+  int getTextColorValue() {
+    return(textColorValue);
+  }
 }
@@ -0,0 +1,35 @@
+package edu.uwsp.cnmt110;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event spanning the drawing and presenting of one
+ * frame, recorded by both screens on the thread that draws them.
+ */
+@Name("edu.uwsp.cnmt110.Frame")
+@Label("Frame")
+@Category({"Pong Game", "Rendering"})
+@Description("One frame drawn and shown by the screen")
+@StackTrace(false)
+class FrameEvent extends Event {
+  @Label("Present")
+  @Description("Time spent showing the drawn frame")
+  @Timespan(Timespan.NANOSECONDS)
+  long present;
+
+  @Label("Sprites")
+  int sprites;
+
+  @Label("Draw Calls")
+  int drawCalls;
+
+  @Label("Dirty Regions")
+  @Description("Regions redrawn by the passive screen, 0 when the whole frame was drawn")
+  int dirtyRegions;
+}
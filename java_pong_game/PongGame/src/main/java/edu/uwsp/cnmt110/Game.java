@@ -3,27 +3,85 @@ package edu.uwsp.cnmt110;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.Date;
+import java.awt.image.BufferStrategy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Represents a base Game class for implementation of a game with graphics
- * content using the java Swing framework.
+ * content using the java Swing framework. A game may also be created headless,
+ * in which case no window is created and the game is driven through
+ * {@link #simulate(long, long)} against a virtual playfield and clock.
  */
-public abstract class Game extends JFrame implements MouseListener, MouseMotionListener, KeyListener {
+public abstract class Game implements MouseListener, MouseMotionListener, KeyListener {
   private final String MESSAGE_GAME_OVER = "GAME OVER";
+  private static final long DEFAULT_TICK_INTERVAL = 10;
+  private static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+  private static final long NANOS_PER_SECOND = 1000000000L;
+  private static final int DEFAULT_PARALLEL_THRESHOLD = 50000;
+  private static final int PARALLEL_CHUNK = 4096;
 
-  private Random random;
+  private final long seed;
+  private final GameRandom random;
   private int width;
   private int height;
-  private boolean isRunning = false;
+  private volatile boolean isRunning = false;
+  private final boolean headless;
+  private RenderMode renderMode;
+  private SceneRenderer renderer;
+  private SnapshotBuffer snapshots;
+  private ActiveScreen activeScreen;
+  private final Insets virtualInsets;
+  private JFrame frame;
   private Screen screen;
-  private CopyOnWriteArrayList<Sprite> sprites;
-  private ConcurrentLinkedQueue<InputEvent> events;
+  private SpriteRegistry registry;
+  private SpriteStore store;
+  private SpriteStore spareStore;
+  private SpatialHashGrid broadPhase;
+  private Sprite[] collisions = new Sprite[0];
+  private ForkJoinPool updatePool;
+  private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+  private volatile boolean updatingInParallel;
+  private int iterating;
+  private ConcurrentLinkedQueue<Runnable> deferred = new ConcurrentLinkedQueue<Runnable>();
+  private final InputBuffer input = new InputBuffer();
+  private final InputSnapshot inputSnapshot = new InputSnapshot();
+  private InputRecorder recorder;
+  private InputReplay replay;
+  private final Scheduler scheduler = new Scheduler();
+  private final GameMetrics metrics = new GameMetrics();
+  private final String title;
+  private long gameTime;
+  private boolean paused;
+  private long tickInterval = DEFAULT_TICK_INTERVAL;
+  private int maxCatchUpTicks = DEFAULT_MAX_CATCH_UP_TICKS;
+  private int frameRate;
+  private long droppedTicks;
+  private ByteBuffer saveBuffer;
+  private ByteBuffer stateBuffer;
   private boolean gameover;
   private String message;
+  private volatile IDrawable background;
 
   /**
    * Creates an instance of the Game class.
@@ -33,51 +91,175 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    * @param height The height of the window.
    */
   Game(String title, int width, int height) {
-    super(title);
+    this(title, width, height, false);
+  }
+
+  /**
+   * Creates an instance of the Game class.
+   * 
+   * @param title    The title for the window
+   * @param width    The width of the window or virtual playfield.
+   * @param height   The height of the window or virtual playfield.
+   * @param headless True to run without a window, screen or listeners.
+   */
+  Game(String title, int width, int height, boolean headless) {
+    this(title, width, height, (headless) ? RenderMode.HEADLESS : RenderMode.PASSIVE);
+  }
+
+  /**
+   * Creates an instance of the Game class.
+   * 
+   * @param title      The title for the window
+   * @param width      The width of the window or virtual playfield.
+   * @param height     The height of the window or virtual playfield.
+   * @param renderMode How the screen is drawn, or HEADLESS for no window.
+   */
+  Game(String title, int width, int height, RenderMode renderMode) {
+    this(title, width, height, renderMode, new Insets(0, 0, 0, 0), new Random().nextLong(), DEFAULT_TICK_INTERVAL);
+  }
+
+  /**
+   * Creates a headless game whose shared random generator starts from the
+   * specified seed, so that the same seed and input always play out the same.
+   * 
+   * @param title  The title of the game.
+   * @param width  The width of the virtual playfield.
+   * @param height The height of the virtual playfield.
+   * @param seed   The seed of the shared random generator.
+   */
+  Game(String title, int width, int height, long seed) {
+    this(title, width, height, RenderMode.HEADLESS, new Insets(0, 0, 0, 0), seed, DEFAULT_TICK_INTERVAL);
+  }
+
+  /**
+   * Creates a headless replica of a recorded game, with the same playfield,
+   * window borders, random seed and tick interval, so that replaying the
+   * recorded input reproduces the recorded session.
+   * 
+   * @param title  The title of the game.
+   * @param replay The recording to replicate.
+   */
+  Game(String title, InputReplay replay) {
+    this(title, replay.getWidth(), replay.getHeight(), RenderMode.HEADLESS, replay.getInsets(), replay.getSeed(),
+        replay.getTickInterval());
+  }
 
+  /**
+   * Creates an instance of the Game class.
+   * 
+   * @param title        The title for the window
+   * @param width        The width of the window or virtual playfield.
+   * @param height       The height of the window or virtual playfield.
+   * @param renderMode   How the screen is drawn, or HEADLESS for no window.
+   * @param insets       The borders of the virtual playfield when headless.
+   * @param seed         The seed of the shared random generator.
+   * @param tickInterval The tick interval in milliseconds.
+   */
+  private Game(String title, int width, int height, RenderMode renderMode, Insets insets, long seed,
+      long tickInterval) {
+    this.title = title;
     this.width = width;
     this.height = height;
-    this.screen = new Screen(this);
-    this.sprites = new CopyOnWriteArrayList<Sprite>();
-    this.events = new ConcurrentLinkedQueue<InputEvent>();
-    this.random = new Random();
-
-    getContentPane().add(screen);
-    setSize(width, height);
-    setVisible(true);
-    setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    setResizable(false);
-
-    // Register for mouse events
-    addMouseListener(this);
-    addMouseMotionListener(this);
-    // Register for keyboard events
-    addKeyListener(this);
+    this.headless = (renderMode == RenderMode.HEADLESS);
+    this.renderMode = renderMode;
+    this.store = new SpriteStore();
+    this.registry = new SpriteRegistry(store);
+    this.virtualInsets = insets;
+    this.seed = seed;
+    this.random = new GameRandom(seed);
+    this.tickInterval = tickInterval;
+
+    if (!headless) {
+      this.frame = new JFrame(title);
+      this.snapshots = new SnapshotBuffer();
+      this.renderer = new SceneRenderer(this, snapshots);
+
+      if (renderMode == RenderMode.ACTIVE) {
+        this.activeScreen = new ActiveScreen();
+        frame.getContentPane().add(activeScreen);
+      } else {
+        this.screen = new Screen(this);
+        frame.getContentPane().add(screen);
+      }
+      frame.setSize(width, height);
+      frame.setVisible(true);
+      frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+      frame.setResizable(false);
+
+      if (activeScreen != null) {
+        startActiveScreen();
+      }
+
+      // Register for mouse events
+      frame.addMouseListener(this);
+      frame.addMouseMotionListener(this);
+      // Register for keyboard events
+      frame.addKeyListener(this);
+    }
 
     initialize();
   }
 
+  /**
+   * Starts the render thread of the active screen, falling back to a passive
+   * screen if the canvas cannot be given a buffer strategy.
+   */
+  private void startActiveScreen() {
+    try {
+      activeScreen.startRendering();
+    } catch (RuntimeException e) {
+      frame.getContentPane().remove(activeScreen);
+      activeScreen = null;
+      screen = new Screen(this);
+      frame.getContentPane().add(screen);
+      frame.validate();
+      renderMode = RenderMode.PASSIVE;
+      return;
+    }
+
+    // The canvas receives input in place of the window
+    frame.setIgnoreRepaint(true);
+    ActiveScreenInput input = new ActiveScreenInput();
+    activeScreen.addMouseListener(input);
+    activeScreen.addMouseMotionListener(input);
+    activeScreen.addKeyListener(input);
+    activeScreen.requestFocus();
+  }
+
   /**
    * Releases memory and resources when object is being disposed.
    */
   protected void finalize() {
-    removeMouseListener(this);
-    removeMouseMotionListener(this);
-    removeKeyListener(this);
+    if (frame != null) {
+      frame.removeMouseListener(this);
+      frame.removeMouseMotionListener(this);
+      frame.removeKeyListener(this);
+    }
   }
 
   /**
    * Retrieves the user input including both mouse and keyboard.
    * 
-   * @param events   The collection of events that have occurred since the last
-   *                 update. The most recent event is at the end of the array.
+   * @param input    The input coalesced from every event that occurred since
+   *                 the last update. The same instance is reused for every
+   *                 update, so it must not be kept.
    * @param interval The amount of time that has passed since the last update.
    */
-  public abstract void getInput(InputEvent[] events, long interval);
+  public abstract void getInput(InputSnapshot input, long interval);
 
   /**
    * Updates the sprite position based on it's speed.
    * 
+   * Sprites added or removed here are added or removed once every sprite has
+   * been updated, before any of them is moved.
+   * 
+   * When parallel updates are enabled this method is called concurrently from
+   * several threads, each for a different sprite. It may then only change the
+   * sprite it was given and read other state. Adding or removing sprites and
+   * changing the gameover state or message are deferred automatically until
+   * every sprite has been updated; any other change to shared state must be
+   * wrapped in {@link #defer(Runnable)}.
+   * 
    * @param sprite   The sprite who's position needs to be updated.
    * @param interval The amount of time that has passed since the last update.
    * @return True if the position update was handled by the code. If false, the
@@ -91,6 +273,16 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   public abstract void initialize();
 
+  /**
+   * Called once per update for each pair of overlapping sprites when collision
+   * detection is enabled. Pairs are reported after every sprite has moved.
+   * 
+   * @param first  One of the colliding sprites.
+   * @param second The other colliding sprite.
+   */
+  protected void onCollision(Sprite first, Sprite second) {
+  }
+
   /**
    * Retrieve a shared / common random generator.
    * 
@@ -101,230 +293,1695 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
   }
 
   /**
-   * The actual game / screen.
+   * Retrieves the seed the shared random generator was created with. Together
+   * with the recorded input it determines everything a game does.
+   * 
+   * @return The seed.
    */
-  class Screen extends JPanel {
-    long frames = 0;
-    final long started = System.currentTimeMillis();
-    long lastUpdate = 0;
-    private Game game;
+  public long getSeed() {
+    return (seed);
+  }
 
-    /**
-     * Creates an instance of the Screen class.
-     * 
-     * @param game The parent game that owns this screen
-     */
-    Screen(Game game) {
-      this.game = game;
-    }
+  /**
+   * Indicates if the game is running without a window.
+   * 
+   * @return True if headless, false if otherwise.
+   */
+  public boolean isHeadless() {
+    return (headless);
+  }
 
-    /**
-     * Displays / draws the FPS to the lower corner of the screen.
-     * 
-     * @param g   The graphics / canvas to draw or paint on.
-     * @param now The current date/time to use for calculation.
-     */
-    private void overlayStatistics(Graphics g, long now) {
-      g.setColor(Color.LIGHT_GRAY);
-      Font font = new Font("dialog", Font.PLAIN, 12);
-      g.setFont(font);
-      FontMetrics metrics = g.getFontMetrics(font);
-      g.drawString(String.format("Statistics: (interval %dms, frames: %d, sprites: %d)", now - lastUpdate, frames,
-          getSprites().length), 5, getHeight() - metrics.getHeight() / 2);
-    }
+  /**
+   * Retrieves the width of the window, or of the virtual playfield when
+   * headless.
+   * 
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return ((frame != null) ? frame.getWidth() : width);
+  }
 
-    /**
-     * Displays or overlays the specified message to the center of the screen.
-     * 
-     * @param message The message to display.
-     * @param g       The graphics / canvas to draw to.
-     */
-    protected void overlayMessage(Graphics g, String message) {
-      g.setColor(Color.ORANGE);
+  /**
+   * Retrieves the height of the window, or of the virtual playfield when
+   * headless.
+   * 
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return ((frame != null) ? frame.getHeight() : height);
+  }
 
-      Font font = new Font("helvetica", Font.PLAIN | Font.BOLD, 36);
-      g.setFont(font);
-      FontMetrics metrics = g.getFontMetrics(font);
-      int width = metrics.stringWidth(message);
+  /**
+   * Retrieves the window borders. A headless game has no borders, unless it
+   * replicates a recorded one, so the shared virtual insets are returned and
+   * must not be modified.
+   * 
+   * @return The insets of the window.
+   */
+  public Insets getInsets() {
+    return ((frame != null) ? frame.getInsets() : virtualInsets);
+  }
 
-      g.drawString(message, getWidth() / 2 - width / 2, getHeight() / 2);
+  /**
+   * Positions the window relative to the specified component. Has no effect
+   * when headless.
+   * 
+   * @param component The component to position relative to, or null to center
+   *                  the window on the screen.
+   */
+  public void setLocationRelativeTo(Component component) {
+    if (frame != null) {
+      frame.setLocationRelativeTo(component);
     }
+  }
 
-    /**
-     * Draws or renders the information.
-     * 
-     * @param g The graphics / canvas to draw to.
-     */
-    @Override
-    public void paint(Graphics g) {
-      long now = new Date().getTime();
-      frames++;
+  /**
+   * Requests the screen to be redrawn. An active screen draws the frame on its
+   * render thread; a passive one leaves it to Swing. Has no effect when
+   * headless.
+   */
+  public void repaint() {
+    if (activeScreen != null) {
+      activeScreen.requestFrame();
+    } else if (frame != null) {
+      frame.repaint();
+    }
+  }
 
-      g.setColor(Color.BLACK);
-      g.fillRect(0, 0, width, height);
+  /**
+   * Retrieves the virtual game clock, the total of all update intervals that
+   * have been simulated so far.
+   * 
+   * @return The game time in milliseconds.
+   */
+  protected long getGameTime() {
+    return (gameTime);
+  }
 
-      for (Sprite sprite : getSprites()) {
-        if (sprite instanceof IDrawable) {
-          ((IDrawable) sprite).paint(g);
-        }
-      }
+  /**
+   * Retrieves the scheduler for delayed and repeating actions. Its clock only
+   * advances with simulated updates, so actions run on the game thread at the
+   * same point of the game in windowed, headless and fast-forwarded runs. It
+   * must only be used from the game thread; during a parallel update, schedule
+   * through {@link #defer(Runnable)}.
+   * 
+   * @return The game's scheduler.
+   */
+  protected Scheduler getScheduler() {
+    return (scheduler);
+  }
 
-      overlayStatistics(g, now);
-      if ((message != null) && (!message.isEmpty())) {
-        overlayMessage(g, message);
-      }
-      lastUpdate = now;
+  /**
+   * Retrieves the instrumentation of the game loop: latency histograms of each
+   * phase, tick and frame rates and dropped ticks and frames. While the game
+   * runs they are also published as a JMX MBean.
+   * 
+   * @return The metrics of the game.
+   */
+  public GameMetrics getMetrics() {
+    return (metrics);
+  }
+
+  /**
+   * Indicates if the latency of each phase of the game loop is shown on the
+   * screen.
+   * 
+   * @return True if shown, false if otherwise.
+   */
+  public boolean isMetricsOverlay() {
+    return ((renderer != null) && renderer.isMetricsOverlay());
+  }
+
+  /**
+   * Shows or hides the p50, p99, p99.9 and maximum latency of each phase of
+   * the game loop above the statistics line. Has no effect when headless.
+   * 
+   * @param metricsOverlay True to show the latencies, false to hide them.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  public Game setMetricsOverlay(boolean metricsOverlay) {
+    if (renderer != null) {
+      renderer.setMetricsOverlay(metricsOverlay);
     }
+    return (this);
   }
 
   /**
-   * Indicates if gameplay has ended.
+   * Indicates if the game is paused.
    * 
-   * @return True if ended, false if otherwise.
+   * @return True if paused, false if otherwise.
    */
-  protected boolean isGameover() {
-    return (gameover);
+  public boolean isPaused() {
+    return (paused);
   }
 
   /**
-   * Sets / changes the gameover value.
+   * Pauses or resumes the game. While paused input is still delivered to
+   * getInput(), but sprites do not move and scheduled actions do not run or
+   * come closer to running.
    * 
-   * @param gameover The value to set. Tre if game is ended.
+   * @param paused True to pause, false to resume.
    * @return The instance of Game so that subsequent calls can be chained
    *         together.
    */
-  protected Game setGameover(boolean gameover) {
-    this.gameover = gameover;
-    message = (gameover) ? MESSAGE_GAME_OVER : null;
+  public Game setPaused(boolean paused) {
+    this.paused = paused;
+    scheduler.setPaused(paused);
     return (this);
   }
 
   /**
-   * Sets the message to overlay or display to the screen.
+   * Enables or disables sprite-vs-sprite collision detection. The grid cell
+   * size is taken from the largest sprite on every update.
    * 
-   * @param message The message to display.
+   * @param enabled True to report collisions to
+   *                {@link #onCollision(Sprite, Sprite)}.
    * @return The instance of Game so that subsequent calls can be chained
    *         together.
    */
-  protected Game setMessage(String message) {
-    this.message = message;
+  protected Game setCollisionDetection(boolean enabled) {
+    broadPhase = (enabled) ? new SpatialHashGrid() : null;
     return (this);
   }
 
   /**
-   * Clears the message
+   * Enables sprite-vs-sprite collision detection with a fixed grid cell size.
+   * The cell size should be at least as large as most sprites.
    * 
+   * @param cellSize The width and height of a grid cell in pixels.
    * @return The instance of Game so that subsequent calls can be chained
    *         together.
    */
-  protected Game clearMessage() {
-    message = null;
+  protected Game setCollisionDetection(int cellSize) {
+    broadPhase = new SpatialHashGrid(cellSize);
     return (this);
   }
 
   /**
-   * Retrieves all of the sprites currently in the game.
+   * Finds every pair of overlapping sprites through the broad phase grid and
+   * reports them to {@link #onCollision(Sprite, Sprite)}. The pairs are
+   * resolved to sprites before any are reported, so the handler may add or
+   * remove sprites.
+   */
+  private void detectCollisions() {
+    int count = broadPhase.build(store);
+    if (count == 0) {
+      return;
+    }
+    if (collisions.length < count * 2) {
+      collisions = new Sprite[count * 2];
+    }
+    for (int pair = 0; pair < count; pair++) {
+      collisions[pair * 2] = store.get(broadPhase.getFirst(pair));
+      collisions[pair * 2 + 1] = store.get(broadPhase.getSecond(pair));
+    }
+    for (int pair = 0; pair < count; pair++) {
+      onCollision(collisions[pair * 2], collisions[pair * 2 + 1]);
+    }
+    Arrays.fill(collisions, 0, count * 2, null);
+  }
+
+  /**
+   * Retrieves the fixed amount of game time simulated by each update.
    * 
-   * @return The enumeration of sprites.
+   * @return The tick interval in milliseconds.
    */
-  protected Sprite[] getSprites() {
-    return (sprites.toArray(new Sprite[0]));
+  public long getTickInterval() {
+    return (tickInterval);
   }
 
   /**
-   * Adds the specified Sprite into the existing list of sprites.
+   * Sets the fixed amount of game time simulated by each update. The
+   * simulation rate is 1000 / tickInterval updates per second, independent of
+   * how often the screen is redrawn.
    * 
-   * @param sprite The sprite to add.
+   * @param tickInterval The tick interval in milliseconds, at least 1.
    * @return The instance of Game so that subsequent calls can be chained
    *         together.
    */
-  protected Game addSprite(Sprite sprite) {
-    if (sprite != null) {
-      sprites.add(sprite);
+  public Game setTickInterval(long tickInterval) {
+    if (tickInterval < 1) {
+      throw new IllegalArgumentException("tickInterval must be at least 1ms");
     }
+    this.tickInterval = tickInterval;
     return (this);
   }
 
   /**
-   * Adds the specified Sprite into the existing list of sprites.
+   * Retrieves the maximum number of updates run to catch up after a slow
+   * frame.
    * 
-   * @param sprite The sprite to add.
-   * @return True if the specified Sprite was removed, false if otherwise.
+   * @return The maximum number of catch up updates.
    */
-  protected boolean removeSprite(Sprite sprite) {
-    if (sprite != null) {
-      return (sprites.remove(sprite));
+  public int getMaxCatchUpTicks() {
+    return (maxCatchUpTicks);
+  }
+
+  /**
+   * Sets the maximum number of updates run to catch up after a slow frame. Any
+   * time beyond that is dropped so that a slow machine cannot fall further and
+   * further behind (the spiral of death).
+   * 
+   * @param maxCatchUpTicks The maximum number of catch up updates, at least 1.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  public Game setMaxCatchUpTicks(int maxCatchUpTicks) {
+    if (maxCatchUpTicks < 1) {
+      throw new IllegalArgumentException("maxCatchUpTicks must be at least 1");
     }
-    return (false);
+    this.maxCatchUpTicks = maxCatchUpTicks;
+    return (this);
   }
 
   /**
-   * Removes all sprites.
+   * Retrieves the rate at which the screen is redrawn between updates.
+   * 
+   * @return The frames per second, or 0 if the screen is redrawn once per
+   *         update.
+   */
+  public int getFrameRate() {
+    return (frameRate);
+  }
+
+  /**
+   * Sets the rate at which the screen is redrawn. Frames drawn between two
+   * updates show each sprite part of the way from its previous to its current
+   * position, so a low tick rate still moves smoothly on a fast display. The
+   * screen is always redrawn at least once per update.
    * 
+   * @param frameRate The frames per second, or 0 to redraw once per update.
    * @return The instance of Game so that subsequent calls can be chained
    *         together.
    */
-  protected Game clearSprites() {
-    for (Sprite sprite : getSprites()) {
-      removeSprite(sprite);
+  public Game setFrameRate(int frameRate) {
+    if (frameRate < 0) {
+      throw new IllegalArgumentException("frameRate must not be negative");
     }
+    this.frameRate = frameRate;
     return (this);
   }
 
   /**
-   * Updates all of the positions for each sprite registered on the game board.
+   * Retrieves the number of updates that were skipped because the game could
+   * not keep up with the tick rate.
    * 
-   * @param interval The amount of time that has passed since the last update.
+   * @return The number of dropped ticks.
    */
-  private void updatePositions(long interval) {
-    for (Sprite sprite : sprites) {
-      if (!updatePosition(sprite, interval)) {
-        sprite.move(interval);
+  public long getDroppedTicks() {
+    return (droppedTicks);
+  }
+
+  /**
+   * The actual game / screen, repainted by Swing on the event dispatch thread.
+   * 
+   * The screen keeps its own back buffer and only redraws the regions of it
+   * that changed: the union of the areas every sprite covered in the previous
+   * frame and covers in this one. When the changed area grows past a threshold
+   * the whole buffer is redrawn instead.
+   */
+  class Screen extends JPanel {
+    private static final float FULL_REPAINT_THRESHOLD = 0.5f;
+    private static final int MAX_DIRTY_REGIONS = 64;
+
+    private Game game;
+    private Image backBuffer;
+    private DirtyRegions previous = new DirtyRegions();
+    private DirtyRegions current = new DirtyRegions();
+    private DirtyRegions dirty = new DirtyRegions();
+
+    /**
+     * Creates an instance of the Screen class.
+     * 
+     * @param game The parent game that owns this screen
+     */
+    Screen(Game game) {
+      this.game = game;
+      setOpaque(true);
+    }
+
+    /**
+     * Draws or renders the information.
+     * 
+     * @param g The graphics / canvas to draw to.
+     */
+    @Override
+    public void paint(Graphics g) {
+      int width = getWidth();
+      int height = getHeight();
+      if ((width <= 0) || (height <= 0)) {
+        return;
+      }
+      boolean full = false;
+      if ((backBuffer == null) || (backBuffer.getWidth(null) != width) || (backBuffer.getHeight(null) != height)) {
+        backBuffer = createImage(width, height);
+        full = true;
+      }
+
+      FrameEvent event = new FrameEvent();
+      event.begin();
+      Graphics buffer = backBuffer.getGraphics();
+      try {
+        renderer.beginFrame();
+        current.clear();
+        renderer.collectBounds(buffer, current, width, height);
+        dirty.clear();
+        dirty.addAll(previous);
+        dirty.addAll(current);
+
+        if (!full && (dirty.size() <= MAX_DIRTY_REGIONS)) {
+          dirty.merge();
+          full = dirty.area() > (long) (width * height * FULL_REPAINT_THRESHOLD);
+        } else {
+          full = true;
+        }
+
+        if (full) {
+          renderer.renderScene(buffer, width, height);
+        } else {
+          for (int index = 0; index < dirty.size(); index++) {
+            buffer.setClip(dirty.getX(index), dirty.getY(index), dirty.getWidth(index), dirty.getHeight(index));
+            renderer.renderScene(buffer, width, height);
+          }
+        }
+        renderer.endFrame();
+      } finally {
+        buffer.dispose();
+      }
+
+      DirtyRegions swap = previous;
+      previous = current;
+      current = swap;
+
+      long presenting = System.nanoTime();
+      g.drawImage(backBuffer, 0, 0, null);
+      long presented = System.nanoTime() - presenting;
+      renderer.setPresentNanos(presented);
+
+      if (event.shouldCommit()) {
+        event.present = presented;
+        event.sprites = renderer.getSprites();
+        event.drawCalls = renderer.getDrawCalls();
+        event.dirtyRegions = (full) ? 0 : dirty.size();
+        event.commit();
       }
     }
   }
 
   /**
-   * Starts the execution of the game. This is a blocking call.
+   * An actively rendered screen: a canvas with a multi-buffered strategy that a
+   * dedicated render thread draws and presents whenever the game loop requests
+   * a frame. Back buffers are accelerated volatile images where available.
    */
-  public void start() {
-    if (!isRunning) {
-      isRunning = true;
-      long started = System.currentTimeMillis();
-      long last = started;
-      while (isRunning) {
-        long now = System.currentTimeMillis();
-        try {
-          long interval = now - last;
-
-          // Get input from user
-          InputEvent[] pendingEvents = new InputEvent[events.size()];
-          for (int index = 0; index < pendingEvents.length; index++) {
-            pendingEvents[index] = events.poll();
-          }
-          getInput(pendingEvents, interval);
+  class ActiveScreen extends Canvas implements Runnable {
+    private static final long serialVersionUID = 1L;
+    private static final int BUFFERS = 3;
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean frameRequested;
+
+    /**
+     * Creates an instance of the ActiveScreen class.
+     */
+    ActiveScreen() {
+      setIgnoreRepaint(true);
+      setFocusable(true);
+    }
+
+    /**
+     * Creates the buffer strategy and starts the render thread. The canvas must
+     * already be displayable.
+     */
+    void startRendering() {
+      try {
+        createBufferStrategy(BUFFERS,
+            new BufferCapabilities(new ImageCapabilities(true), new ImageCapabilities(true), null));
+      } catch (AWTException e) {
+        // Fall back to whatever buffering the platform offers
+        createBufferStrategy(BUFFERS);
+      }
+      running = true;
+      thread = new Thread(this, "Game render");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    /**
+     * Stops the render thread.
+     */
+    void stopRendering() {
+      running = false;
+      LockSupport.unpark(thread);
+    }
+
+    /**
+     * Asks the render thread to draw and present a new frame.
+     */
+    void requestFrame() {
+      frameRequested = true;
+      LockSupport.unpark(thread);
+    }
+
+    /**
+     * Draws and presents a frame each time one is requested.
+     */
+    @Override
+    public void run() {
+      BufferStrategy strategy = getBufferStrategy();
+      while (running) {
+        if (!frameRequested) {
+          LockSupport.park(this);
+          continue;
+        }
+        frameRequested = false;
 
-          // Calculate updated sprite positions
-          updatePositions(interval);
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        long presented = 0;
+        do {
+          do {
+            Graphics g = strategy.getDrawGraphics();
+            try {
+              renderer.render(g, getWidth(), getHeight());
+            } finally {
+              g.dispose();
+            }
+          } while (strategy.contentsRestored());
 
-          // Redraw screen
-          repaint();
+          long presenting = System.nanoTime();
+          strategy.show();
+          Toolkit.getDefaultToolkit().sync();
+          presented = System.nanoTime() - presenting;
+          renderer.setPresentNanos(presented);
+        } while (strategy.contentsLost());
 
-          // To avoid 100% CPU utilization, sleep / wait for at least 1ms
-          Thread.sleep(1);
-          last = now;
-        } catch (InterruptedException e) {
-          e.printStackTrace();
+        if (event.shouldCommit()) {
+          event.present = presented;
+          event.sprites = renderer.getSprites();
+          event.drawCalls = renderer.getDrawCalls();
+          event.commit();
         }
       }
     }
   }
 
   /**
-   * Stops the execution of the game.
+   * Forwards input from the active screen canvas to the game, converting mouse
+   * coordinates so they match those of events received by the window.
    */
-  public void stop() {
-    isRunning = false;
+  private class ActiveScreenInput extends MouseAdapter implements KeyListener {
+    /**
+     * Converts a canvas mouse event to window coordinates.
+     * 
+     * @param mouseEvent The event received by the canvas.
+     * @return The equivalent event as seen by the window.
+     */
+    private MouseEvent convert(MouseEvent mouseEvent) {
+      return (SwingUtilities.convertMouseEvent(activeScreen, mouseEvent, frame));
+    }
+
+    /**
+     * Forwards a click on the canvas.
+     * 
+     * @param mouseEvent The event received by the canvas.
+     */
+    @Override
+    public void mouseClicked(MouseEvent mouseEvent) {
+      Game.this.mouseClicked(convert(mouseEvent));
+    }
+
+    /**
+     * Forwards a mouse move over the canvas.
+     * 
+     * @param mouseEvent The event received by the canvas.
+     */
+    @Override
+    public void mouseMoved(MouseEvent mouseEvent) {
+      Game.this.mouseMoved(convert(mouseEvent));
+    }
+
+    /**
+     * Forwards a mouse drag over the canvas.
+     * 
+     * @param mouseEvent The event received by the canvas.
+     */
+    @Override
+    public void mouseDragged(MouseEvent mouseEvent) {
+      Game.this.mouseDragged(convert(mouseEvent));
+    }
+
+    /**
+     * Forwards a key typed while the canvas has focus.
+     * 
+     * @param keyEvent The event received by the canvas.
+     */
+    @Override
+    public void keyTyped(KeyEvent keyEvent) {
+      Game.this.keyTyped(keyEvent);
+    }
+
+    /**
+     * Forwards a key pressed while the canvas has focus.
+     * 
+     * @param keyEvent The event received by the canvas.
+     */
+    @Override
+    public void keyPressed(KeyEvent keyEvent) {
+      Game.this.keyPressed(keyEvent);
+    }
+
+    /**
+     * Forwards a key released while the canvas has focus.
+     * 
+     * @param keyEvent The event received by the canvas.
+     */
+    @Override
+    public void keyReleased(KeyEvent keyEvent) {
+      Game.this.keyReleased(keyEvent);
+    }
+  }
+
+  /**
+   * Retrieves the message currently overlaid on the screen.
+   * 
+   * @return The message, or null if there is none.
+   */
+  String getMessage() {
+    return (message);
+  }
+
+  /**
+   * Sets the palette used to batch sprite outlines by color. Sprites whose
+   * colors fall into the same palette entry are drawn together in that
+   * entry's color, trading color accuracy for fewer draw calls. Has no effect
+   * when headless.
+   * 
+   * @param bitsPerChannel The number of bits kept of each color channel, 8 to
+   *                       keep exact colors.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game setColorQuantization(int bitsPerChannel) {
+    if (renderer != null) {
+      renderer.setColorQuantization(bitsPerChannel);
+    }
+    return (this);
+  }
+
+  /**
+   * Retrieves the static background drawn behind the sprites.
+   * 
+   * @return The background, or null for a plain black background.
+   */
+  protected IDrawable getBackground() {
+    return (background);
+  }
+
+  /**
+   * Sets a static background to draw behind the sprites. The background is
+   * drawn once into a cached image and only redrawn when a different
+   * background is set or the screen is resized.
+   * 
+   * @param background The background, or null for a plain black background.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game setBackground(IDrawable background) {
+    this.background = background;
+    return (this);
+  }
+
+  /**
+   * Retrieves how the game draws its screen.
+   * 
+   * @return The render mode in use. An active game whose buffer strategy could
+   *         not be created reports the passive fallback.
+   */
+  public RenderMode getRenderMode() {
+    return (renderMode);
+  }
+
+  /**
+   * Indicates if gameplay has ended.
+   * 
+   * @return True if ended, false if otherwise.
+   */
+  protected boolean isGameover() {
+    return (gameover);
+  }
+
+  /**
+   * Sets / changes the gameover value.
+   * 
+   * @param gameover The value to set. Tre if game is ended.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game setGameover(boolean gameover) {
+    if (updatingInParallel) {
+      defer(() -> setGameover(gameover));
+      return (this);
+    }
+    this.gameover = gameover;
+    message = (gameover) ? MESSAGE_GAME_OVER : null;
+    return (this);
+  }
+
+  /**
+   * Sets the message to overlay or display to the screen.
+   * 
+   * @param message The message to display.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game setMessage(String message) {
+    if (updatingInParallel) {
+      defer(() -> setMessage(message));
+      return (this);
+    }
+    this.message = message;
+    return (this);
+  }
+
+  /**
+   * Clears the message
+   * 
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game clearMessage() {
+    return (setMessage(null));
+  }
+
+  /**
+   * Runs an action that changes shared game state. Outside of a parallel update
+   * the action runs immediately; during one it is queued and run on the game
+   * thread once every sprite has been updated, in the order it was deferred.
+   * 
+   * @param action The action to run.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game defer(Runnable action) {
+    if (updatingInParallel) {
+      deferred.add(action);
+    } else {
+      action.run();
+    }
+    return (this);
+  }
+
+  /**
+   * Enables or disables parallel sprite updates. When enabled and the game has
+   * at least {@link #getParallelThreshold()} sprites, the sprites are split
+   * into chunks that are updated on a fork/join pool; see
+   * {@link #updatePosition(Sprite, long)} for the thread-safety contract.
+   * 
+   * @param enabled True to update large sprite sets in parallel.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game setParallelUpdates(boolean enabled) {
+    updatePool = (enabled) ? ForkJoinPool.commonPool() : null;
+    return (this);
+  }
+
+  /**
+   * Retrieves the number of sprites at which parallel updates kick in.
+   * 
+   * @return The minimum number of sprites for a parallel update.
+   */
+  public int getParallelThreshold() {
+    return (parallelThreshold);
+  }
+
+  /**
+   * Sets the number of sprites at which parallel updates kick in. Below it the
+   * cost of splitting the work outweighs the gain.
+   * 
+   * @param parallelThreshold The minimum number of sprites for a parallel
+   *                          update.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  public Game setParallelThreshold(int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+    return (this);
+  }
+
+  /**
+   * Updates a range of sprite store slots on the fork/join pool, splitting it
+   * in half until the range is small enough to run directly.
+   */
+  private class UpdateTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final long interval;
+    private final boolean move;
+
+    /**
+     * Creates an instance of the UpdateTask class.
+     * 
+     * @param from     The first slot index, inclusive.
+     * @param to       The last slot index, exclusive.
+     * @param interval The amount of time that has passed since the last update.
+     * @param move     False to call updatePosition for each slot, true to move
+     *                 the slots it left pending.
+     */
+    UpdateTask(int from, int to, long interval, boolean move) {
+      this.from = from;
+      this.to = to;
+      this.interval = interval;
+      this.move = move;
+    }
+
+    /**
+     * Updates or moves the range, splitting it first when it is too large.
+     */
+    @Override
+    protected void compute() {
+      if (to - from > PARALLEL_CHUNK) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new UpdateTask(from, middle, interval, move), new UpdateTask(middle, to, interval, move));
+      } else if (move) {
+        store.movePending(from, to, interval);
+      } else {
+        for (int index = from; index < to; index++) {
+          if (!updatePosition(store.get(index), interval)) {
+            store.markPending(index);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Captures the sprites and the message into the next world snapshot and
+   * publishes it to the screen. Has no effect when headless.
+   * 
+   * @param alpha The fraction of an update that has passed since the last one,
+   *              used to place sprites between their previous and current
+   *              position.
+   */
+  private void publishSnapshot(float alpha) {
+    if (snapshots == null) {
+      return;
+    }
+    WorldSnapshot snapshot = snapshots.getBack();
+    snapshot.clear(message, gameTime);
+    for (int index = 0; index < store.size(); index++) {
+      snapshot.add(store.get(index), alpha);
+    }
+    snapshots.publish();
+  }
+
+  /**
+   * Retrieves all of the sprites currently in the game. The array is a copy;
+   * {@link #getSpriteCount()} and {@link #getSpriteAt(int)} visit the sprites
+   * without allocating one.
+   * 
+   * @return The enumeration of sprites.
+   */
+  protected Sprite[] getSprites() {
+    Sprite[] copy = new Sprite[store.size()];
+    for (int index = 0; index < copy.length; index++) {
+      copy[index] = store.get(index);
+    }
+    return (copy);
+  }
+
+  /**
+   * Retrieves the number of sprites currently in the game.
+   * 
+   * @return The number of sprites.
+   */
+  protected int getSpriteCount() {
+    return (store.size());
+  }
+
+  /**
+   * Retrieves a sprite by its position in the game, from 0 to
+   * {@link #getSpriteCount()} - 1, the order in which sprites are updated and
+   * drawn. Removing a sprite moves the last sprite into its position.
+   * 
+   * @param index The position of the sprite.
+   * @return The sprite.
+   */
+  protected Sprite getSpriteAt(int index) {
+    if ((index < 0) || (index >= store.size())) {
+      throw new IndexOutOfBoundsException("Sprite " + index + " of " + store.size());
+    }
+    return (store.get(index));
+  }
+
+  /**
+   * Looks up a sprite by the handle it had when it was added, see
+   * {@link Sprite#getHandle()}.
+   * 
+   * @param handle The handle of the sprite.
+   * @return The sprite, or null if it is no longer in the game.
+   */
+  protected Sprite getSprite(long handle) {
+    return (registry.get(handle));
+  }
+
+  /**
+   * Runs an action for every sprite with any of the specified tags. Sprites
+   * added or removed by the action are added or removed once every sprite
+   * has been visited.
+   * 
+   * @param tags   The tags to look for, a set of bits.
+   * @param action The action to run.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game forEachSprite(int tags, Consumer<? super Sprite> action) {
+    iterating++;
+    try {
+      int count = store.size();
+      for (int index = 0; index < count; index++) {
+        if ((store.tags[index] & tags) != 0) {
+          action.accept(store.get(index));
+        }
+      }
+    } finally {
+      finishIterating();
+    }
+    return (this);
+  }
+
+  /**
+   * Runs an action for every sprite of the specified class, including its
+   * subclasses. Sprites added or removed by the action are added or removed
+   * once every sprite has been visited.
+   * 
+   * @param <T>    The class of the sprites.
+   * @param type   The class of the sprites.
+   * @param action The action to run.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected <T extends Sprite> Game forEachSprite(Class<T> type, Consumer<? super T> action) {
+    iterating++;
+    try {
+      int count = store.size();
+      for (int index = 0; index < count; index++) {
+        Sprite sprite = store.get(index);
+        if (type.isInstance(sprite)) {
+          action.accept(type.cast(sprite));
+        }
+      }
+    } finally {
+      finishIterating();
+    }
+    return (this);
+  }
+
+  /**
+   * Leaves a loop over the sprites, applying the sprites added and removed
+   * during it once the outermost loop is done.
+   */
+  private void finishIterating() {
+    if ((--iterating == 0) && !updatingInParallel) {
+      Runnable action;
+      while ((action = deferred.poll()) != null) {
+        action.run();
+      }
+    }
+  }
+
+  /**
+   * Checks if changes to the set of sprites have to be queued because the
+   * sprites are being updated or visited, so that the loop sees every sprite
+   * once and no sprite twice.
+   * 
+   * @return True if changes are queued until the loop is done.
+   */
+  private boolean isDeferringChanges() {
+    return (updatingInParallel || (iterating > 0));
+  }
+
+  /**
+   * Adds the specified Sprite into the existing list of sprites. Adding a
+   * sprite that is already in the game has no effect.
+   * 
+   * @param sprite The sprite to add.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game addSprite(Sprite sprite) {
+    if (sprite == null) {
+      return (this);
+    }
+    if (isDeferringChanges()) {
+      deferred.add(() -> addSprite(sprite));
+    } else {
+      registry.add(sprite);
+    }
+    return (this);
+  }
+
+  /**
+   * Adds many sprites at once, growing the sprite store once for the whole
+   * batch rather than as it fills up.
+   * 
+   * @param batch The sprites to add.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game addSprites(Collection<? extends Sprite> batch) {
+    if (isDeferringChanges()) {
+      deferred.add(() -> addSprites(batch));
+    } else {
+      registry.addAll(batch);
+    }
+    return (this);
+  }
+
+  /**
+   * Adds a sprite of the specified class, reusing one given to
+   * {@link #recycleSprite(Sprite)} if there is one, so that spawning
+   * and recycling sprites over and over does not allocate. A reused sprite
+   * keeps the fields of its class from before, and the position and movement
+   * of a new one are those its constructor was given, so call
+   * {@link Sprite#reset(int, int, int, int, float, int)} on it and set the
+   * rest of its fields.
+   * 
+   * @param <T>     The class of the sprite.
+   * @param type    The class of the sprite.
+   * @param factory Creates a sprite of exactly that class when none can be
+   *                reused.
+   * @return The sprite, which is in the game, or will be once the sprites
+   *         being updated or visited have been.
+   */
+  protected <T extends Sprite> T spawnSprite(Class<T> type, Supplier<? extends T> factory) {
+    if (isDeferringChanges()) {
+      T sprite = factory.get();
+      addSprite(sprite);
+      return (sprite);
+    }
+    return (registry.spawn(type, factory));
+  }
+
+  /**
+   * Tells the game how to create sprites of a class that {@link #load(ByteBuffer)}
+   * finds in a save. A class is known once it has been spawned with
+   * {@link #spawnSprite(Class, Supplier)}, so this is only needed for one
+   * that is loaded before the game spawns any. {@link DrawableSprite} is
+   * always known.
+   * 
+   * @param <T>     The class of the sprite.
+   * @param type    The class of the sprite.
+   * @param factory Creates a sprite of exactly that class.
+   */
+  protected <T extends Sprite> void addSpriteFactory(Class<T> type, Supplier<? extends T> factory) {
+    registry.addFactory(type, factory);
+  }
+
+  /**
+   * Removes the specified Sprite from the game. It keeps its position and
+   * movement and may be added again.
+   * 
+   * @param sprite The sprite to remove.
+   * @return True if the specified Sprite was removed, false if otherwise. While
+   *         the sprites are being updated or visited the removal is deferred
+   *         and true is returned if the sprite is currently in the game.
+   */
+  protected boolean removeSprite(Sprite sprite) {
+    if (isDeferringChanges()) {
+      deferred.add(() -> removeSprite(sprite));
+      return (registry.contains(sprite));
+    }
+    return (registry.remove(sprite));
+  }
+
+  /**
+   * Removes the specified Sprite from the game and keeps it for
+   * {@link #spawnSprite(Class, Supplier)} to reuse. The sprite must not be
+   * used again by the caller.
+   * 
+   * @param sprite The sprite to recycle.
+   * @return True if the specified Sprite was recycled, false if it is not in
+   *         the game. While the sprites are being updated or visited the
+   *         recycling is deferred.
+   */
+  protected boolean recycleSprite(Sprite sprite) {
+    if (isDeferringChanges()) {
+      deferred.add(() -> recycleSprite(sprite));
+      return (registry.contains(sprite));
+    }
+    return (registry.recycle(sprite));
+  }
+
+  /**
+   * Recycles every sprite with any of the specified tags, as
+   * {@link #recycleSprite(Sprite)} does, such as to clear the play area for a
+   * new round.
+   * 
+   * @param tags The tags to look for, a set of bits.
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game recycleSprites(int tags) {
+    if (isDeferringChanges()) {
+      deferred.add(() -> recycleSprites(tags));
+    } else {
+      registry.recycleAll(tags);
+    }
+    return (this);
+  }
+
+  /**
+   * Removes all sprites.
+   * 
+   * @return The instance of Game so that subsequent calls can be chained
+   *         together.
+   */
+  protected Game clearSprites() {
+    if (isDeferringChanges()) {
+      deferred.add(() -> clearSprites());
+    } else {
+      registry.clear();
+    }
+    return (this);
+  }
+
+  /**
+   * Updates all of the positions for each sprite registered on the game board.
+   * Sprites whose update is not handled by the game are moved together in a
+   * single pass over the sprite store once every sprite has been visited.
+   * 
+   * @param interval The amount of time that has passed since the last update.
+   */
+  private void updatePositions(long interval) {
+    if ((updatePool != null) && (store.size() >= parallelThreshold)) {
+      updatePositionsInParallel(interval);
+      return;
+    }
+    // Sprites added or removed on the way are added or removed before moving
+    iterating++;
+    try {
+      int count = store.size();
+      for (int index = 0; index < count; index++) {
+        if (!updatePosition(store.get(index), interval)) {
+          store.markPending(index);
+        }
+      }
+    } finally {
+      finishIterating();
+    }
+    store.movePending(interval);
+  }
+
+  /**
+   * Updates all of the positions on the fork/join pool, then applies the
+   * structural changes that were deferred while doing so.
+   * 
+   * @param interval The amount of time that has passed since the last update.
+   */
+  private void updatePositionsInParallel(long interval) {
+    int count = store.size();
+    updatingInParallel = true;
+    try {
+      updatePool.invoke(new UpdateTask(0, count, interval, false));
+    } finally {
+      updatingInParallel = false;
+    }
+    updatePool.invoke(new UpdateTask(0, count, interval, true));
+
+    Runnable action;
+    while ((action = deferred.poll()) != null) {
+      action.run();
+    }
+  }
+
+  /**
+   * Runs a single update of the game: collects the pending input, then
+   * calculates the updated sprite positions.
+   * 
+   * @param interval The amount of time that has passed since the last update.
+   */
+  private void tick(long interval) {
+    TickEvent event = new TickEvent();
+    event.begin();
+
+    // Remember where every sprite was so frames can be drawn in between
+    store.savePositions();
+
+    // Get input from user
+    long started = System.nanoTime();
+    if (replay == null) {
+      input.drain(inputSnapshot);
+    }
+    if (recorder != null) {
+      try {
+        recorder.record(inputSnapshot, interval);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    getInput(inputSnapshot, interval);
+    long updating = System.nanoTime();
+    metrics.record(GamePhase.INPUT, updating - started);
+
+    boolean frozen = paused;
+    if (!frozen) {
+      // Run timers that fell due before moving anything
+      scheduler.advance(interval);
+
+      // Calculate updated sprite positions
+      updatePositions(interval);
+
+      // Report sprites that ended up overlapping each other
+      if (broadPhase != null) {
+        detectCollisions();
+      }
+    }
+    gameTime += interval;
+    long finished = System.nanoTime();
+    if (!frozen) {
+      metrics.record(GamePhase.UPDATE, finished - updating);
+    }
+    metrics.countTick();
+
+    if (event.shouldCommit()) {
+      event.input = updating - started;
+      event.update = finished - updating;
+      event.sprites = store.size();
+      event.gameTime = gameTime;
+      event.paused = frozen;
+      event.commit();
+    }
+  }
+
+  /**
+   * Starts the execution of the game. This is a blocking call.
+   * 
+   * Each update and frame is reported to the JDK Flight Recorder as a
+   * {@code edu.uwsp.cnmt110.Tick} or {@code edu.uwsp.cnmt110.Frame} event, so a
+   * recording shows hitches next to GC pauses and thread scheduling.
+   * 
+   * The game is updated with a fixed timestep: elapsed wall clock time is
+   * accumulated and consumed in steps of {@link #getTickInterval()}, at most
+   * {@link #getMaxCatchUpTicks()} per frame. The screen is redrawn once per
+   * frame, interpolated by the time left over in the accumulator, and the
+   * thread parks until the next update or frame is due.
+   */
+  public void start() {
+    if (!isRunning) {
+      isRunning = true;
+      metrics.register(title);
+      long last = System.nanoTime();
+      long accumulator = 0;
+      while (isRunning) {
+        long step = TimeUnit.MILLISECONDS.toNanos(tickInterval);
+        long now = System.nanoTime();
+        accumulator += now - last;
+        last = now;
+
+        // Drop the time we cannot catch up on rather than falling further behind
+        long maxAccumulated = step * maxCatchUpTicks;
+        if (accumulator > maxAccumulated) {
+          droppedTicks += (accumulator - maxAccumulated) / step;
+          metrics.countDroppedTicks((accumulator - maxAccumulated) / step);
+          accumulator = maxAccumulated;
+        }
+
+        while (accumulator >= step) {
+          tick(tickInterval);
+          accumulator -= step;
+        }
+
+        // Hand the frame to the screen and redraw it
+        publishSnapshot(accumulator / (float) step);
+        if (renderer != null) {
+          metrics.countRequestedFrame();
+        }
+        repaint();
+        metrics.sample(now);
+
+        // Wait until the next update or frame is due instead of polling
+        long wait = step - accumulator;
+        if (frameRate > 0) {
+          wait = Math.min(wait, NANOS_PER_SECOND / frameRate);
+        }
+        LockSupport.parkNanos(wait);
+      }
+      metrics.unregister();
+      try {
+        stopRecording();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Runs the specified number of updates as fast as possible against the
+   * virtual clock, without sleeping or redrawing the screen. This is a blocking
+   * call and is intended for headless games.
+   * 
+   * @param ticks    The number of updates to run.
+   * @param interval The amount of virtual time in milliseconds per update.
+   * @return The throughput report for the run.
+   */
+  public SimulationReport simulate(long ticks, long interval) {
+    long simulated = 0;
+    long started = System.nanoTime();
+    if (!isRunning) {
+      isRunning = true;
+      while (isRunning && (simulated < ticks)) {
+        tick(interval);
+        simulated++;
+      }
+      isRunning = false;
+    }
+    return (new SimulationReport(simulated, simulated * interval, System.nanoTime() - started));
+  }
+
+  /**
+   * Starts recording the input of every update to a file, so that the session
+   * can be replayed with {@link #replay(InputReplay)}. Together with the random
+   * seed, the tick interval and the window size, the input is all it takes to
+   * reproduce a session. Recording must start before the first update. It
+   * ends when {@link #start()} returns or {@link #stopRecording()} is called;
+   * closing the window stops the game instead of exiting, so the recording is
+   * always completed.
+   * 
+   * @param file The file to record to; an existing file is replaced.
+   * @return The current game instance.
+   * @throws IOException If the file cannot be written.
+   */
+  public Game startRecording(Path file) throws IOException {
+    if ((gameTime != 0) || (recorder != null)) {
+      throw new IllegalStateException("Recording must start before the first update");
+    }
+    recorder = new InputRecorder(file, seed, tickInterval, getWidth(), getHeight(), getInsets());
+    if (frame != null) {
+      frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+      frame.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          stop();
+        }
+      });
+    }
+    return (this);
+  }
+
+  /**
+   * Completes the recording, if there is one, with the number of updates and
+   * the checksum of the state they ended in.
+   * 
+   * @throws IOException If the file cannot be written.
+   */
+  public void stopRecording() throws IOException {
+    if (recorder != null) {
+      InputRecorder finished = recorder;
+      recorder = null;
+      finished.finish(getStateChecksum());
+    }
+  }
+
+  /**
+   * Runs every update of a recording as fast as possible against the virtual
+   * clock, feeding the game the recorded input instead of its own. This is a
+   * blocking call and is intended for a game created from the same recording,
+   * which afterwards is in the state {@link InputReplay#getChecksum()} was taken
+   * from, unless the game does not behave deterministically.
+   * 
+   * @param replay The recording to play back.
+   * @return The throughput report for the run.
+   */
+  public SimulationReport replay(InputReplay replay) {
+    long simulated = 0;
+    long simulatedTime = 0;
+    long started = System.nanoTime();
+    if (!isRunning) {
+      isRunning = true;
+      this.replay = replay;
+      try {
+        while (isRunning && replay.next(inputSnapshot)) {
+          tick(replay.getInterval());
+          simulated++;
+          simulatedTime += replay.getInterval();
+        }
+      } finally {
+        this.replay = null;
+        isRunning = false;
+      }
+    }
+    return (new SimulationReport(simulated, simulatedTime, System.nanoTime() - started));
+  }
+
+  /**
+   * Calculates a checksum of the simulated state: the position, size and
+   * movement of every sprite, the game time, the message and the gameover
+   * state. Games with state of their own can mix it in. Two runs that end with
+   * the same checksum almost certainly ended in the same state.
+   * 
+   * @return The checksum.
+   */
+  public long getStateChecksum() {
+    long checksum = mix(0xcbf29ce484222325L, gameTime);
+    for (int index = 0; index < store.size(); index++) {
+      checksum = mix(checksum, Float.floatToIntBits(store.x[index]));
+      checksum = mix(checksum, Float.floatToIntBits(store.y[index]));
+      checksum = mix(checksum, Float.floatToIntBits(store.angle[index]));
+      checksum = mix(checksum, store.speed[index]);
+      checksum = mix(checksum, store.directionX[index]);
+      checksum = mix(checksum, store.directionY[index]);
+      checksum = mix(checksum, store.width[index]);
+      checksum = mix(checksum, store.height[index]);
+    }
+    checksum = mix(checksum, (message != null) ? message.hashCode() : 0);
+    checksum = mix(checksum, (gameover) ? 1 : 0);
+    return (checksum);
+  }
+
+  /**
+   * Folds a value into a checksum.
+   * 
+   * @param checksum The checksum so far.
+   * @param value    The value to add.
+   * @return The new checksum.
+   */
+  protected static long mix(long checksum, long value) {
+    return ((checksum ^ value) * 0x100000001b3L);
+  }
+
+  /**
+   * Writes the whole state of the game to a channel: every sprite with its
+   * position, movement, size, colors and name, the game time, message and
+   * gameover state, the state of the random generator and whatever
+   * {@link #saveState(ByteBuffer)} adds. The sprite state is copied out of
+   * the sprite store a column at a time, so saving takes a few bulk copies
+   * per thousand sprites rather than any work per sprite. Only sprites that
+   * are a {@link DrawableSprite} can be saved, and they are loaded as the
+   * same class.
+   * Call it between updates, such as from {@link #getInput(InputSnapshot, long)}.
+   * 
+   * @param channel The channel to write to.
+   * @throws IOException If the channel cannot be written.
+   */
+  public void save(WritableByteChannel channel) throws IOException {
+    // Check every sprite and collect the names before writing anything
+    int count = store.size();
+    Map<Class<?>, Integer> types = new HashMap<Class<?>, Integer>();
+    Map<String, Integer> names = new HashMap<String, Integer>();
+    for (int index = 0; index < count; index++) {
+      Sprite sprite = store.get(index);
+      if (!(sprite instanceof DrawableSprite)) {
+        throw new IllegalStateException("Only a DrawableSprite can be saved: " + sprite.getClass().getName());
+      }
+      types.putIfAbsent(sprite.getClass(), types.size());
+      String name = ((DrawableSprite) sprite).getName();
+      if (name != null) {
+        names.putIfAbsent(name, names.size());
+      }
+    }
+    if (stateBuffer == null) {
+      stateBuffer = ByteBuffer.allocate(SaveFormat.STATE_CAPACITY).order(SaveFormat.ORDER);
+    }
+    ByteBuffer state = stateBuffer;
+    state.clear();
+    saveState(state);
+    state.flip();
+
+    if (saveBuffer == null) {
+      saveBuffer = ByteBuffer.allocateDirect(SaveFormat.BUFFER_SIZE);
+    }
+    SaveFormat.Writer out = new SaveFormat.Writer(channel, saveBuffer);
+    out.putLong(SaveFormat.MAGIC).putInt(SaveFormat.VERSION);
+    out.putLong(gameTime).putLong(tickInterval).putByte((paused) ? 1 : 0).putByte((gameover) ? 1 : 0);
+    out.putString(message);
+    out.putLong(random.getState()).putDouble(random.getPendingGaussian());
+    out.putLong(scheduler.getTime()).putLong(scheduler.getProcessed());
+
+    store.write(out);
+    Class<?>[] classes = new Class<?>[types.size()];
+    for (Map.Entry<Class<?>, Integer> entry : types.entrySet()) {
+      classes[entry.getValue()] = entry.getKey();
+    }
+    out.putInt(classes.length);
+    for (Class<?> type : classes) {
+      out.putString(type.getName());
+    }
+    Class<?> lastType = null;
+    int typeIndex = 0;
+    for (int index = 0; index < count; index++) {
+      // neighbouring sprites are mostly of the same class
+      Class<?> type = store.get(index).getClass();
+      if (type != lastType) {
+        lastType = type;
+        typeIndex = types.get(type);
+      }
+      out.putInt(typeIndex);
+    }
+    for (int index = 0; index < count; index++) {
+      out.putInt(((DrawableSprite) store.get(index)).getColorValue());
+    }
+    for (int index = 0; index < count; index++) {
+      out.putInt(((DrawableSprite) store.get(index)).getTextColorValue());
+    }
+    String[] table = new String[names.size()];
+    for (Map.Entry<String, Integer> entry : names.entrySet()) {
+      table[entry.getValue()] = entry.getKey();
+    }
+    out.putInt(table.length);
+    for (String name : table) {
+      out.putString(name);
+    }
+    for (int index = 0; index < count; index++) {
+      String name = ((DrawableSprite) store.get(index)).getName();
+      out.putInt((name != null) ? names.get(name) : -1);
+    }
+
+    out.putInt(state.remaining());
+    out.put(state);
+    out.flush();
+  }
+
+  /**
+   * Replaces the state of the game with one written by
+   * {@link #save(WritableByteChannel)}. The whole save is read and checked,
+   * including what {@link #loadState(ByteBuffer)} reads, before anything of
+   * the game is replaced, so a save that cannot be loaded leaves the game as
+   * it was. The sprite state is copied into a sprite store a column at a
+   * time, the one the previous load replaced if there is one, and sprites of
+   * the same color share one Color. Each sprite comes back as the class it
+   * was saved as, taken from the pool of recycled sprites of that class or
+   * else made by the factory it was spawned with; the sprites before the load
+   * are put into the pools, and their handles stop resolving. Scheduled tasks
+   * are not part of a save: they are cancelled, and
+   * {@link #loadState(ByteBuffer)} is where a game schedules them again.
+   * Call it between updates, such as from
+   * {@link #getInput(InputSnapshot, long)}.
+   * 
+   * @param in The save, from its position on.
+   * @throws IOException If the buffer does not hold a save of this version.
+   */
+  public void load(ByteBuffer in) throws IOException {
+    in = in.duplicate().order(SaveFormat.ORDER);
+    SpriteStore loaded = (spareStore != null) ? spareStore : new SpriteStore(1);
+    spareStore = null;
+    long savedGameTime;
+    long savedTickInterval;
+    boolean savedPaused;
+    boolean savedGameover;
+    String savedMessage;
+    long randomState;
+    double pendingGaussian;
+    long schedulerTime;
+    long schedulerProcessed;
+    Runnable restore;
+    try {
+      if (in.getLong() != SaveFormat.MAGIC) {
+        throw new IOException("Not a saved game");
+      }
+      int version = in.getInt();
+      if (version != SaveFormat.VERSION) {
+        throw new IOException("Unsupported save version " + version);
+      }
+      savedGameTime = in.getLong();
+      savedTickInterval = in.getLong();
+      savedPaused = in.get() != 0;
+      savedGameover = in.get() != 0;
+      savedMessage = SaveFormat.getString(in);
+      randomState = in.getLong();
+      pendingGaussian = in.getDouble();
+      schedulerTime = in.getLong();
+      schedulerProcessed = in.getLong();
+
+      int count = loaded.read(in);
+      Class<?>[] classes = new Class<?>[in.getInt()];
+      for (int type = 0; type < classes.length; type++) {
+        String name = SaveFormat.getString(in);
+        classes[type] = registry.findType(name);
+        if ((classes[type] == null) || !DrawableSprite.class.isAssignableFrom(classes[type])) {
+          throw new IOException("Cannot load sprites of class " + name);
+        }
+      }
+      // the tables come first, then every sprite is set up in one pass over the columns
+      int typeColumn = in.position();
+      int colorColumn = typeColumn + count * Integer.BYTES;
+      int textColorColumn = colorColumn + count * Integer.BYTES;
+      in.position(textColorColumn + count * Integer.BYTES);
+      String[] names = new String[in.getInt()];
+      for (int name = 0; name < names.length; name++) {
+        names[name] = SaveFormat.getString(in);
+      }
+      int nameColumn = in.position();
+      in.position(nameColumn + count * Integer.BYTES);
+      SaveFormat.ColorCache colors = new SaveFormat.ColorCache();
+      for (int index = 0; index < count; index++) {
+        int offset = index * Integer.BYTES;
+        Class<?> type = classes[in.getInt(typeColumn + offset)];
+        DrawableSprite sprite = (DrawableSprite) registry.obtain(type);
+        if (sprite == null) {
+          throw new IOException("Cannot load sprites of class " + type.getName());
+        }
+        sprite.bind(loaded, index);
+        loaded.attach(index, sprite);
+        // a reused sprite often has its saved colors already
+        int color = in.getInt(colorColumn + offset);
+        if (sprite.getColorValue() != color) {
+          sprite.setColor(colors.get(color));
+        }
+        int textColor = in.getInt(textColorColumn + offset);
+        if (sprite.getTextColorValue() != textColor) {
+          sprite.setTextColor(colors.get(textColor));
+        }
+        int name = in.getInt(nameColumn + offset);
+        sprite.setName((name >= 0) ? names[name] : null);
+      }
+      int stateLength = in.getInt();
+      ByteBuffer state = in.slice();
+      state.limit(stateLength);
+      state = state.slice().order(SaveFormat.ORDER);
+      restore = loadState(state);
+    } catch (RuntimeException e) {
+      discard(loaded);
+      throw new IOException("Corrupt saved game", e);
+    } catch (IOException e) {
+      discard(loaded);
+      throw e;
+    }
+
+    SpriteStore replaced = store;
+    store = loaded;
+    registry.replace(loaded);
+    replaced.reset();
+    spareStore = replaced;
+    gameTime = savedGameTime;
+    tickInterval = savedTickInterval;
+    gameover = savedGameover;
+    message = savedMessage;
+    random.restore(randomState, pendingGaussian);
+    scheduler.restore(schedulerTime, schedulerProcessed);
+    setPaused(savedPaused);
+    if (restore != null) {
+      restore.run();
+    }
+  }
+
+  /**
+   * Puts the sprites of a save that could not be loaded back into the pools,
+   * and keeps the store for the next load.
+   * 
+   * @param loaded The store the save was being read into.
+   */
+  private void discard(SpriteStore loaded) {
+    for (int index = 0; index < loaded.size(); index++) {
+      Sprite sprite = loaded.get(index);
+      if (sprite != null) {
+        registry.pool(sprite);
+      }
+    }
+    loaded.reset();
+    spareStore = loaded;
+  }
+
+  /**
+   * Saves the game to a file. The save is written to a temporary file next to
+   * it and forced to disk first, then moved over the file, so a crash leaves
+   * either the previous save or the new one behind.
+   * 
+   * @param file The file to save to.
+   * @throws IOException If the file cannot be written.
+   */
+  public void quickSave(Path file) throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      save(channel);
+      channel.force(false);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads a game saved with {@link #quickSave(Path)}. The file is
+   * memory-mapped, so the sprite columns are copied from the page cache
+   * straight into the sprite store.
+   * 
+   * @param file The file to load.
+   * @throws IOException If the file cannot be read or does not hold a save.
+   */
+  public void quickLoad(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      load(mapped);
+    }
+  }
+
+  /**
+   * Adds the state of a particular game to a save, such as the fields of a
+   * subclass. References to sprites can be saved by name. Does nothing by
+   * default.
+   * 
+   * @param out The buffer to write to, little-endian, with room for 64KB.
+   */
+  protected void saveState(ByteBuffer out) {
+  }
+
+  /**
+   * Reads the state added by {@link #saveState(ByteBuffer)} while the rest
+   * of the save is read, before anything of the game is replaced. Whatever is
+   * read is checked and kept in locals; throwing here rejects the save and
+   * leaves the game as it was. Returns what applies the state once the rest
+   * of the game has been loaded, and which then no longer fails. Reads
+   * nothing and returns null by default.
+   * 
+   * @param in The state that was written, little-endian.
+   * @return What restores the state, or null for nothing.
+   */
+  protected Runnable loadState(ByteBuffer in) {
+    return (null);
+  }
+
+  /**
+   * Retrieves the buffer that input is recorded into until the next update.
+   * Allows headless games to be driven without a window.
+   * 
+   * @return The input buffer.
+   */
+  public InputBuffer getInputBuffer() {
+    return (input);
+  }
+
+  /**
+   * Stops the execution of the game.
+   */
+  public void stop() {
+    isRunning = false;
+    if (activeScreen != null) {
+      activeScreen.stopRendering();
+    }
   }
 
   /**
@@ -336,7 +1993,7 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void mouseClicked(MouseEvent mouseEvent) {
-    events.add(mouseEvent);
+    input.click(mouseEvent.getButton(), mouseEvent.getX(), mouseEvent.getY());
   }
 
   /**
@@ -387,6 +2044,7 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void mouseDragged(MouseEvent mouseEvent) {
+    input.moveMouse(mouseEvent.getX(), mouseEvent.getY());
   }
 
   /**
@@ -398,7 +2056,7 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void mouseMoved(MouseEvent mouseEvent) {
-    events.add(mouseEvent);
+    input.moveMouse(mouseEvent.getX(), mouseEvent.getY());
   }
 
   /**
@@ -409,7 +2067,6 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void keyTyped(KeyEvent keyEvent) {
-    events.add(keyEvent);
   }
 
   /**
@@ -420,6 +2077,7 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void keyPressed(KeyEvent keyEvent) {
+    input.press(keyEvent.getKeyCode());
   }
 
   /**
@@ -430,5 +2088,6 @@ public abstract class Game extends JFrame implements MouseListener, MouseMotionL
    */
   @Override
   public void keyReleased(KeyEvent keyEvent) {
+    input.release(keyEvent.getKeyCode());
   }
 }
@@ -0,0 +1,281 @@
+package edu.uwsp.cnmt110;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instruments the game loop: a latency histogram per {@link GamePhase}, the
+ * tick and frame rates and the number of dropped ticks and frames. Every
+ * game has one, see {@link Game#getMetrics()}; while the game runs it is
+ * registered as a JMX MBean named
+ * {@code edu.uwsp.cnmt110:type=GameMetrics,name=<title>} so that long soak
+ * sessions can be watched and alerted on.
+ */
+public class GameMetrics implements GameMetricsMBean {
+  private static final long RATE_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+  private final LatencyHistogram[] phases = new LatencyHistogram[GamePhase.values().length];
+  private final AtomicLong ticks = new AtomicLong();
+  private final AtomicLong frames = new AtomicLong();
+  private final AtomicLong requestedFrames = new AtomicLong();
+  private final AtomicLong droppedTicks = new AtomicLong();
+  private volatile double ticksPerSecond;
+  private volatile double framesPerSecond;
+  private long windowStart = -1;
+  private long windowTicks;
+  private long windowFrames;
+  private ObjectName name;
+
+  /**
+   * Creates an instance of the GameMetrics class.
+   */
+  public GameMetrics() {
+    for (int index = 0; index < phases.length; index++) {
+      phases[index] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Retrieves the latency histogram of a phase.
+   * @param phase The phase of the game loop.
+   * @return The histogram.
+   */
+  public LatencyHistogram getHistogram(GamePhase phase) {
+    return(phases[phase.ordinal()]);
+  }
+
+  /**
+   * Records how long a phase took.
+   * @param phase The phase of the game loop.
+   * @param nanos The duration in nanoseconds.
+   */
+  void record(GamePhase phase, long nanos) {
+    phases[phase.ordinal()].record(nanos);
+  }
+
+  /**
+   * Counts a completed update.
+   */
+  void countTick() {
+    ticks.lazySet(ticks.get() + 1);
+  }
+
+  /**
+   * Counts updates that were skipped to catch up.
+   * @param dropped The number of skipped updates.
+   */
+  void countDroppedTicks(long dropped) {
+    droppedTicks.lazySet(droppedTicks.get() + dropped);
+  }
+
+  /**
+   * Counts a frame the game loop asked the screen to draw.
+   */
+  void countRequestedFrame() {
+    requestedFrames.lazySet(requestedFrames.get() + 1);
+  }
+
+  /**
+   * Counts a frame the screen drew.
+   */
+  void countFrame() {
+    frames.lazySet(frames.get() + 1);
+  }
+
+  /**
+   * Updates the tick and frame rates once a second has passed since they
+   * were last updated. Called by the game loop once per frame.
+   * @param now The current time from System.nanoTime().
+   */
+  void sample(long now) {
+    if (windowStart < 0) {
+      windowStart = now;
+      windowTicks = ticks.get();
+      windowFrames = frames.get();
+      return;
+    }
+    long elapsed = now - windowStart;
+    if (elapsed >= RATE_WINDOW) {
+      long currentTicks = ticks.get();
+      long currentFrames = frames.get();
+      ticksPerSecond = (currentTicks - windowTicks) * 1e9 / elapsed;
+      framesPerSecond = (currentFrames - windowFrames) * 1e9 / elapsed;
+      windowStart = now;
+      windowTicks = currentTicks;
+      windowFrames = currentFrames;
+    }
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server. A second game
+   * with the same title is not registered.
+   * @param title The title of the game, used as the name of the MBean.
+   */
+  void register(String title) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName candidate = new ObjectName("edu.uwsp.cnmt110:type=GameMetrics,name=" + ObjectName.quote(title));
+      if (!server.isRegistered(candidate)) {
+        server.registerMBean(this, candidate);
+        name = candidate;
+      }
+    } catch (JMException e) {
+      // Monitoring is optional; the game runs the same without it
+      name = null;
+    }
+  }
+
+  /**
+   * Removes the metrics from the platform MBean server, if registered.
+   */
+  void unregister() {
+    if (name != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      } catch (JMException e) {
+        // Already gone
+      }
+      name = null;
+    }
+  }
+
+  /**
+   * Converts a percentile of a phase to microseconds.
+   * @param phase The phase of the game loop.
+   * @param percentile The percentile, from 0 to 100.
+   * @return The latency in microseconds.
+   */
+  private long micros(GamePhase phase, double percentile) {
+    return(TimeUnit.NANOSECONDS.toMicros(getHistogram(phase).getPercentile(percentile)));
+  }
+
+  /**
+   * Converts the maximum of a phase to microseconds.
+   * @param phase The phase of the game loop.
+   * @return The latency in microseconds.
+   */
+  private long maxMicros(GamePhase phase) {
+    return(TimeUnit.NANOSECONDS.toMicros(getHistogram(phase).getMax()));
+  }
+
+  @Override
+  public long getInputP50Micros() {
+    return(micros(GamePhase.INPUT, 50));
+  }
+
+  @Override
+  public long getInputP99Micros() {
+    return(micros(GamePhase.INPUT, 99));
+  }
+
+  @Override
+  public long getInputP999Micros() {
+    return(micros(GamePhase.INPUT, 99.9));
+  }
+
+  @Override
+  public long getInputMaxMicros() {
+    return(maxMicros(GamePhase.INPUT));
+  }
+
+  @Override
+  public long getUpdateP50Micros() {
+    return(micros(GamePhase.UPDATE, 50));
+  }
+
+  @Override
+  public long getUpdateP99Micros() {
+    return(micros(GamePhase.UPDATE, 99));
+  }
+
+  @Override
+  public long getUpdateP999Micros() {
+    return(micros(GamePhase.UPDATE, 99.9));
+  }
+
+  @Override
+  public long getUpdateMaxMicros() {
+    return(maxMicros(GamePhase.UPDATE));
+  }
+
+  @Override
+  public long getRenderP50Micros() {
+    return(micros(GamePhase.RENDER, 50));
+  }
+
+  @Override
+  public long getRenderP99Micros() {
+    return(micros(GamePhase.RENDER, 99));
+  }
+
+  @Override
+  public long getRenderP999Micros() {
+    return(micros(GamePhase.RENDER, 99.9));
+  }
+
+  @Override
+  public long getRenderMaxMicros() {
+    return(maxMicros(GamePhase.RENDER));
+  }
+
+  @Override
+  public long getPresentP50Micros() {
+    return(micros(GamePhase.PRESENT, 50));
+  }
+
+  @Override
+  public long getPresentP99Micros() {
+    return(micros(GamePhase.PRESENT, 99));
+  }
+
+  @Override
+  public long getPresentP999Micros() {
+    return(micros(GamePhase.PRESENT, 99.9));
+  }
+
+  @Override
+  public long getPresentMaxMicros() {
+    return(maxMicros(GamePhase.PRESENT));
+  }
+
+  @Override
+  public double getTicksPerSecond() {
+    return(ticksPerSecond);
+  }
+
+  @Override
+  public double getFramesPerSecond() {
+    return(framesPerSecond);
+  }
+
+  @Override
+  public long getTicks() {
+    return(ticks.get());
+  }
+
+  @Override
+  public long getFrames() {
+    return(frames.get());
+  }
+
+  @Override
+  public long getDroppedFrames() {
+    return(Math.max(0, requestedFrames.get() - frames.get()));
+  }
+
+  @Override
+  public long getDroppedTicks() {
+    return(droppedTicks.get());
+  }
+
+  @Override
+  public void reset() {
+    for (LatencyHistogram histogram : phases) {
+      histogram.reset();
+    }
+  }
+}
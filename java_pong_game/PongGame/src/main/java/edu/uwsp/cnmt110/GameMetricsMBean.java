@@ -0,0 +1,123 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * The management interface of {@link GameMetrics}, as seen by JMX clients
+ * such as JConsole, VisualVM or a monitoring agent. Latencies are in
+ * microseconds and cover everything recorded since the last reset.
+ */
+public interface GameMetricsMBean {
+  /**
+   * @return The median time to handle input.
+   */
+  long getInputP50Micros();
+
+  /**
+   * @return The 99th percentile time to handle input.
+   */
+  long getInputP99Micros();
+
+  /**
+   * @return The 99.9th percentile time to handle input.
+   */
+  long getInputP999Micros();
+
+  /**
+   * @return The longest time to handle input.
+   */
+  long getInputMaxMicros();
+
+  /**
+   * @return The median time to update the sprites.
+   */
+  long getUpdateP50Micros();
+
+  /**
+   * @return The 99th percentile time to update the sprites.
+   */
+  long getUpdateP99Micros();
+
+  /**
+   * @return The 99.9th percentile time to update the sprites.
+   */
+  long getUpdateP999Micros();
+
+  /**
+   * @return The longest time to update the sprites.
+   */
+  long getUpdateMaxMicros();
+
+  /**
+   * @return The median time to draw a frame.
+   */
+  long getRenderP50Micros();
+
+  /**
+   * @return The 99th percentile time to draw a frame.
+   */
+  long getRenderP99Micros();
+
+  /**
+   * @return The 99.9th percentile time to draw a frame.
+   */
+  long getRenderP999Micros();
+
+  /**
+   * @return The longest time to draw a frame.
+   */
+  long getRenderMaxMicros();
+
+  /**
+   * @return The median time to show a frame.
+   */
+  long getPresentP50Micros();
+
+  /**
+   * @return The 99th percentile time to show a frame.
+   */
+  long getPresentP99Micros();
+
+  /**
+   * @return The 99.9th percentile time to show a frame.
+   */
+  long getPresentP999Micros();
+
+  /**
+   * @return The longest time to show a frame.
+   */
+  long getPresentMaxMicros();
+
+  /**
+   * @return The number of updates run in the last full second.
+   */
+  double getTicksPerSecond();
+
+  /**
+   * @return The number of frames drawn in the last full second.
+   */
+  double getFramesPerSecond();
+
+  /**
+   * @return The total number of updates run.
+   */
+  long getTicks();
+
+  /**
+   * @return The total number of frames drawn.
+   */
+  long getFrames();
+
+  /**
+   * @return The number of frames the game loop asked for that were never drawn.
+   */
+  long getDroppedFrames();
+
+  /**
+   * @return The number of updates skipped because the game could not keep up.
+   */
+  long getDroppedTicks();
+
+  /**
+   * Forgets the recorded latencies and starts a new reporting window.
+   */
+  void reset();
+}
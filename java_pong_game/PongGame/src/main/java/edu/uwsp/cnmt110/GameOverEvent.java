@@ -0,0 +1,30 @@
+package edu.uwsp.cnmt110;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event marking the end of a Pong match.
+ */
+@Name("edu.uwsp.cnmt110.GameOver")
+@Label("Game Over")
+@Category({"Pong Game", "Match"})
+@StackTrace(false)
+class GameOverEvent extends Event {
+  @Label("Match Length")
+  @Timespan(Timespan.MILLISECONDS)
+  long matchLength;
+
+  @Label("Game Time")
+  @Timespan(Timespan.MILLISECONDS)
+  long gameTime;
+
+  @Label("Sprites")
+  @Description("Sprites left in the game")
+  int sprites;
+}
@@ -0,0 +1,23 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * The parts of the game loop whose latency is measured by {@link GameMetrics}.
+ */
+public enum GamePhase {
+  /**
+   * Draining the input buffer and handling it in getInput().
+   */
+  INPUT,
+  /**
+   * Running scheduled actions, moving every sprite and detecting collisions.
+   */
+  UPDATE,
+  /**
+   * Drawing a frame into the back buffer.
+   */
+  RENDER,
+  /**
+   * Showing the drawn frame on the screen.
+   */
+  PRESENT,
+}
@@ -0,0 +1,104 @@
+package edu.uwsp.cnmt110;
+
+import java.util.Random;
+
+/**
+ * A random generator whose state can be saved and restored. It produces
+ * exactly the numbers a {@link Random} with the same seed would, but keeps
+ * its state in fields of its own, where a save can reach it without
+ * reflection. Unlike Random it is not thread-safe; a game only draws random
+ * numbers on the game thread.
+ */
+public class GameRandom extends Random {
+  private static final long serialVersionUID = 1L;
+  private static final long MULTIPLIER = 0x5deece66dL;
+  private static final long ADDEND = 0xbL;
+  private static final long MASK = (1L << 48) - 1;
+
+  // Assigned by setSeed, which the Random constructor calls, so no initializers
+  private long state;
+  private boolean haveNextNextGaussian;
+  private double nextNextGaussian;
+
+  /**
+   * Creates an instance of the GameRandom class.
+   * @param seed The initial seed.
+   */
+  public GameRandom(long seed) {
+    super(seed);
+  }
+
+  /**
+   * Resets the generator to the specified seed.
+   * @param seed The seed.
+   */
+  @Override
+  public void setSeed(long seed) {
+    state = (seed ^ MULTIPLIER) & MASK;
+    haveNextNextGaussian = false;
+  }
+
+  /**
+   * Generates the next random bits, with the linear congruential generator of
+   * {@link Random}.
+   * @param bits The number of random bits, at most 32.
+   * @return The random bits.
+   */
+  @Override
+  protected int next(int bits) {
+    state = (state * MULTIPLIER + ADDEND) & MASK;
+    return((int) (state >>> (48 - bits)));
+  }
+
+  /**
+   * Generates the next normally distributed number, with the polar method of
+   * {@link Random}, which produces them in pairs.
+   * @return The random number, with mean 0 and standard deviation 1.
+   */
+  @Override
+  public double nextGaussian() {
+    if (haveNextNextGaussian) {
+      haveNextNextGaussian = false;
+      return(nextNextGaussian);
+    }
+    double v1;
+    double v2;
+    double s;
+    do {
+      v1 = 2 * nextDouble() - 1;
+      v2 = 2 * nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while ((s >= 1) || (s == 0));
+    double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    nextNextGaussian = v2 * multiplier;
+    haveNextNextGaussian = true;
+    return(v1 * multiplier);
+  }
+
+  /**
+   * Retrieves the internal state of the generator.
+   * @return The 48 bit state.
+   */
+  long getState() {
+    return(state);
+  }
+
+  /**
+   * Retrieves the second number of the pending pair of {@link #nextGaussian()}.
+   * @return The pending number, or NaN if there is none.
+   */
+  double getPendingGaussian() {
+    return((haveNextNextGaussian) ? nextNextGaussian : Double.NaN);
+  }
+
+  /**
+   * Restores the generator to a state it had before.
+   * @param state The 48 bit state, from {@link #getState()}.
+   * @param pendingGaussian The pending number, from {@link #getPendingGaussian()}.
+   */
+  void restore(long state, double pendingGaussian) {
+    this.state = state & MASK;
+    this.haveNextNextGaussian = !Double.isNaN(pendingGaussian);
+    this.nextNextGaussian = pendingGaussian;
+  }
+}
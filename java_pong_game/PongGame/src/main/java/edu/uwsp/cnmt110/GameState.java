@@ -0,0 +1,19 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * The screens of a Pong game, see {@link PongGame}.
+ */
+enum GameState {
+  /**
+   * Waiting for the player to start a match.
+   */
+  WelcomeScreen,
+  /**
+   * A match is being played.
+   */
+  Started,
+  /**
+   * A bar missed the ball and the match is over.
+   */
+  GameOver,
+}
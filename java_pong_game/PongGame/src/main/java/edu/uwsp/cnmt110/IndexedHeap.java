@@ -0,0 +1,174 @@
+package edu.uwsp.cnmt110;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of small integer ids, each with a key. The heap position
+ * of every id is tracked, so the key of an id can be changed and an id can be
+ * removed in O(log n), and the id with the smallest key is found in O(1).
+ */
+class IndexedHeap {
+  private int[] heap;
+  private int[] positions;
+  private double[] keys;
+  private int size;
+
+  /**
+   * Creates an instance of the IndexedHeap class.
+   * @param capacity The number of ids to make room for up front.
+   */
+  IndexedHeap(int capacity) {
+    capacity = Math.max(1, capacity);
+    heap = new int[capacity];
+    positions = new int[capacity];
+    keys = new double[capacity];
+    Arrays.fill(positions, -1);
+  }
+
+  /**
+   * Retrieves the number of ids in the heap.
+   * @return The number of ids.
+   */
+  int size() {
+    return(size);
+  }
+
+  /**
+   * Checks if the heap holds no ids.
+   * @return True if the heap is empty.
+   */
+  boolean isEmpty() {
+    return(size == 0);
+  }
+
+  /**
+   * Checks if an id is in the heap.
+   * @param id The id.
+   * @return True if the id is in the heap.
+   */
+  boolean contains(int id) {
+    return((id >= 0) && (id < positions.length) && (positions[id] >= 0));
+  }
+
+  /**
+   * Retrieves the id with the smallest key.
+   * @return The id, or -1 if the heap is empty.
+   */
+  int peek() {
+    return((size > 0) ? heap[0] : -1);
+  }
+
+  /**
+   * Retrieves the key of an id in the heap.
+   * @param id The id.
+   * @return The key.
+   */
+  double getKey(int id) {
+    return(keys[id]);
+  }
+
+  /**
+   * Adds an id, or changes its key if it is already in the heap.
+   * @param id The id, at least 0.
+   * @param key The key.
+   */
+  void put(int id, double key) {
+    if (id >= positions.length) {
+      int capacity = positions.length;
+      int length = Math.max(id + 1, capacity * 2);
+      positions = Arrays.copyOf(positions, length);
+      keys = Arrays.copyOf(keys, length);
+      Arrays.fill(positions, capacity, length, -1);
+    }
+    int position = positions[id];
+    keys[id] = key;
+    if (position < 0) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      heap[size] = id;
+      positions[id] = size;
+      siftUp(size++);
+    } else {
+      siftDown(siftUp(position));
+    }
+  }
+
+  /**
+   * Removes an id.
+   * @param id The id.
+   * @return True if it was removed, false if it was not in the heap.
+   */
+  boolean remove(int id) {
+    if (!contains(id)) {
+      return(false);
+    }
+    int position = positions[id];
+    int last = --size;
+    positions[id] = -1;
+    if (position != last) {
+      heap[position] = heap[last];
+      positions[heap[position]] = position;
+      siftDown(siftUp(position));
+    }
+    return(true);
+  }
+
+  /**
+   * Removes every id.
+   */
+  void clear() {
+    for (int position = 0; position < size; position++) {
+      positions[heap[position]] = -1;
+    }
+    size = 0;
+  }
+
+  /**
+   * Moves the id at a position up until its parent's key is not larger.
+   * @param position The position.
+   * @return The position the id ended up at.
+   */
+  private int siftUp(int position) {
+    int id = heap[position];
+    double key = keys[id];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      if (keys[heap[parent]] <= key) {
+        break;
+      }
+      heap[position] = heap[parent];
+      positions[heap[position]] = position;
+      position = parent;
+    }
+    heap[position] = id;
+    positions[id] = position;
+    return(position);
+  }
+
+  /**
+   * Moves the id at a position down until no child's key is smaller.
+   * @param position The position.
+   */
+  private void siftDown(int position) {
+    int id = heap[position];
+    double key = keys[id];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= size) {
+        break;
+      }
+      if ((child + 1 < size) && (keys[heap[child + 1]] < keys[heap[child]])) {
+        child++;
+      }
+      if (keys[heap[child]] >= key) {
+        break;
+      }
+      heap[position] = heap[child];
+      positions[heap[position]] = position;
+      position = child;
+    }
+    heap[position] = id;
+    positions[id] = position;
+  }
+}
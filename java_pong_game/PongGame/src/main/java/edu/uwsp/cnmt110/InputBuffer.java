@@ -0,0 +1,113 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects user input as it arrives and hands it to the game once per update.
+ * The event dispatch thread writes through atomic counters and bitsets, and
+ * the game thread drains them into a preallocated {@link InputSnapshot}, so
+ * neither side locks or allocates and the cost per update does not depend on
+ * how many events arrived.
+ */
+public class InputBuffer {
+  private final AtomicLong mouse = new AtomicLong();
+  private final AtomicInteger mouseMoves = new AtomicInteger();
+  private final AtomicIntegerArray clickCounts = new AtomicIntegerArray(InputSnapshot.BUTTONS);
+  private final AtomicIntegerArray pressCounts = new AtomicIntegerArray(InputSnapshot.KEY_CODES);
+  private final AtomicLongArray pressedKeys = new AtomicLongArray(InputSnapshot.KEY_CODES / 64);
+  private final AtomicLongArray keysDown = new AtomicLongArray(InputSnapshot.KEY_CODES / 64);
+
+  /**
+   * Records the latest mouse position.
+   * @param x The position on the horizontal axis, in window coordinates.
+   * @param y The position on the vertical axis, in window coordinates.
+   */
+  public void moveMouse(int x, int y) {
+    mouse.set(((long) x << 32) | (y & 0xFFFFFFFFL));
+    mouseMoves.incrementAndGet();
+  }
+
+  /**
+   * Records a mouse click, which also moves the mouse to where it happened.
+   * @param button The button that was clicked.
+   * @param x The position on the horizontal axis, in window coordinates.
+   * @param y The position on the vertical axis, in window coordinates.
+   */
+  public void click(int button, int x, int y) {
+    moveMouse(x, y);
+    if ((button >= 0) && (button < InputSnapshot.BUTTONS)) {
+      clickCounts.incrementAndGet(button);
+    }
+  }
+
+  /**
+   * Records a key going down.
+   * @param keyCode The key code.
+   */
+  public void press(int keyCode) {
+    if ((keyCode >= 0) && (keyCode < InputSnapshot.KEY_CODES)) {
+      pressCounts.incrementAndGet(keyCode);
+      setBit(pressedKeys, keyCode);
+      setBit(keysDown, keyCode);
+    }
+  }
+
+  /**
+   * Records a key going up.
+   * @param keyCode The key code.
+   */
+  public void release(int keyCode) {
+    if ((keyCode >= 0) && (keyCode < InputSnapshot.KEY_CODES)) {
+      long bit = 1L << keyCode;
+      int word = keyCode >>> 6;
+      long current;
+      do {
+        current = keysDown.get(word);
+      } while (!keysDown.compareAndSet(word, current, current & ~bit));
+    }
+  }
+
+  /**
+   * Moves everything recorded since the previous drain into a snapshot.
+   * @param snapshot The snapshot to fill in.
+   */
+  void drain(InputSnapshot snapshot) {
+    snapshot.clear();
+    if (mouseMoves.getAndSet(0) > 0) {
+      long position = mouse.get();
+      snapshot.mouseX = (int) (position >> 32);
+      snapshot.mouseY = (int) position;
+      snapshot.mouseMoved = true;
+    }
+    for (int button = 0; button < InputSnapshot.BUTTONS; button++) {
+      snapshot.clickCounts[button] = clickCounts.getAndSet(button, 0);
+    }
+    // Only visit the keys that were pressed since the previous drain
+    for (int word = 0; word < snapshot.keysDown.length; word++) {
+      long pressed = pressedKeys.getAndSet(word, 0);
+      while (pressed != 0) {
+        int keyCode = (word << 6) + Long.numberOfTrailingZeros(pressed);
+        snapshot.pressCounts[keyCode] = pressCounts.getAndSet(keyCode, 0);
+        pressed &= pressed - 1;
+      }
+      snapshot.keysDown[word] = keysDown.get(word);
+    }
+  }
+
+  /**
+   * Atomically sets a bit in a bitset.
+   * @param bits The bitset.
+   * @param index The bit to set.
+   */
+  private static void setBit(AtomicLongArray bits, int index) {
+    long bit = 1L << index;
+    int word = index >>> 6;
+    long current;
+    do {
+      current = bits.get(word);
+    } while (((current & bit) == 0) && !bits.compareAndSet(word, current, current | bit));
+  }
+}
@@ -0,0 +1,250 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the input of every update of a game to a compact binary file, so
+ * that the session can be replayed exactly by {@link InputReplay}. The file
+ * starts with everything a replay needs to rebuild the game: the seed of its
+ * random generator, the tick interval, the window size and insets. Then comes
+ * one record per update. Runs of updates without input are collapsed into a
+ * single record, so an idle minute costs a few bytes. Records are gathered in
+ * a direct buffer and written through a file channel in large blocks.
+ *
+ * File layout, big-endian:
+ * <pre>
+ * header   magic:long version:int seed:long interval:long width:int height:int
+ *          top:int left:int bottom:int right:int
+ * records  IDLE n:varint
+ *          INPUT mask:byte [x:zigzag y:zigzag] [n:byte (button:byte count:varint)*]
+ *                [n:varint (key:varint count:varint)*] [keysDown:long*4]
+ *          INTERVAL interval:varint
+ * trailer  END ticks:long checksum:long
+ * </pre>
+ */
+class InputRecorder implements Closeable {
+  static final long MAGIC = 0x504f4e4752454301L; // "PONGREC" 1
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 8 + 4 + 8 + 8 + 4 + 4 + 4 * 4;
+  static final int TRAILER_SIZE = 1 + 8 + 8;
+
+  static final byte END = 0;
+  static final byte IDLE = 1;
+  static final byte INPUT = 2;
+  static final byte INTERVAL = 3;
+
+  static final int MOUSE = 1;
+  static final int CLICKS = 2;
+  static final int PRESSES = 4;
+  static final int KEYS = 8;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final long[] keysDown = new long[InputSnapshot.KEY_CODES / 64];
+  private long interval;
+  private long idle;
+  private long ticks;
+
+  /**
+   * Creates the recording file and writes its header.
+   * @param file The file to write; an existing file is replaced.
+   * @param seed The seed of the game's random generator.
+   * @param interval The tick interval in milliseconds.
+   * @param width The width of the game.
+   * @param height The height of the game.
+   * @param insets The window borders of the game.
+   * @throws IOException If the file cannot be written.
+   */
+  InputRecorder(Path file, long seed, long interval, int width, int height, Insets insets) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+    this.interval = interval;
+    buffer.putLong(MAGIC).putInt(VERSION).putLong(seed).putLong(interval)
+          .putInt(width).putInt(height)
+          .putInt(insets.top).putInt(insets.left).putInt(insets.bottom).putInt(insets.right);
+  }
+
+  /**
+   * Retrieves the number of updates recorded so far.
+   * @return The tick count.
+   */
+  long getTicks() {
+    return(ticks);
+  }
+
+  /**
+   * Records the input of one update.
+   * @param input The input the update was given.
+   * @param interval The amount of game time the update simulated.
+   * @throws IOException If the file cannot be written.
+   */
+  void record(InputSnapshot input, long interval) throws IOException {
+    ticks++;
+    int mask = 0;
+    if (input.mouseMoved) {
+      mask |= MOUSE;
+    }
+    int clicks = 0;
+    for (int button = 0; button < InputSnapshot.BUTTONS; button++) {
+      if (input.clickCounts[button] != 0) {
+        clicks++;
+      }
+    }
+    if (clicks > 0) {
+      mask |= CLICKS;
+    }
+    int presses = 0;
+    for (int keyCode = 0; keyCode < InputSnapshot.KEY_CODES; keyCode++) {
+      if (input.pressCounts[keyCode] != 0) {
+        presses++;
+      }
+    }
+    if (presses > 0) {
+      mask |= PRESSES;
+    }
+    for (int word = 0; word < keysDown.length; word++) {
+      if (input.keysDown[word] != keysDown[word]) {
+        mask |= KEYS;
+        break;
+      }
+    }
+
+    if ((mask == 0) && (interval == this.interval)) {
+      idle++;
+      return;
+    }
+    flushIdle();
+    if (interval != this.interval) {
+      ensureSpace(1 + 10);
+      buffer.put(INTERVAL);
+      putVarLong(interval);
+      this.interval = interval;
+    }
+    if (mask == 0) {
+      idle++;
+      return;
+    }
+
+    ensureSpace(1 + 1 + 2 * 5 + 1 + clicks * 6 + 5 + presses * 10 + keysDown.length * 8);
+    buffer.put(INPUT).put((byte) mask);
+    if ((mask & MOUSE) != 0) {
+      putVarLong(zigzag(input.mouseX));
+      putVarLong(zigzag(input.mouseY));
+    }
+    if ((mask & CLICKS) != 0) {
+      buffer.put((byte) clicks);
+      for (int button = 0; button < InputSnapshot.BUTTONS; button++) {
+        if (input.clickCounts[button] != 0) {
+          buffer.put((byte) button);
+          putVarLong(input.clickCounts[button]);
+        }
+      }
+    }
+    if ((mask & PRESSES) != 0) {
+      putVarLong(presses);
+      for (int keyCode = 0; keyCode < InputSnapshot.KEY_CODES; keyCode++) {
+        if (input.pressCounts[keyCode] != 0) {
+          putVarLong(keyCode);
+          putVarLong(input.pressCounts[keyCode]);
+        }
+      }
+    }
+    if ((mask & KEYS) != 0) {
+      for (int word = 0; word < keysDown.length; word++) {
+        keysDown[word] = input.keysDown[word];
+        buffer.putLong(keysDown[word]);
+      }
+    }
+  }
+
+  /**
+   * Ends the recording with the number of updates and the state the game
+   * reached, then closes the file.
+   * @param checksum The checksum of the final game state.
+   * @throws IOException If the file cannot be written.
+   */
+  void finish(long checksum) throws IOException {
+    flushIdle();
+    ensureSpace(TRAILER_SIZE);
+    buffer.put(END).putLong(ticks).putLong(checksum);
+    close();
+  }
+
+  /**
+   * Writes out what is buffered and closes the file. A recording closed
+   * without {@link #finish(long)} cannot be replayed.
+   * @throws IOException If the file cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (channel.isOpen()) {
+      try {
+        drain();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the pending run of updates without input.
+   */
+  private void flushIdle() throws IOException {
+    if (idle > 0) {
+      ensureSpace(1 + 10);
+      buffer.put(IDLE);
+      putVarLong(idle);
+      idle = 0;
+    }
+  }
+
+  /**
+   * Makes sure the buffer has room for a record, writing it out if not.
+   * @param bytes The largest size of the record.
+   */
+  private void ensureSpace(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain();
+    }
+  }
+
+  /**
+   * Writes everything in the buffer to the file.
+   */
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes an unsigned variable length number, seven bits per byte.
+   * @param value The value.
+   */
+  private void putVarLong(long value) {
+    while ((value & ~0x7fL) != 0) {
+      buffer.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Maps a signed number to an unsigned one so small negatives stay short.
+   * @param value The value.
+   * @return The zigzag encoded value.
+   */
+  private static long zigzag(int value) {
+    return(((long) value << 1) ^ (value >> 31));
+  }
+}
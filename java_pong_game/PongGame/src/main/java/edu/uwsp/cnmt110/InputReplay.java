@@ -0,0 +1,246 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a session recorded with {@link Game#startRecording(Path)}. The file is
+ * memory-mapped, so even a long session replays without copying it through
+ * the heap. A game built from a replay starts from the same state as the
+ * recorded one, and {@link Game#replay(InputReplay)} feeds it the recorded
+ * input as fast as it can be simulated.
+ */
+public class InputReplay implements Closeable {
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final int end;
+  private final long seed;
+  private final long initialInterval;
+  private final int width;
+  private final int height;
+  private final Insets insets;
+  private final long ticks;
+  private final long checksum;
+  private long interval;
+  private long idle;
+
+  /**
+   * Creates an instance of the InputReplay class.
+   * @param channel The open recording file.
+   * @throws IOException If the file cannot be read or is not a complete recording.
+   */
+  private InputReplay(FileChannel channel) throws IOException {
+    this.channel = channel;
+    long size = channel.size();
+    if ((size < InputRecorder.HEADER_SIZE + InputRecorder.TRAILER_SIZE) || (size > Integer.MAX_VALUE)) {
+      throw new IOException("Not a recording");
+    }
+    this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    if ((buffer.getLong() != InputRecorder.MAGIC) || (buffer.getInt() != InputRecorder.VERSION)) {
+      throw new IOException("Not a recording");
+    }
+    this.seed = buffer.getLong();
+    this.initialInterval = buffer.getLong();
+    this.interval = initialInterval;
+    this.width = buffer.getInt();
+    this.height = buffer.getInt();
+    int top = buffer.getInt();
+    int left = buffer.getInt();
+    int bottom = buffer.getInt();
+    int right = buffer.getInt();
+    this.insets = new Insets(top, left, bottom, right);
+
+    this.end = (int) size - InputRecorder.TRAILER_SIZE;
+    if (buffer.get(end) != InputRecorder.END) {
+      throw new IOException("Recording is incomplete");
+    }
+    this.ticks = buffer.getLong(end + 1);
+    this.checksum = buffer.getLong(end + 1 + 8);
+  }
+
+  /**
+   * Opens a recording.
+   * @param file The recording file.
+   * @return The replay, positioned at the first update.
+   * @throws IOException If the file cannot be read or is not a complete recording.
+   */
+  public static InputReplay open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return(new InputReplay(channel));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Retrieves the seed of the recorded game's random generator.
+   * @return The seed.
+   */
+  public long getSeed() {
+    return(seed);
+  }
+
+  /**
+   * Retrieves the tick interval the recorded game started with.
+   * @return The tick interval in milliseconds.
+   */
+  public long getTickInterval() {
+    return(initialInterval);
+  }
+
+  /**
+   * Retrieves the width of the recorded game's window.
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return(width);
+  }
+
+  /**
+   * Retrieves the height of the recorded game's window.
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return(height);
+  }
+
+  /**
+   * Retrieves the borders of the recorded game's window.
+   * @return A copy of the insets.
+   */
+  public Insets getInsets() {
+    return((Insets) insets.clone());
+  }
+
+  /**
+   * Retrieves the number of updates in the recording.
+   * @return The tick count.
+   */
+  public long getTicks() {
+    return(ticks);
+  }
+
+  /**
+   * Retrieves the checksum of the state the recorded game ended in.
+   * @return The checksum, as calculated by {@link Game#getStateChecksum()}.
+   */
+  public long getChecksum() {
+    return(checksum);
+  }
+
+  /**
+   * Retrieves the amount of game time simulated by the current update.
+   * @return The interval in milliseconds.
+   */
+  long getInterval() {
+    return(interval);
+  }
+
+  /**
+   * Moves to the next update and fills in its input. Like a drain of the
+   * input buffer, the mouse position and held keys carry over from the
+   * previous update unless they changed.
+   * @param input The snapshot to fill in.
+   * @return True if there was another update, false at the end of the recording.
+   */
+  boolean next(InputSnapshot input) {
+    input.clear();
+    try {
+      while (idle == 0) {
+        if (buffer.position() >= end) {
+          return(false);
+        }
+        byte tag = buffer.get();
+        switch (tag) {
+          case InputRecorder.IDLE:
+            idle = getVarLong();
+            break;
+          case InputRecorder.INTERVAL:
+            interval = getVarLong();
+            break;
+          case InputRecorder.INPUT:
+            readInput(input);
+            return(true);
+          default:
+            throw new IllegalStateException("Corrupt recording");
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("Corrupt recording", e);
+    }
+    idle--;
+    return(true);
+  }
+
+  /**
+   * Reads the input of one update.
+   * @param input The snapshot to fill in.
+   */
+  private void readInput(InputSnapshot input) {
+    int mask = buffer.get();
+    if ((mask & InputRecorder.MOUSE) != 0) {
+      input.mouseX = unzigzag(getVarLong());
+      input.mouseY = unzigzag(getVarLong());
+      input.mouseMoved = true;
+    }
+    if ((mask & InputRecorder.CLICKS) != 0) {
+      for (int count = buffer.get(); count > 0; count--) {
+        int button = buffer.get();
+        input.clickCounts[button] = (int) getVarLong();
+      }
+    }
+    if ((mask & InputRecorder.PRESSES) != 0) {
+      for (long count = getVarLong(); count > 0; count--) {
+        int keyCode = (int) getVarLong();
+        input.pressCounts[keyCode] = (int) getVarLong();
+      }
+    }
+    if ((mask & InputRecorder.KEYS) != 0) {
+      for (int word = 0; word < input.keysDown.length; word++) {
+        input.keysDown[word] = buffer.getLong();
+      }
+    }
+  }
+
+  /**
+   * Reads an unsigned variable length number.
+   * @return The value.
+   */
+  private long getVarLong() {
+    long value = 0;
+    int shift = 0;
+    byte current;
+    do {
+      current = buffer.get();
+      value |= (long) (current & 0x7f) << shift;
+      shift += 7;
+    } while (current < 0);
+    return(value);
+  }
+
+  /**
+   * Reverses the zigzag encoding of a signed number.
+   * @param value The encoded value.
+   * @return The signed value.
+   */
+  private static int unzigzag(long value) {
+    return((int) ((value >>> 1) ^ -(value & 1)));
+  }
+
+  /**
+   * Closes the recording file.
+   * @throws IOException If the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
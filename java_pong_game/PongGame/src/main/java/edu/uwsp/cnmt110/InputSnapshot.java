@@ -0,0 +1,99 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+
+/**
+ * The user input of a single update, coalesced from every mouse and keyboard
+ * event received since the previous one: the latest mouse position, how often
+ * each mouse button was clicked and each key went down, and which keys are
+ * currently held. A game reuses one snapshot for every update.
+ */
+public class InputSnapshot {
+  /**
+   * The number of key codes tracked. Key codes at or above this are ignored.
+   */
+  public static final int KEY_CODES = 256;
+
+  /**
+   * The number of mouse buttons tracked, including {@link MouseEvent#NOBUTTON}.
+   */
+  public static final int BUTTONS = 4;
+
+  int mouseX;
+  int mouseY;
+  boolean mouseMoved;
+  final int[] clickCounts = new int[BUTTONS];
+  final int[] pressCounts = new int[KEY_CODES];
+  final long[] keysDown = new long[KEY_CODES / 64];
+
+  /**
+   * Retrieves the latest horizontal mouse position, in window coordinates.
+   * @return The mouse position on the x axis.
+   */
+  public int getMouseX() {
+    return(mouseX);
+  }
+
+  /**
+   * Retrieves the latest vertical mouse position, in window coordinates.
+   * @return The mouse position on the y axis.
+   */
+  public int getMouseY() {
+    return(mouseY);
+  }
+
+  /**
+   * Indicates if the mouse moved or was clicked since the previous update.
+   * @return True if the mouse position changed, false if otherwise.
+   */
+  public boolean hasMouseMoved() {
+    return(mouseMoved);
+  }
+
+  /**
+   * Retrieves how often a mouse button was clicked since the previous update.
+   * @param button The button, such as {@link MouseEvent#BUTTON1}.
+   * @return The number of clicks.
+   */
+  public int getClickCount(int button) {
+    return(((button >= 0) && (button < BUTTONS)) ? clickCounts[button] : 0);
+  }
+
+  /**
+   * Retrieves how often a key went down since the previous update, including
+   * auto-repeats while it is held.
+   * @param keyCode The key code, such as {@link java.awt.event.KeyEvent#VK_SPACE}.
+   * @return The number of presses.
+   */
+  public int getPressCount(int keyCode) {
+    return(((keyCode >= 0) && (keyCode < KEY_CODES)) ? pressCounts[keyCode] : 0);
+  }
+
+  /**
+   * Indicates if a key went down at least once since the previous update.
+   * @param keyCode The key code.
+   * @return True if pressed, false if otherwise.
+   */
+  public boolean wasPressed(int keyCode) {
+    return(getPressCount(keyCode) > 0);
+  }
+
+  /**
+   * Indicates if a key is currently held down.
+   * @param keyCode The key code.
+   * @return True if held down, false if otherwise.
+   */
+  public boolean isKeyDown(int keyCode) {
+    return((keyCode >= 0) && (keyCode < KEY_CODES) && ((keysDown[keyCode >>> 6] & (1L << keyCode)) != 0));
+  }
+
+  /**
+   * Resets the snapshot to no input, keeping the mouse position.
+   */
+  void clear() {
+    mouseMoved = false;
+    Arrays.fill(clickCounts, 0);
+    Arrays.fill(pressCounts, 0);
+  }
+}
@@ -0,0 +1,132 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records durations in nanoseconds into log-linear buckets, in the style of
+ * an HDR histogram: every power of two is split into 32 equal buckets, so any
+ * recorded value is reported within about 3% of its true value from one
+ * nanosecond up to decades. Recording is a few shifts and two stores and
+ * never allocates, so it can be left on in every frame.
+ *
+ * Each histogram is meant to be recorded by a single thread. Other threads
+ * may read percentiles at any time; they see every completed record, although
+ * a read that races a record can be off by that one value. Any thread may
+ * reset it: the recording thread clears it before its next record, so a reset
+ * never races a record.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+  private volatile boolean resetRequested;
+
+  /**
+   * Calculates the bucket that a value is counted in.
+   * @param value The value, at least 0.
+   * @return The bucket index.
+   */
+  static int bucket(long value) {
+    if (value < 2 * SUB_BUCKETS) {
+      return((int) value);
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    return((int) (shift * SUB_BUCKETS + (value >>> shift)));
+  }
+
+  /**
+   * Calculates the largest value that is counted in a bucket.
+   * @param bucket The bucket index.
+   * @return The largest value of the bucket.
+   */
+  static long highestValue(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return(bucket);
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+    return(((subBucket + 1) << shift) - 1);
+  }
+
+  /**
+   * Records a duration.
+   * @param nanos The duration in nanoseconds. Negative durations count as 0.
+   */
+  public void record(long nanos) {
+    if (resetRequested) {
+      clear();
+      resetRequested = false;
+    }
+    long value = Math.max(0, nanos);
+    int bucket = bucket(value);
+    // Single writer: plain read-modify-write, published with ordered stores
+    counts.lazySet(bucket, counts.get(bucket) + 1);
+    count.lazySet(count.get() + 1);
+    if (value > max.get()) {
+      max.lazySet(value);
+    }
+  }
+
+  /**
+   * Retrieves the number of durations recorded.
+   * @return The count.
+   */
+  public long getCount() {
+    return((resetRequested) ? 0 : count.get());
+  }
+
+  /**
+   * Retrieves the longest duration recorded.
+   * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    return((resetRequested) ? 0 : max.get());
+  }
+
+  /**
+   * Retrieves the duration that the specified share of all recorded
+   * durations do not exceed.
+   * @param percentile The percentile, from 0 to 100, e.g. 99.9.
+   * @return The duration in nanoseconds, or 0 if nothing was recorded.
+   */
+  public long getPercentile(double percentile) {
+    long total = getCount();
+    if (total == 0) {
+      return(0);
+    }
+    long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= target) {
+        return(Math.min(highestValue(bucket), max.get()));
+      }
+    }
+    return(max.get());
+  }
+
+  /**
+   * Forgets every recorded duration, e.g. to start a new reporting window.
+   * The histogram reads as empty at once; the recording thread clears the
+   * buckets before its next record.
+   */
+  public void reset() {
+    resetRequested = true;
+  }
+
+  /**
+   * Clears the buckets, on the recording thread.
+   */
+  private void clear() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.lazySet(bucket, 0);
+    }
+    count.lazySet(0);
+    max.lazySet(0);
+  }
+}
@@ -1,9 +1,117 @@
 package edu.uwsp.cnmt110;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
 public class Main {
-    public static void main(String[] args) {
-        Game game = new PongGame(800, 600);
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (Arrays.asList(args).contains("--headless")) {
+            // Run a batch of simulated ticks without a display and report throughput
+            PongGame game = new PongGame(800, 600, true);
+            game.startMatch();
+            System.out.println(game.simulate(1000000, game.getTickInterval()));
+            return;
+        }
+        String batch = option(args, "--batch");
+        if (batch != null) {
+            // Play matches with a few paddle heights and ball speeds on every core
+            MatchRunner runner = new MatchRunner()
+                    .setSettings(new PongSettings().setBarHeight(50), new PongSettings(),
+                            new PongSettings().setBarHeight(90), new PongSettings().setSpeedRange(3, 8))
+                    .setPlayers(PongPlayer.TRACKING, PongPlayer.SLOPPY)
+                    .setMatchesPerSetting(Long.parseLong(batch));
+            String csvFile = option(args, "--csv");
+            Writer csv = (csvFile != null) ? Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8)
+                    : new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            try {
+                System.err.println(runner.run(csv));
+            } finally {
+                if (csvFile != null) {
+                    csv.close();
+                }
+            }
+            return;
+        }
+        String serverPort = option(args, "--server");
+        if (serverPort != null) {
+            // Host two player matches for clients started with --connect
+            NetServer server = new NetServer(new InetSocketAddress(Integer.parseInt(serverPort)));
+            System.out.println("Listening on port " + server.getPort());
+            server.run();
+            return;
+        }
+        String netbench = option(args, "--netbench");
+        if (netbench != null) {
+            // Play network matches on loopback and report server cost and bandwidth
+            new NetLoadTest().setMatches(Integer.parseInt(netbench)).run(System.out);
+            return;
+        }
+        String connect = option(args, "--connect");
+        if (connect != null) {
+            // Play against another client of a server given as host:port
+            int colon = connect.lastIndexOf(':');
+            String host = (colon > 0) ? connect.substring(0, colon) : connect;
+            int port = (colon > 0) ? Integer.parseInt(connect.substring(colon + 1)) : NetProtocol.DEFAULT_PORT;
+            boolean active = Arrays.asList(args).contains("--active");
+            new NetClient(host, port, (active) ? RenderMode.ACTIVE : RenderMode.PASSIVE).start();
+            return;
+        }
+        String replayFile = option(args, "--replay");
+        if (replayFile != null) {
+            // Play a recorded session back headless at full speed and check it ends the same
+            try (InputReplay replay = InputReplay.open(Paths.get(replayFile))) {
+                PongGame game = new PongGame(replay);
+                System.out.println(game.replay(replay));
+                boolean identical = game.getStateChecksum() == replay.getChecksum();
+                System.out.println((identical) ? "Final state is identical to the recording"
+                        : "Final state differs from the recording");
+                if (!identical) {
+                    System.exit(1);
+                }
+            }
+            return;
+        }
+        boolean active = Arrays.asList(args).contains("--active");
+        PongSettings settings = new PongSettings();
+        String difficulty = option(args, "--difficulty");
+        if (difficulty != null) {
+            // Let the computer miss: easy, normal or hard
+            settings.setDifficulty(Difficulty.valueOf(difficulty.toUpperCase(Locale.ROOT)));
+        }
+        Game game = new PongGame(800, 600, (active) ? RenderMode.ACTIVE : RenderMode.PASSIVE, settings);
         // Game game = new DemoGame(800, 600);
+        String loadFile = option(args, "--load");
+        if (loadFile != null) {
+            // Continue a game saved with F5, such as after a crash
+            game.quickLoad(Paths.get(loadFile));
+        }
+        String recordFile = option(args, "--record");
+        if (recordFile != null) {
+            game.startRecording(Paths.get(recordFile));
+        }
         game.start();
     }
+
+    /**
+     * Find the value given for a command line option.
+     *
+     * @param args the command line arguments
+     * @param name the option, such as --record
+     * @return the argument following the option, or null if it is not given
+     */
+    private static String option(String[] args, String name) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,161 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * The outcome of one headless Pong match run by a {@link MatchRunner}.
+ */
+public class MatchResult {
+  /**
+   * The columns of {@link #toCsv()}.
+   */
+  public static final String CSV_HEADER =
+      "match,seed,min_speed,max_speed,bar_height,difficulty,player,result,ticks,game_time_ms,rally_length,bounces,"
+      + "game_over_ms,ticks_per_s";
+
+  private final long match;
+  private final long seed;
+  private final PongSettings settings;
+  private final PongPlayer player;
+  private final boolean gameOver;
+  private final boolean won;
+  private final long ticks;
+  private final long gameTime;
+  private final int rallyLength;
+  private final int bounces;
+  private final long matchLength;
+  private final long elapsedNanos;
+
+  /**
+   * Creates an instance of the MatchResult class.
+   * @param match The number of the match within the run.
+   * @param seed The random seed the match was played with.
+   * @param settings The rules the match was played with.
+   * @param player Who played the player's paddle.
+   * @param game The game, after the match ended.
+   * @param ticks The number of updates the match took.
+   * @param elapsedNanos The wall clock time the match took.
+   */
+  MatchResult(long match, long seed, PongSettings settings, PongPlayer player, PongGame game, long ticks,
+              long elapsedNanos) {
+    this.match = match;
+    this.seed = seed;
+    this.settings = settings;
+    this.player = player;
+    this.won = game.isGameover() && (game.getLoser() == game.computer);
+    this.gameOver = game.isGameover() && !won;
+    this.ticks = ticks;
+    this.gameTime = game.getGameTime();
+    this.rallyLength = game.getRallyLength();
+    this.bounces = game.getBounces();
+    this.matchLength = game.getMatchLength();
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Retrieves the number of the match within the run.
+   * @return The match number, counting from 0.
+   */
+  public long getMatch() {
+    return(match);
+  }
+
+  /**
+   * Retrieves the random seed the match was played with.
+   * @return The seed.
+   */
+  public long getSeed() {
+    return(seed);
+  }
+
+  /**
+   * Retrieves the rules the match was played with.
+   * @return The settings.
+   */
+  public PongSettings getSettings() {
+    return(settings);
+  }
+
+  /**
+   * Retrieves who played the player's paddle.
+   * @return The player.
+   */
+  public PongPlayer getPlayer() {
+    return(player);
+  }
+
+  /**
+   * Indicates if the player lost the match, rather than it running out of time.
+   * @return True if the match ended in a game over, false if otherwise.
+   */
+  public boolean isGameOver() {
+    return(gameOver);
+  }
+
+  /**
+   * Indicates if the computer missed a ball, which wins the match for the player.
+   * @return True if the player won, false if otherwise.
+   */
+  public boolean isWon() {
+    return(won);
+  }
+
+  /**
+   * Retrieves the number of updates the match took.
+   * @return The tick count.
+   */
+  public long getTicks() {
+    return(ticks);
+  }
+
+  /**
+   * Retrieves how many balls the player returned.
+   * @return The rally length.
+   */
+  public int getRallyLength() {
+    return(rallyLength);
+  }
+
+  /**
+   * Retrieves how often balls bounced off a wall or paddle.
+   * @return The number of bounces.
+   */
+  public int getBounces() {
+    return(bounces);
+  }
+
+  /**
+   * Retrieves how much game time passed until the player lost.
+   * @return The time in milliseconds, or -1 if the match ran out of time.
+   */
+  public long getMatchLength() {
+    return(matchLength);
+  }
+
+  /**
+   * Retrieves the wall clock time the match took.
+   * @return The time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return(elapsedNanos);
+  }
+
+  /**
+   * Calculates how many updates per second of wall clock time were simulated.
+   * @return The throughput.
+   */
+  public double getTicksPerSecond() {
+    return((elapsedNanos > 0) ? ticks * 1e9 / elapsedNanos : 0);
+  }
+
+  /**
+   * Formats the result as a line of comma separated values, in the order of
+   * {@link #CSV_HEADER}.
+   * @return The CSV line, without a line break.
+   */
+  public String toCsv() {
+    return(match + "," + seed + "," + settings.getMinSpeed() + "," + settings.getMaxSpeed() + ","
+           + settings.getBarHeight() + "," + settings.getDifficulty() + "," + player + ","
+           + ((won) ? "won" : (gameOver) ? "game over" : "timeout") + ","
+           + ticks + "," + gameTime + "," + rallyLength + "," + bounces + "," + matchLength + ","
+           + Math.round(getTicksPerSecond()));
+  }
+}
@@ -0,0 +1,234 @@
+package edu.uwsp.cnmt110;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays headless Pong matches in bulk, for tuning the rules and comparing
+ * players without playing by hand. Every combination of settings and player
+ * is played a number of times, each match with a seed of its own. Matches run
+ * concurrently on a fixed number of threads. Only a few more matches than
+ * there are threads are in flight at any time, and each result is written out
+ * and folded into the summary as soon as it arrives, so memory stays flat no
+ * matter how many matches are played.
+ */
+public class MatchRunner {
+  private static final int DEFAULT_WIDTH = 800;
+  private static final int DEFAULT_HEIGHT = 600;
+  private static final long DEFAULT_MAX_GAME_TIME = 5 * 60 * 1000;
+  private static final long SEED_INCREMENT = 0x9e3779b97f4a7c15L;
+
+  private List<PongSettings> settings = Collections.singletonList(new PongSettings());
+  private List<PongPlayer> players = Collections.singletonList(PongPlayer.TRACKING);
+  private long matchesPerSetting = 1;
+  private long seed = new Random().nextLong();
+  private long maxGameTime = DEFAULT_MAX_GAME_TIME;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int width = DEFAULT_WIDTH;
+  private int height = DEFAULT_HEIGHT;
+
+  /**
+   * Sets the rules to play with. Every player plays with every settings.
+   * @param settings The settings, at least one.
+   * @return The current runner instance.
+   */
+  public MatchRunner setSettings(PongSettings... settings) {
+    if (settings.length == 0) {
+      throw new IllegalArgumentException("at least one settings is required");
+    }
+    List<PongSettings> copies = new ArrayList<PongSettings>();
+    for (PongSettings setting : settings) {
+      copies.add(new PongSettings(setting));
+    }
+    this.settings = copies;
+    return(this);
+  }
+
+  /**
+   * Sets who plays the player's paddle. Every player plays with every settings.
+   * @param players The players, at least one.
+   * @return The current runner instance.
+   */
+  public MatchRunner setPlayers(PongPlayer... players) {
+    if (players.length == 0) {
+      throw new IllegalArgumentException("at least one player is required");
+    }
+    this.players = Arrays.asList(players.clone());
+    return(this);
+  }
+
+  /**
+   * Sets how many matches each combination of settings and player is played.
+   * @param matchesPerSetting The number of matches, at least 1.
+   * @return The current runner instance.
+   */
+  public MatchRunner setMatchesPerSetting(long matchesPerSetting) {
+    if (matchesPerSetting < 1) {
+      throw new IllegalArgumentException("matchesPerSetting must be at least 1");
+    }
+    this.matchesPerSetting = matchesPerSetting;
+    return(this);
+  }
+
+  /**
+   * Sets the seed the seeds of the matches are derived from, so that a run can
+   * be repeated exactly. A random seed is used by default.
+   * @param seed The seed of the run.
+   * @return The current runner instance.
+   */
+  public MatchRunner setSeed(long seed) {
+    this.seed = seed;
+    return(this);
+  }
+
+  /**
+   * Sets how much game time a match may last before it is called a timeout.
+   * @param maxGameTime The time in milliseconds, at least 1.
+   * @return The current runner instance.
+   */
+  public MatchRunner setMaxGameTime(long maxGameTime) {
+    if (maxGameTime < 1) {
+      throw new IllegalArgumentException("maxGameTime must be at least 1ms");
+    }
+    this.maxGameTime = maxGameTime;
+    return(this);
+  }
+
+  /**
+   * Sets how many matches are played at the same time. Defaults to the number
+   * of processors.
+   * @param threads The number of threads, at least 1.
+   * @return The current runner instance.
+   */
+  public MatchRunner setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.threads = threads;
+    return(this);
+  }
+
+  /**
+   * Sets the size of the virtual playfield.
+   * @param width The width in pixels.
+   * @param height The height in pixels.
+   * @return The current runner instance.
+   */
+  public MatchRunner setPlayfield(int width, int height) {
+    this.width = width;
+    this.height = height;
+    return(this);
+  }
+
+  /**
+   * Retrieves the total number of matches a run plays.
+   * @return The number of settings times players times matches per setting.
+   */
+  public long getMatches() {
+    return(settings.size() * players.size() * matchesPerSetting);
+  }
+
+  /**
+   * Plays every match. This is a blocking call.
+   * @param csv Receives a header and then one line per match, in the order the
+   *            matches finish; may be null.
+   * @return The totals over all matches.
+   * @throws IOException If the CSV cannot be written.
+   * @throws InterruptedException If the calling thread is interrupted; the
+   *                              matches in flight are abandoned.
+   */
+  public MatchSummary run(Writer csv) throws IOException, InterruptedException {
+    MatchSummary summary = new MatchSummary();
+    long matches = getMatches();
+    int maxInFlight = threads * 2;
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "Match Runner " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return(thread);
+    });
+    CompletionService<MatchResult> completion = new ExecutorCompletionService<MatchResult>(executor);
+    long started = System.nanoTime();
+    try {
+      if (csv != null) {
+        csv.write(MatchResult.CSV_HEADER);
+        csv.write(System.lineSeparator());
+      }
+      long submitted = 0;
+      long finished = 0;
+      while (finished < matches) {
+        // Keep every thread busy, but never queue up more than a few matches
+        while ((submitted < matches) && (submitted - finished < maxInFlight)) {
+          completion.submit(createMatch(submitted));
+          submitted++;
+        }
+        MatchResult result = completion.take().get();
+        finished++;
+        summary.add(result);
+        if (csv != null) {
+          csv.write(result.toCsv());
+          csv.write(System.lineSeparator());
+        }
+      }
+      if (csv != null) {
+        csv.flush();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A match failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    summary.setElapsedNanos(System.nanoTime() - started);
+    return(summary);
+  }
+
+  /**
+   * Creates the task that plays a match. Matches cycle through the settings
+   * first and the players second, so a run that is cut short has played all
+   * combinations about equally often.
+   * @param match The number of the match, counting from 0.
+   * @return The task.
+   */
+  private Callable<MatchResult> createMatch(long match) {
+    PongSettings setting = settings.get((int) (match % settings.size()));
+    PongPlayer player = players.get((int) ((match / settings.size()) % players.size()));
+    long matchSeed = seed + match * SEED_INCREMENT;
+    return(() -> play(match, matchSeed, setting, player));
+  }
+
+  /**
+   * Plays a match until the player loses or the time runs out.
+   * @param match The number of the match.
+   * @param matchSeed The seed of the match.
+   * @param setting The rules of the match.
+   * @param player Who plays the player's paddle.
+   * @return The result.
+   */
+  private MatchResult play(long match, long matchSeed, PongSettings setting, PongPlayer player) {
+    long started = System.nanoTime();
+    PongGame game = new PongGame(width, height, matchSeed, setting);
+    Random random = new Random(~matchSeed);
+    InputBuffer input = game.getInputBuffer();
+    long interval = game.getTickInterval();
+    long ticks = 0;
+    game.startMatch();
+    while (!game.isGameover() && (game.getGameTime() < maxGameTime)) {
+      player.play(game, input, random);
+      game.simulate(1, interval);
+      ticks++;
+    }
+    return(new MatchResult(match, matchSeed, setting, player, game, ticks, System.nanoTime() - started));
+  }
+}
@@ -0,0 +1,150 @@
+package edu.uwsp.cnmt110;
+
+import java.util.LongSummaryStatistics;
+
+/**
+ * Running totals over the matches of a {@link MatchRunner}. Results are folded
+ * in as they arrive and then dropped, so the summary stays the same size no
+ * matter how many matches are run.
+ */
+public class MatchSummary {
+  private final LongSummaryStatistics rallyLength = new LongSummaryStatistics();
+  private final LongSummaryStatistics bounces = new LongSummaryStatistics();
+  private final LongSummaryStatistics matchLength = new LongSummaryStatistics();
+  private long matches;
+  private long gameOvers;
+  private long wins;
+  private long ticks;
+  private long matchNanos;
+  private long elapsedNanos;
+
+  /**
+   * Folds the result of a match into the totals.
+   * @param result The result.
+   */
+  void add(MatchResult result) {
+    matches++;
+    ticks += result.getTicks();
+    matchNanos += result.getElapsedNanos();
+    rallyLength.accept(result.getRallyLength());
+    bounces.accept(result.getBounces());
+    if (result.isGameOver()) {
+      gameOvers++;
+      matchLength.accept(result.getMatchLength());
+    } else if (result.isWon()) {
+      wins++;
+    }
+  }
+
+  /**
+   * Sets the wall clock time the whole run took.
+   * @param elapsedNanos The time in nanoseconds.
+   */
+  void setElapsedNanos(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Retrieves the number of matches played.
+   * @return The match count.
+   */
+  public long getMatches() {
+    return(matches);
+  }
+
+  /**
+   * Retrieves the number of matches the player lost.
+   * @return The game over count; the other matches were won or ran out of time.
+   */
+  public long getGameOvers() {
+    return(gameOvers);
+  }
+
+  /**
+   * Retrieves the number of matches the player won because the computer missed.
+   * @return The win count.
+   */
+  public long getWins() {
+    return(wins);
+  }
+
+  /**
+   * Retrieves the number of updates simulated over all matches.
+   * @return The tick count.
+   */
+  public long getTicks() {
+    return(ticks);
+  }
+
+  /**
+   * Retrieves the rally lengths of all matches.
+   * @return The count, sum, minimum, average and maximum.
+   */
+  public LongSummaryStatistics getRallyLength() {
+    return(rallyLength);
+  }
+
+  /**
+   * Retrieves the bounces of all matches.
+   * @return The count, sum, minimum, average and maximum.
+   */
+  public LongSummaryStatistics getBounces() {
+    return(bounces);
+  }
+
+  /**
+   * Retrieves the game time until game over of the matches that were lost.
+   * @return The count, sum, minimum, average and maximum, in milliseconds.
+   */
+  public LongSummaryStatistics getMatchLength() {
+    return(matchLength);
+  }
+
+  /**
+   * Calculates the updates per second simulated by all threads together.
+   * @return The throughput of the run.
+   */
+  public double getTicksPerSecond() {
+    return((elapsedNanos > 0) ? ticks * 1e9 / elapsedNanos : 0);
+  }
+
+  /**
+   * Calculates the updates per second a single match was simulated at.
+   * @return The throughput of one thread.
+   */
+  public double getTicksPerSecondPerMatch() {
+    return((matchNanos > 0) ? ticks * 1e9 / matchNanos : 0);
+  }
+
+  /**
+   * Describes the totals.
+   * @return One line per statistic.
+   */
+  @Override
+  public String toString() {
+    return(String.format("Matches: %d (%d game over, %d won, %d timeout)%n"
+                         + "Rally length: avg %.1f, min %d, max %d%n"
+                         + "Bounces: avg %.1f, min %d, max %d%n"
+                         + "Game over after: avg %.0fms, min %dms, max %dms%n"
+                         + "Ticks: %d, %.0f ticks/s overall, %.0f ticks/s per match",
+                         matches, gameOvers, wins, matches - gameOvers - wins,
+                         rallyLength.getAverage(), min(rallyLength), max(rallyLength),
+                         bounces.getAverage(), min(bounces), max(bounces),
+                         matchLength.getAverage(), min(matchLength), max(matchLength),
+                         ticks, getTicksPerSecond(), getTicksPerSecondPerMatch()));
+  }
+
+  /**
+   * Retrieves the minimum of some statistics, or 0 if there were none.
+   */
+  private static long min(LongSummaryStatistics statistics) {
+    return((statistics.getCount() > 0) ? statistics.getMin() : 0);
+  }
+
+  /**
+   * Retrieves the maximum of some statistics, or 0 if there were none.
+   */
+  private static long max(LongSummaryStatistics statistics) {
+    return((statistics.getCount() > 0) ? statistics.getMax() : 0);
+  }
+}
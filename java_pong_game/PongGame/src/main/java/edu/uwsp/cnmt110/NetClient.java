@@ -0,0 +1,344 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays a Pong match hosted by a {@link NetServer}. The client does not
+ * simulate anything: it sends where the player wants their paddle and draws
+ * the snapshots the server sends back.
+ *
+ * Snapshots arrive only a few times per second, so the client draws the
+ * match slightly in the past: a render clock runs one and a half send
+ * intervals behind the newest snapshot, and every paddle and ball is placed
+ * in between the two snapshots around it. Balls are matched up by their order
+ * in the snapshot, which only changes when a ball is added or removed; those
+ * snapshots are shown without blending.
+ */
+public class NetClient extends Game {
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final int HISTORY = 4;
+  private static final float INTERPOLATION_DELAY = 1.5f;
+  private static final String MESSAGE_GAME_OVER = "GAME OVER";
+
+  private final SocketChannel channel;
+  private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+  private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+  private final NetSnapshot received = new NetSnapshot();
+  private final NetSnapshot[] history = new NetSnapshot[HISTORY];
+  private final List<DrawableSprite> balls = new ArrayList<DrawableSprite>();
+  private int historyCount;
+  private int side = -1;
+  private int serverWidth;
+  private int serverHeight;
+  private long serverTickInterval;
+  private int sendInterval;
+  private float renderTick;
+  private int targetY = -1;
+  private int sentY = -1;
+  private String shownMessage;
+  private DrawableSprite left;
+  private DrawableSprite right;
+  private long bytesSent;
+  private long bytesReceived;
+
+  /**
+   * Connects to a server and waits for an opponent.
+   *
+   * @param host       The host name or address of the server.
+   * @param port       The port of the server.
+   * @param renderMode How the screen is drawn, or HEADLESS for no window.
+   * @throws IOException If the server cannot be reached.
+   */
+  public NetClient(String host, int port, RenderMode renderMode) throws IOException {
+    super("Pong Game", 800, 600, renderMode);
+    for (int index = 0; index < HISTORY; index++) {
+      history[index] = new NetSnapshot();
+    }
+    this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    channel.configureBlocking(false);
+    setMessage("Waiting for an opponent");
+    setLocationRelativeTo(null);
+  }
+
+  @Override
+  public void initialize() {
+    // The paddles and balls come from the server
+  }
+
+  @Override
+  public boolean updatePosition(Sprite sprite, long interval) {
+    // Sprites only move to where the snapshots put them
+    return true;
+  }
+
+  @Override
+  public void getInput(InputSnapshot input, long interval) {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      receive();
+      sendInput(input);
+    } catch (IOException e) {
+      disconnect();
+      return;
+    }
+    present(interval);
+  }
+
+  /**
+   * Retrieves the side this client plays.
+   *
+   * @return {@link NetProtocol#LEFT} or {@link NetProtocol#RIGHT}, or -1 while
+   *         waiting for an opponent.
+   */
+  int getSide() {
+    return(side);
+  }
+
+  /**
+   * Retrieves the state of the match in the newest snapshot.
+   *
+   * @return The ordinal of the game state, or -1 before the first snapshot.
+   */
+  int getState() {
+    return((historyCount > 0) ? history[HISTORY - 1].get(NetSnapshot.STATE) & NetSnapshot.STATE_MASK : -1);
+  }
+
+  /**
+   * Retrieves the balls as currently drawn.
+   *
+   * @return The balls; the list must not be modified.
+   */
+  List<DrawableSprite> getBalls() {
+    return(balls);
+  }
+
+  /**
+   * Retrieves the number of bytes sent to the server.
+   *
+   * @return The byte count.
+   */
+  public long getBytesSent() {
+    return(bytesSent);
+  }
+
+  /**
+   * Retrieves the number of bytes received from the server.
+   *
+   * @return The byte count.
+   */
+  public long getBytesReceived() {
+    return(bytesReceived);
+  }
+
+  /**
+   * Closes the connection to the server.
+   */
+  void disconnect() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // The connection is gone either way
+    }
+    setMessage("Disconnected");
+  }
+
+  /**
+   * Reads and applies everything the server sent since the previous update.
+   */
+  private void receive() throws IOException {
+    int read;
+    while ((read = channel.read(in)) > 0) {
+      bytesReceived += read;
+    }
+    in.flip();
+    int length;
+    while ((length = NetProtocol.nextMessage(in)) >= 0) {
+      int end = in.position() + NetProtocol.LENGTH_SIZE + length;
+      in.position(in.position() + NetProtocol.LENGTH_SIZE);
+      byte type = in.get();
+      if ((type == NetProtocol.HELLO) && (length >= NetProtocol.HELLO_SIZE)) {
+        side = in.get();
+        serverWidth = in.getShort() & 0xffff;
+        serverHeight = in.getShort() & 0xffff;
+        serverTickInterval = in.getShort() & 0xffff;
+        sendInterval = in.getShort() & 0xffff;
+        clearMessage();
+      } else if (type == NetProtocol.SNAPSHOT) {
+        received.decode(in);
+        NetSnapshot recycled = history[0];
+        System.arraycopy(history, 1, history, 0, HISTORY - 1);
+        recycled.copyFrom(received);
+        history[HISTORY - 1] = recycled;
+        historyCount = Math.min(historyCount + 1, HISTORY);
+      }
+      in.position(end);
+    }
+    in.compact();
+    if (read < 0) {
+      throw new IOException("Server closed the connection");
+    }
+  }
+
+  /**
+   * Sends where the player wants their paddle and which buttons they pressed.
+   *
+   * @param input The input of the current update.
+   */
+  private void sendInput(InputSnapshot input) throws IOException {
+    if ((side < 0) || (historyCount == 0)) {
+      return;
+    }
+    int buttons = 0;
+    if (input.wasPressed(KeyEvent.VK_ENTER)) {
+      buttons |= NetProtocol.BUTTON_START;
+    }
+    if (input.wasPressed(KeyEvent.VK_R)) {
+      buttons |= NetProtocol.BUTTON_RESTART;
+    }
+    if (input.hasMouseMoved()) {
+      float y = (input.getMouseY() - getInsets().top) * serverHeight / (float) getPlayHeight();
+      targetY = Math.max(0, Math.min(Math.round(y * NetProtocol.QUANTUM), 0xffff));
+    }
+    int y = targetY;
+    if (y < 0) {
+      y = history[HISTORY - 1].get((side == NetProtocol.LEFT) ? NetSnapshot.PLAYER_Y : NetSnapshot.OPPONENT_Y);
+    }
+    if ((y != sentY || buttons != 0) && (out.remaining() >= NetProtocol.LENGTH_SIZE + NetProtocol.INPUT_SIZE)) {
+      int start = NetProtocol.beginMessage(out);
+      out.put(NetProtocol.INPUT).putShort((short) y).put((byte) buttons);
+      NetProtocol.endMessage(out, start);
+      sentY = y;
+    }
+    if (out.position() > 0) {
+      out.flip();
+      bytesSent += channel.write(out);
+      out.compact();
+    }
+  }
+
+  /**
+   * Places the paddles and balls in between the snapshots around the render
+   * clock, and shows the message of the newest snapshot.
+   *
+   * @param interval The amount of time that has passed since the last update.
+   */
+  private void present(long interval) {
+    if (historyCount == 0) {
+      return;
+    }
+    NetSnapshot newest = history[HISTORY - 1];
+    float target = newest.getTick() - sendInterval * INTERPOLATION_DELAY;
+    renderTick += interval / (float) serverTickInterval;
+    if (Math.abs(renderTick - target) > 2 * sendInterval) {
+      // Too far ahead or behind, such as after a stall: start over
+      renderTick = target;
+    }
+
+    NetSnapshot from = null;
+    NetSnapshot to = null;
+    for (int index = HISTORY - historyCount; index < HISTORY; index++) {
+      if (history[index].getTick() <= renderTick) {
+        from = history[index];
+      } else {
+        to = history[index];
+        break;
+      }
+    }
+    if (from == null) {
+      from = to;
+    } else if (to == null) {
+      to = from;
+    }
+    float alpha = (to == from) ? 1 : (renderTick - from.getTick()) / (to.getTick() - from.getTick());
+
+    float scaleX = getPlayWidth() / (float) serverWidth / NetProtocol.QUANTUM;
+    float scaleY = getPlayHeight() / (float) serverHeight / NetProtocol.QUANTUM;
+    if (left == null) {
+      int width = Math.round(to.get(NetSnapshot.BAR_WIDTH) * scaleX);
+      int height = Math.round(to.get(NetSnapshot.BAR_HEIGHT) * scaleY);
+      left = new DrawableSprite(0, 0, width, height, 0, 0);
+      left.setColor(new Color(0, 255, 0));
+      right = new DrawableSprite(0, 0, width, height, 0, 0);
+      right.setColor(new Color(0, 0, 255));
+      addSprite(left);
+      addSprite(right);
+    }
+    place(left, from, to, NetSnapshot.PLAYER_X, NetSnapshot.PLAYER_Y, alpha, scaleX, scaleY);
+    place(right, from, to, NetSnapshot.OPPONENT_X, NetSnapshot.OPPONENT_Y, alpha, scaleX, scaleY);
+
+    int count = to.getBallCount();
+    while (balls.size() < count) {
+      DrawableSprite ball = spawnSprite(DrawableSprite.class, () -> new DrawableSprite(0, 0, 0, 0, 0, 0));
+      ball.reset(0, 0, Math.round(to.get(NetSnapshot.BALL_WIDTH) * scaleX),
+                 Math.round(to.get(NetSnapshot.BALL_HEIGHT) * scaleY), 0, 0);
+      ball.setColor(new Color(getRandom().nextInt(255), getRandom().nextInt(255), getRandom().nextInt(255)));
+      balls.add(ball);
+    }
+    while (balls.size() > count) {
+      recycleSprite(balls.remove(balls.size() - 1));
+    }
+    boolean blend = from.getBallCount() == count;
+    for (int ball = 0; ball < count; ball++) {
+      float x = to.getBallX(ball);
+      float y = to.getBallY(ball);
+      if (blend) {
+        x = from.getBallX(ball) + (x - from.getBallX(ball)) * alpha;
+        y = from.getBallY(ball) + (y - from.getBallY(ball)) * alpha;
+      }
+      balls.get(ball).moveTo(Math.round(x * scaleX), Math.round(y * scaleY));
+    }
+
+    String message = newest.getMessage();
+    int state = newest.get(NetSnapshot.STATE);
+    if (((state & NetSnapshot.STATE_MASK) == GameState.GameOver.ordinal()) && MESSAGE_GAME_OVER.equals(message)) {
+      int loser = state >> NetSnapshot.LOSER_SHIFT;
+      boolean lost = (loser == NetSnapshot.LOSER_PLAYER) == (side == NetProtocol.LEFT);
+      message = (lost) ? "YOU LOSE" : "YOU WIN";
+    }
+    if ((message == null) ? (shownMessage != null) : !message.equals(shownMessage)) {
+      shownMessage = message;
+      if (message == null) {
+        clearMessage();
+      } else {
+        setMessage(message);
+      }
+    }
+  }
+
+  /**
+   * Moves a paddle in between two snapshots.
+   */
+  private static void place(Sprite paddle, NetSnapshot from, NetSnapshot to, int fieldX, int fieldY, float alpha,
+                            float scaleX, float scaleY) {
+    float x = from.get(fieldX) + (to.get(fieldX) - from.get(fieldX)) * alpha;
+    float y = from.get(fieldY) + (to.get(fieldY) - from.get(fieldY)) * alpha;
+    paddle.moveTo(Math.round(x * scaleX), Math.round(y * scaleY));
+  }
+
+  /**
+   * Retrieves the width of the play area inside the window borders.
+   */
+  private int getPlayWidth() {
+    Insets insets = getInsets();
+    return(getWidth() - insets.left - insets.right);
+  }
+
+  /**
+   * Retrieves the height of the play area inside the window borders.
+   */
+  private int getPlayHeight() {
+    Insets insets = getInsets();
+    return(getHeight() - insets.top - insets.bottom);
+  }
+}
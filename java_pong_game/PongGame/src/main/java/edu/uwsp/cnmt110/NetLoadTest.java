@@ -0,0 +1,212 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays many network matches on the loopback interface to measure what they
+ * cost: how long the server takes to update all matches and how many bytes
+ * each client sends and receives per second. The server runs on its own
+ * thread; every client is a headless {@link NetClient} played by a bot, all
+ * of them updated in turn on the calling thread.
+ */
+public class NetLoadTest {
+  private static final int DEFAULT_MATCHES = 24;
+  private static final long DEFAULT_WARMUP = 2000;
+  private static final long DEFAULT_DURATION = 10000;
+  private static final int DEFAULT_SEND_RATE = 20;
+  private static final long CONNECT_TIMEOUT = 10000;
+  private static final int REACTION = 5;
+
+  private int matches = DEFAULT_MATCHES;
+  private long warmup = DEFAULT_WARMUP;
+  private long duration = DEFAULT_DURATION;
+  private int sendRate = DEFAULT_SEND_RATE;
+
+  /**
+   * Sets the number of matches played at the same time.
+   * @param matches The match count, at least 1.
+   * @return The current load test instance.
+   */
+  public NetLoadTest setMatches(int matches) {
+    if (matches < 1) {
+      throw new IllegalArgumentException("matches must be at least 1");
+    }
+    this.matches = matches;
+    return(this);
+  }
+
+  /**
+   * Sets how long the matches are played before and while measuring.
+   * @param warmup The time in milliseconds before measuring.
+   * @param duration The time in milliseconds to measure, at least 1.
+   * @return The current load test instance.
+   */
+  public NetLoadTest setDuration(long warmup, long duration) {
+    if ((warmup < 0) || (duration < 1)) {
+      throw new IllegalArgumentException("warmup must be at least 0ms and duration at least 1ms");
+    }
+    this.warmup = warmup;
+    this.duration = duration;
+    return(this);
+  }
+
+  /**
+   * Sets how many snapshots per second the server sends each client.
+   * @param sendRate The number of snapshots per second, at least 1.
+   * @return The current load test instance.
+   */
+  public NetLoadTest setSendRate(int sendRate) {
+    if (sendRate < 1) {
+      throw new IllegalArgumentException("sendRate must be at least 1");
+    }
+    this.sendRate = sendRate;
+    return(this);
+  }
+
+  /**
+   * Runs the load test and prints what it measured. This is a blocking call.
+   * @param report Receives the results.
+   * @throws IOException If the server cannot be started or a client cannot connect.
+   * @throws InterruptedException If the calling thread is interrupted.
+   */
+  public void run(PrintStream report) throws IOException, InterruptedException {
+    NetServer server = new NetServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+        .setSendRate(sendRate);
+    Thread serverThread = new Thread(() -> {
+      try {
+        server.run();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, "Net Server");
+    serverThread.setDaemon(true);
+    serverThread.start();
+
+    List<Bot> bots = new ArrayList<Bot>();
+    try {
+      Random random = new Random();
+      for (int index = 0; index < matches * 2; index++) {
+        bots.add(new Bot(new NetClient(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                                       RenderMode.HEADLESS), random.nextLong()));
+      }
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT);
+      while (server.getMatches() < matches) {
+        if (System.nanoTime() - deadline > 0) {
+          throw new IOException("Only " + server.getMatches() + " of " + matches + " matches started");
+        }
+        Thread.sleep(10);
+      }
+
+      play(bots, warmup);
+      server.resetStatistics();
+      long sent = 0;
+      long received = 0;
+      for (Bot bot : bots) {
+        sent -= bot.client.getBytesSent();
+        received -= bot.client.getBytesReceived();
+      }
+      long started = System.nanoTime();
+      play(bots, duration);
+      double seconds = (System.nanoTime() - started) / 1e9;
+      for (Bot bot : bots) {
+        sent += bot.client.getBytesSent();
+        received += bot.client.getBytesReceived();
+      }
+
+      LatencyHistogram cost = server.getTickCost();
+      int clients = bots.size();
+      double snapshots = clients * seconds * 1000.0 / (server.getSendInterval() * bots.get(0).client.getTickInterval());
+      report.printf("Matches: %d, clients: %d, %d snapshots/s per client, measured for %.1fs%n",
+                    server.getMatches(), clients, sendRate, seconds);
+      report.printf("Server tick: p50 %.1fus, p99 %.1fus, p99.9 %.1fus, max %.1fus (%.2fus per match at p50)%n",
+                    cost.getPercentile(50) / 1e3, cost.getPercentile(99) / 1e3, cost.getPercentile(99.9) / 1e3,
+                    cost.getMax() / 1e3, cost.getPercentile(50) / 1e3 / server.getMatches());
+      report.printf("Per client: %.0f B/s down, %.0f B/s up, %.1f bytes per snapshot%n",
+                    received / seconds / clients, sent / seconds / clients, received / snapshots);
+      report.printf("Server: %.0f B/s sent, %.0f B/s received, %d snapshots skipped%n",
+                    server.getBytesSent() / seconds, server.getBytesReceived() / seconds,
+                    server.getSkippedSnapshots());
+    } finally {
+      for (Bot bot : bots) {
+        bot.client.disconnect();
+      }
+      server.stop();
+      serverThread.join();
+    }
+  }
+
+  /**
+   * Updates every client once per tick interval for a while.
+   * @param bots The bots and their clients.
+   * @param millis How long to play, in milliseconds.
+   */
+  private static void play(List<Bot> bots, long millis) {
+    long step = TimeUnit.MILLISECONDS.toNanos(bots.get(0).client.getTickInterval());
+    long next = System.nanoTime();
+    long end = next + TimeUnit.MILLISECONDS.toNanos(millis);
+    while (next - end < 0) {
+      for (Bot bot : bots) {
+        bot.play();
+      }
+      next += step;
+      LockSupport.parkNanos(next - System.nanoTime());
+    }
+  }
+
+  /**
+   * Plays a client: follows the ball nearest to its side, looking only now and
+   * then, and asks for a rematch whenever a match is lost.
+   */
+  private static class Bot {
+    final NetClient client;
+    final Random random;
+    boolean restarted;
+
+    /**
+     * Creates an instance of the Bot class.
+     * @param client The client to play.
+     * @param seed The seed of the bot's decisions.
+     */
+    Bot(NetClient client, long seed) {
+      this.client = client;
+      this.random = new Random(seed);
+    }
+
+    /**
+     * Decides on the input of the client and updates it once.
+     */
+    void play() {
+      InputBuffer input = client.getInputBuffer();
+      int state = client.getState();
+      if ((state == GameState.GameOver.ordinal()) && !restarted) {
+        input.press(KeyEvent.VK_R);
+        input.release(KeyEvent.VK_R);
+        restarted = true;
+      } else if (state == GameState.Started.ordinal()) {
+        restarted = false;
+      }
+
+      DrawableSprite nearest = null;
+      boolean leftSide = client.getSide() == NetProtocol.LEFT;
+      for (DrawableSprite ball : client.getBalls()) {
+        if ((nearest == null) || ((ball.getX() < nearest.getX()) == leftSide)) {
+          nearest = ball;
+        }
+      }
+      if ((nearest != null) && (random.nextInt(REACTION) == 0)) {
+        input.moveMouse(0, nearest.getY() + client.getInsets().top);
+      }
+      client.simulate(1, client.getTickInterval());
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package edu.uwsp.cnmt110;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The messages a {@link NetServer} and its {@link NetClient}s exchange over
+ * TCP. Every message is framed as an unsigned 16 bit length, followed by that
+ * many bytes: a type byte and the payload.
+ * <pre>
+ * HELLO    server to client  side:byte width:short height:short tickInterval:short
+ *                            sendInterval:short quantum:byte
+ * SNAPSHOT server to client  see {@link NetSnapshot#encode(NetSnapshot, ByteBuffer)}
+ * INPUT    client to server  y:short buttons:byte
+ * </pre>
+ * Positions are in play area pixels of the server, multiplied by
+ * {@link #QUANTUM}.
+ */
+final class NetProtocol {
+  static final int DEFAULT_PORT = 7777;
+
+  static final byte HELLO = 1;
+  static final byte SNAPSHOT = 2;
+  static final byte INPUT = 3;
+
+  static final int LEFT = 0;
+  static final int RIGHT = 1;
+
+  static final int BUTTON_START = 1;
+  static final int BUTTON_RESTART = 2;
+
+  static final int QUANTUM = 4;
+  static final int LENGTH_SIZE = 2;
+  static final int MAX_MESSAGE = 0xffff;
+  static final int HELLO_SIZE = 1 + 1 + 2 + 2 + 2 + 2 + 1;
+  static final int INPUT_SIZE = 1 + 2 + 1;
+
+  private NetProtocol() {
+  }
+
+  /**
+   * Reserves room for the length of a message that is about to be written.
+   * @param out The buffer to write to.
+   * @return The position of the length, for {@link #endMessage(ByteBuffer, int)}.
+   */
+  static int beginMessage(ByteBuffer out) {
+    int start = out.position();
+    out.putShort((short) 0);
+    return(start);
+  }
+
+  /**
+   * Fills in the length of a message once it has been written.
+   * @param out The buffer the message was written to.
+   * @param start The position returned by {@link #beginMessage(ByteBuffer)}.
+   */
+  static void endMessage(ByteBuffer out, int start) {
+    int length = out.position() - start - LENGTH_SIZE;
+    if (length > MAX_MESSAGE) {
+      throw new IllegalStateException("Message too long: " + length);
+    }
+    out.putShort(start, (short) length);
+  }
+
+  /**
+   * Retrieves the length of the next complete message in a buffer that is
+   * ready to be read, without consuming it.
+   * @param in The buffer to read from.
+   * @return The length of the message after its length field, or -1 if the
+   *         message has not been received completely yet.
+   */
+  static int nextMessage(ByteBuffer in) {
+    if (in.remaining() < LENGTH_SIZE) {
+      return(-1);
+    }
+    int length = in.getShort(in.position()) & 0xffff;
+    return((in.remaining() - LENGTH_SIZE >= length) ? length : -1);
+  }
+
+  /**
+   * Writes an unsigned variable length number, seven bits per byte.
+   * @param out The buffer to write to.
+   * @param value The value.
+   */
+  static void putVarInt(ByteBuffer out, int value) {
+    while ((value & ~0x7f) != 0) {
+      out.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  /**
+   * Reads an unsigned variable length number.
+   * @param in The buffer to read from.
+   * @return The value.
+   */
+  static int getVarInt(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte current = in.get();
+      value |= (current & 0x7f) << shift;
+      if (current >= 0) {
+        return(value);
+      }
+    }
+    throw new BufferUnderflowException();
+  }
+
+  /**
+   * Maps a signed number to an unsigned one so small negatives stay short.
+   * @param value The value.
+   * @return The zigzag encoded value.
+   */
+  static int zigzag(int value) {
+    return((value << 1) ^ (value >> 31));
+  }
+
+  /**
+   * Reverses the zigzag encoding of a signed number.
+   * @param value The encoded value.
+   * @return The signed value.
+   */
+  static int unzigzag(int value) {
+    return((value >>> 1) ^ -(value & 1));
+  }
+}
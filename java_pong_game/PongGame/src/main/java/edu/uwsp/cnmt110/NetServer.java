@@ -0,0 +1,511 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs two player Pong matches for {@link NetClient}s over TCP. The server is
+ * authoritative: it simulates every match itself, headless, and the clients
+ * only send where they want their paddle and draw what they are sent.
+ *
+ * A single thread does all the work. It waits on a {@link Selector} for new
+ * connections and for input until the next update is due, then updates every
+ * match with a fixed timestep. Clients are paired in the order they connect;
+ * the first of a pair plays the left paddle. Every few updates each client is
+ * sent a delta compressed {@link NetSnapshot} of its match. A client that
+ * cannot keep up skips snapshots rather than making the server buffer them.
+ */
+public class NetServer {
+  private static final long DEFAULT_TICK_INTERVAL = 10;
+  private static final int DEFAULT_SEND_RATE = 20;
+  private static final int DEFAULT_WIDTH = 800;
+  private static final int DEFAULT_HEIGHT = 600;
+  private static final int MAX_CATCH_UP_TICKS = 5;
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final ServerSocketChannel serverChannel;
+  private final Selector selector;
+  private final List<Match> matches = new ArrayList<Match>();
+  private final Random random = new Random();
+  private final LatencyHistogram tickCost = new LatencyHistogram();
+  private PongSettings settings = new PongSettings().setTwoPlayer(true);
+  private long tickInterval = DEFAULT_TICK_INTERVAL;
+  private int sendInterval;
+  private Connection waiting;
+  private volatile boolean running;
+  private volatile boolean resetRequested;
+  private volatile int clients;
+  private volatile int matchCount;
+  private volatile long ticks;
+  private volatile long bytesSent;
+  private volatile long bytesReceived;
+  private volatile long skippedSnapshots;
+
+  /**
+   * Creates a server listening on the specified address.
+   * @param address The address to listen on; port 0 picks a free port.
+   * @throws IOException If the address cannot be bound.
+   */
+  public NetServer(InetSocketAddress address) throws IOException {
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.bind(address);
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      serverChannel.close();
+      selector.close();
+      throw e;
+    }
+    setSendRate(DEFAULT_SEND_RATE);
+  }
+
+  /**
+   * Retrieves the port the server listens on.
+   * @return The local port.
+   * @throws IOException If the port cannot be determined.
+   */
+  public int getPort() throws IOException {
+    return(((InetSocketAddress) serverChannel.getLocalAddress()).getPort());
+  }
+
+  /**
+   * Sets the rules of the matches started from now on. The right paddle is
+   * always played by the second client.
+   * @param settings The settings.
+   * @return The current server instance.
+   */
+  public NetServer setSettings(PongSettings settings) {
+    this.settings = new PongSettings(settings).setTwoPlayer(true);
+    return(this);
+  }
+
+  /**
+   * Sets how many snapshots per second each client is sent, rounded to a
+   * whole number of updates in between.
+   * @param sendRate The number of snapshots per second, at least 1.
+   * @return The current server instance.
+   */
+  public NetServer setSendRate(int sendRate) {
+    if (sendRate < 1) {
+      throw new IllegalArgumentException("sendRate must be at least 1");
+    }
+    this.sendInterval = (int) Math.max(1, Math.round(1000.0 / (sendRate * tickInterval)));
+    return(this);
+  }
+
+  /**
+   * Retrieves the number of updates between two snapshots sent to a client.
+   * @return The send interval in ticks.
+   */
+  public int getSendInterval() {
+    return(sendInterval);
+  }
+
+  /**
+   * Retrieves the number of connected clients.
+   * @return The client count, including one waiting for an opponent.
+   */
+  public int getClients() {
+    return(clients);
+  }
+
+  /**
+   * Retrieves the number of matches being played.
+   * @return The match count.
+   */
+  public int getMatches() {
+    return(matchCount);
+  }
+
+  /**
+   * Retrieves the number of updates run since the server started.
+   * @return The tick count.
+   */
+  public long getTicks() {
+    return(ticks);
+  }
+
+  /**
+   * Retrieves how long each update of all matches together took, including
+   * sending the snapshots.
+   * @return The histogram, in nanoseconds.
+   */
+  public LatencyHistogram getTickCost() {
+    return(tickCost);
+  }
+
+  /**
+   * Retrieves the number of bytes sent to all clients.
+   * @return The byte count.
+   */
+  public long getBytesSent() {
+    return(bytesSent);
+  }
+
+  /**
+   * Retrieves the number of bytes received from all clients.
+   * @return The byte count.
+   */
+  public long getBytesReceived() {
+    return(bytesReceived);
+  }
+
+  /**
+   * Retrieves the number of snapshots not sent because a client fell behind.
+   * @return The snapshot count.
+   */
+  public long getSkippedSnapshots() {
+    return(skippedSnapshots);
+  }
+
+  /**
+   * Clears the tick cost and the byte counts. The server thread does this
+   * before its next update, so it may be called from any thread.
+   */
+  public void resetStatistics() {
+    resetRequested = true;
+  }
+
+  /**
+   * Runs the server until {@link #stop()} is called. This is a blocking call;
+   * every connection is closed when it returns.
+   * @throws IOException If the selector fails.
+   */
+  public void run() throws IOException {
+    running = true;
+    long step = TimeUnit.MILLISECONDS.toNanos(tickInterval);
+    long next = System.nanoTime() + step;
+    try {
+      while (running) {
+        long wait = next - System.nanoTime();
+        if (wait > 0) {
+          selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+        } else {
+          selector.selectNow();
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          handle(key);
+        }
+
+        // Fixed timestep for every match, dropping time we cannot catch up on
+        long now = System.nanoTime();
+        for (int caughtUp = 0; (now - next >= 0) && (caughtUp < MAX_CATCH_UP_TICKS); caughtUp++) {
+          tick();
+          next += step;
+        }
+        if (now - next >= 0) {
+          next = now + step;
+        }
+      }
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+      matches.clear();
+      waiting = null;
+      clients = 0;
+      matchCount = 0;
+    }
+  }
+
+  /**
+   * Stops the server. May be called from any thread.
+   */
+  public void stop() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * Handles a channel that is ready.
+   * @param key The key of the channel.
+   */
+  private void handle(SelectionKey key) throws IOException {
+    if (!key.isValid()) {
+      return;
+    }
+    if (key.isAcceptable()) {
+      accept();
+      return;
+    }
+    Connection connection = (Connection) key.attachment();
+    try {
+      if (key.isReadable()) {
+        read(connection);
+      }
+      if (key.isValid() && key.isWritable()) {
+        flush(connection);
+      }
+    } catch (IOException e) {
+      close(connection);
+    }
+  }
+
+  /**
+   * Accepts a new client and pairs it with the one waiting, if there is one.
+   */
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    Connection connection = new Connection(channel);
+    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    clients++;
+    if (waiting == null) {
+      waiting = connection;
+    } else {
+      Match match = new Match(waiting, connection);
+      waiting = null;
+      matches.add(match);
+      matchCount = matches.size();
+    }
+  }
+
+  /**
+   * Reads and applies the input a client sent.
+   * @param connection The client.
+   */
+  private void read(Connection connection) throws IOException {
+    int read = connection.channel.read(connection.in);
+    if (read < 0) {
+      close(connection);
+      return;
+    }
+    bytesReceived += read;
+    connection.in.flip();
+    int length;
+    while ((length = NetProtocol.nextMessage(connection.in)) >= 0) {
+      int end = connection.in.position() + NetProtocol.LENGTH_SIZE + length;
+      connection.in.position(connection.in.position() + NetProtocol.LENGTH_SIZE);
+      if ((length >= NetProtocol.INPUT_SIZE) && (connection.in.get() == NetProtocol.INPUT)
+          && (connection.match != null)) {
+        int y = connection.in.getShort() & 0xffff;
+        int buttons = connection.in.get();
+        connection.match.input(connection, y / NetProtocol.QUANTUM, buttons);
+      }
+      connection.in.position(end);
+    }
+    connection.in.compact();
+    if (!connection.in.hasRemaining()) {
+      // A message longer than the buffer is not a message of ours
+      close(connection);
+    }
+  }
+
+  /**
+   * Updates every match once and, when due, sends each client a snapshot.
+   */
+  private void tick() {
+    if (resetRequested) {
+      resetRequested = false;
+      tickCost.reset();
+      bytesSent = 0;
+      bytesReceived = 0;
+      skippedSnapshots = 0;
+    }
+    long started = System.nanoTime();
+    ticks++;
+    boolean send = (ticks % sendInterval) == 0;
+    for (int index = matches.size() - 1; index >= 0; index--) {
+      Match match = matches.get(index);
+      match.tick();
+      if (send) {
+        match.snapshot.capture(match.game, ticks);
+        send(match.left, match.snapshot);
+        send(match.right, match.snapshot);
+      }
+    }
+    tickCost.record(System.nanoTime() - started);
+  }
+
+  /**
+   * Queues a snapshot for a client and writes out as much as the socket takes.
+   * @param connection The client.
+   * @param snapshot The snapshot of its match.
+   */
+  private void send(Connection connection, NetSnapshot snapshot) {
+    if (connection.match == null) {
+      return;
+    }
+    int worst = NetProtocol.LENGTH_SIZE + 1 + 5 + 5 + 1 + (snapshot.getBallCount() * 2 + NetSnapshot.BALLS) * 6
+                + 5 + NetSnapshot.MAX_MESSAGE_BYTES;
+    if (connection.out.remaining() < worst) {
+      skippedSnapshots++;
+      return;
+    }
+    int start = NetProtocol.beginMessage(connection.out);
+    connection.out.put(NetProtocol.SNAPSHOT);
+    NetSnapshot.encode(snapshot, connection.sent, connection.out);
+    NetProtocol.endMessage(connection.out, start);
+    try {
+      flush(connection);
+    } catch (IOException e) {
+      close(connection);
+    }
+  }
+
+  /**
+   * Writes out as much of what is queued for a client as the socket takes,
+   * and waits for the socket to become writable if something is left.
+   * @param connection The client.
+   */
+  private void flush(Connection connection) throws IOException {
+    connection.out.flip();
+    bytesSent += connection.channel.write(connection.out);
+    connection.out.compact();
+    int ops = (connection.out.position() > 0) ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+    if (connection.key.interestOps() != ops) {
+      connection.key.interestOps(ops);
+    }
+  }
+
+  /**
+   * Disconnects a client. Its match ends, and its opponent is disconnected too.
+   * @param connection The client.
+   */
+  private void close(Connection connection) {
+    if (!connection.channel.isOpen()) {
+      return;
+    }
+    connection.key.cancel();
+    try {
+      connection.channel.close();
+    } catch (IOException e) {
+      // The connection is gone either way
+    }
+    clients--;
+    if (waiting == connection) {
+      waiting = null;
+    }
+    Match match = connection.match;
+    if (match != null) {
+      matches.remove(match);
+      matchCount = matches.size();
+      match.left.match = null;
+      match.right.match = null;
+      close((connection == match.left) ? match.right : match.left);
+    }
+  }
+
+  /**
+   * A connected client.
+   */
+  private static class Connection {
+    final SocketChannel channel;
+    final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    final NetSnapshot sent = new NetSnapshot();
+    SelectionKey key;
+    Match match;
+
+    /**
+     * Creates an instance of the Connection class.
+     * @param channel The socket of the client.
+     */
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * A match between two clients.
+   */
+  private class Match {
+    final Connection left;
+    final Connection right;
+    final PongGame game;
+    final NetSnapshot snapshot = new NetSnapshot();
+    int opponentY = -1;
+
+    /**
+     * Starts a match and tells both clients which side they play.
+     * @param left The client that plays the left paddle.
+     * @param right The client that plays the right paddle.
+     */
+    Match(Connection left, Connection right) {
+      this.left = left;
+      this.right = right;
+      this.game = new PongGame(DEFAULT_WIDTH, DEFAULT_HEIGHT, random.nextLong(), settings);
+      game.setTickInterval(tickInterval);
+      left.match = this;
+      right.match = this;
+      hello(left, NetProtocol.LEFT);
+      hello(right, NetProtocol.RIGHT);
+      press(KeyEvent.VK_ENTER);
+    }
+
+    /**
+     * Tells a client the side it plays and how the match is run.
+     * @param connection The client.
+     * @param side The side, {@link NetProtocol#LEFT} or {@link NetProtocol#RIGHT}.
+     */
+    private void hello(Connection connection, int side) {
+      int start = NetProtocol.beginMessage(connection.out);
+      connection.out.put(NetProtocol.HELLO).put((byte) side)
+                    .putShort((short) game.getWidth()).putShort((short) game.getHeight())
+                    .putShort((short) tickInterval).putShort((short) sendInterval)
+                    .put((byte) NetProtocol.QUANTUM);
+      NetProtocol.endMessage(connection.out, start);
+    }
+
+    /**
+     * Applies the input of a client.
+     * @param connection The client.
+     * @param y The desired center of its paddle, in pixels.
+     * @param buttons The buttons pressed, such as {@link NetProtocol#BUTTON_START}.
+     */
+    void input(Connection connection, int y, int buttons) {
+      if (connection == left) {
+        game.getInputBuffer().moveMouse(0, y + game.getInsets().top);
+      } else {
+        opponentY = y;
+      }
+      if ((buttons & NetProtocol.BUTTON_START) != 0) {
+        press(KeyEvent.VK_ENTER);
+      }
+      if ((buttons & NetProtocol.BUTTON_RESTART) != 0) {
+        press(KeyEvent.VK_R);
+      }
+    }
+
+    /**
+     * Presses and releases a key of the match.
+     * @param keyCode The key.
+     */
+    private void press(int keyCode) {
+      game.getInputBuffer().press(keyCode);
+      game.getInputBuffer().release(keyCode);
+    }
+
+    /**
+     * Updates the match once.
+     */
+    void tick() {
+      if (opponentY >= 0) {
+        game.moveOpponent(opponentY);
+      }
+      game.simulate(1, tickInterval);
+    }
+  }
+}
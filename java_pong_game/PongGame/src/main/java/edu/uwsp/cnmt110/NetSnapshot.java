@@ -0,0 +1,272 @@
+package edu.uwsp.cnmt110;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * What a network client needs to draw a Pong match: the state of the match,
+ * the size and position of both paddles and of every ball, and the message,
+ * with positions quantized to 1 / {@link NetProtocol#QUANTUM} of a pixel.
+ *
+ * A snapshot goes over the wire as the difference to the one sent before it
+ * on the same connection. TCP delivers every snapshot in order, so the
+ * receiver always holds that previous snapshot and no acknowledgements are
+ * needed. Values that did not change cost a bit, the others a zigzag varint
+ * of their change:
+ * <pre>
+ * tickDelta:varint size:varint flags:byte changed:bit[size] (change:varint)* [message]
+ * </pre>
+ */
+class NetSnapshot {
+  static final int STATE = 0;
+  static final int BAR_WIDTH = 1;
+  static final int BAR_HEIGHT = 2;
+  static final int BALL_WIDTH = 3;
+  static final int BALL_HEIGHT = 4;
+  static final int PLAYER_X = 5;
+  static final int PLAYER_Y = 6;
+  static final int OPPONENT_X = 7;
+  static final int OPPONENT_Y = 8;
+  static final int BALLS = 9;
+
+  static final int STATE_MASK = 0x3;
+  static final int LOSER_SHIFT = 2;
+  static final int LOSER_PLAYER = 1;
+  static final int LOSER_OPPONENT = 2;
+  static final int MAX_MESSAGE_BYTES = 256; // longer messages are cut short
+
+  private static final int MESSAGE_CHANGED = 1;
+
+  private int[] values = new int[BALLS + 2 * 8];
+  private int size = BALLS;
+  private long tick;
+  private String message;
+
+  /**
+   * Retrieves the server tick the snapshot was taken at.
+   * @return The tick count.
+   */
+  long getTick() {
+    return(tick);
+  }
+
+  /**
+   * Retrieves a value.
+   * @param field The field, such as {@link #PLAYER_Y}.
+   * @return The value; positions and sizes are quantized.
+   */
+  int get(int field) {
+    return(values[field]);
+  }
+
+  /**
+   * Retrieves the number of balls in play.
+   * @return The ball count.
+   */
+  int getBallCount() {
+    return((size - BALLS) / 2);
+  }
+
+  /**
+   * Retrieves the center of a ball on the horizontal axis.
+   * @param ball The ball, counting from 0.
+   * @return The quantized position.
+   */
+  int getBallX(int ball) {
+    return(values[BALLS + 2 * ball]);
+  }
+
+  /**
+   * Retrieves the center of a ball on the vertical axis.
+   * @param ball The ball, counting from 0.
+   * @return The quantized position.
+   */
+  int getBallY(int ball) {
+    return(values[BALLS + 2 * ball + 1]);
+  }
+
+  /**
+   * Retrieves the message overlaid on the screen.
+   * @return The message, or null if there is none.
+   */
+  String getMessage() {
+    return(message);
+  }
+
+  /**
+   * Takes a snapshot of a Pong match.
+   * @param game The game to capture.
+   * @param tick The server tick of the game.
+   */
+  void capture(PongGame game, long tick) {
+    this.tick = tick;
+    int loser = 0;
+    if (game.getLoser() == game.player) {
+      loser = LOSER_PLAYER;
+    } else if (game.getLoser() == game.computer) {
+      loser = LOSER_OPPONENT;
+    }
+    values[STATE] = game.curState.ordinal() | (loser << LOSER_SHIFT);
+    values[BAR_WIDTH] = game.BarWidth * NetProtocol.QUANTUM;
+    values[BAR_HEIGHT] = game.BarHeight * NetProtocol.QUANTUM;
+    values[BALL_WIDTH] = game.BallWidth * NetProtocol.QUANTUM;
+    values[BALL_HEIGHT] = game.BallHeight * NetProtocol.QUANTUM;
+    values[PLAYER_X] = quantize(game.player.getExactX());
+    values[PLAYER_Y] = quantize(game.player.getExactY());
+    values[OPPONENT_X] = quantize(game.computer.getExactX());
+    values[OPPONENT_Y] = quantize(game.computer.getExactY());
+    int count = BALLS;
+    for (int index = 0; index < game.getSpriteCount(); index++) {
+      Sprite sprite = game.getSpriteAt(index);
+      if (sprite.hasTag(game.BallTag)) {
+        count = ensureSize(count + 2);
+        values[count - 2] = quantize(sprite.getExactX());
+        values[count - 1] = quantize(sprite.getExactY());
+      }
+    }
+    resize(count);
+    message = truncate(game.getMessage());
+  }
+
+  /**
+   * Cuts a message short so that it fits {@link #MAX_MESSAGE_BYTES} in UTF-8,
+   * without splitting a character.
+   * @param text The message, or null.
+   * @return The message, or as much of it as fits.
+   */
+  static String truncate(String text) {
+    // no character takes more than 3 bytes per char of the string
+    if ((text == null) || (text.length() <= MAX_MESSAGE_BYTES / 3)) {
+      return(text);
+    }
+    int bytes = 0;
+    int end = 0;
+    while (end < text.length()) {
+      int codePoint = text.codePointAt(end);
+      int length = (codePoint < 0x80) ? 1 : (codePoint < 0x800) ? 2 : (codePoint < 0x10000) ? 3 : 4;
+      if (bytes + length > MAX_MESSAGE_BYTES) {
+        break;
+      }
+      bytes += length;
+      end += Character.charCount(codePoint);
+    }
+    return((end == text.length()) ? text : text.substring(0, end));
+  }
+
+  /**
+   * Makes this snapshot a copy of another one.
+   * @param snapshot The snapshot to copy.
+   */
+  void copyFrom(NetSnapshot snapshot) {
+    ensureSize(snapshot.size);
+    System.arraycopy(snapshot.values, 0, values, 0, snapshot.size);
+    resize(snapshot.size);
+    tick = snapshot.tick;
+    message = snapshot.message;
+  }
+
+  /**
+   * Writes a snapshot as its difference to the previous one.
+   * @param current The snapshot to write.
+   * @param previous The snapshot the receiver holds, which is updated to the
+   *                 current one.
+   * @param out The buffer to write to.
+   */
+  static void encode(NetSnapshot current, NetSnapshot previous, ByteBuffer out) {
+    NetProtocol.putVarInt(out, (int) (current.tick - previous.tick));
+    NetProtocol.putVarInt(out, current.size);
+    boolean messageChanged = (current.message == null) ? (previous.message != null)
+                                                        : !current.message.equals(previous.message);
+    out.put((byte) ((messageChanged) ? MESSAGE_CHANGED : 0));
+
+    int masks = out.position();
+    for (int index = 0; index < current.size; index += 8) {
+      out.put((byte) 0);
+    }
+    previous.ensureSize(current.size);
+    for (int index = 0; index < current.size; index++) {
+      int change = current.values[index] - previous.values[index];
+      if (change != 0) {
+        out.put(masks + (index >> 3), (byte) (out.get(masks + (index >> 3)) | (1 << (index & 7))));
+        NetProtocol.putVarInt(out, NetProtocol.zigzag(change));
+      }
+    }
+    if (messageChanged) {
+      if (current.message == null) {
+        NetProtocol.putVarInt(out, 0);
+      } else {
+        byte[] bytes = current.message.getBytes(StandardCharsets.UTF_8);
+        NetProtocol.putVarInt(out, bytes.length + 1);
+        out.put(bytes);
+      }
+    }
+    previous.copyFrom(current);
+  }
+
+  /**
+   * Applies a snapshot written by {@link #encode(NetSnapshot, NetSnapshot, ByteBuffer)}
+   * to this one, which must hold the previous snapshot of the connection.
+   * @param in The buffer to read from.
+   */
+  void decode(ByteBuffer in) {
+    tick += NetProtocol.getVarInt(in);
+    int count = NetProtocol.getVarInt(in);
+    if (count < BALLS) {
+      throw new IllegalStateException("Corrupt snapshot");
+    }
+    int flags = in.get();
+    ensureSize(count);
+    int masks = in.position();
+    in.position(masks + (count + 7) / 8);
+    for (int index = 0; index < count; index++) {
+      if ((in.get(masks + (index >> 3)) & (1 << (index & 7))) != 0) {
+        values[index] += NetProtocol.unzigzag(NetProtocol.getVarInt(in));
+      }
+    }
+    resize(count);
+    if ((flags & MESSAGE_CHANGED) != 0) {
+      int length = NetProtocol.getVarInt(in);
+      if (length == 0) {
+        message = null;
+      } else {
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        message = new String(bytes, StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  /**
+   * Grows the values so that a size fits, keeping those in use.
+   * @param count The size needed.
+   * @return The size needed.
+   */
+  private int ensureSize(int count) {
+    if (count > values.length) {
+      values = Arrays.copyOf(values, Math.max(count, values.length * 2));
+    }
+    return(count);
+  }
+
+  /**
+   * Changes the number of values in use. Values dropped are cleared, so that
+   * a ball that comes back later is encoded against 0 on both ends.
+   * @param count The new size.
+   */
+  private void resize(int count) {
+    if (count < size) {
+      Arrays.fill(values, count, size, 0);
+    }
+    size = count;
+  }
+
+  /**
+   * Converts a position to the units sent over the wire.
+   * @param position The position in pixels.
+   * @return The quantized position.
+   */
+  private static int quantize(float position) {
+    return(Math.round(position * NetProtocol.QUANTUM));
+  }
+}
@@ -1,15 +1,12 @@
 package edu.uwsp.cnmt110;
 
 import java.awt.*;
-import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
-import java.util.Timer;
-import java.util.TimerTask;
-
-enum GameState {
-    WelcomeScreen, Started, GameOver,
-}
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class PongGame extends Game {
 
@@ -17,13 +14,35 @@ public class PongGame extends Game {
     GameState curState;
 
     final int BarWidth = 15; // player/computer bar width
-    final int BarHeight = 70; // player/computer bar height
+    int BarHeight; // player/computer bar height, from the settings
     final int BallWidth = 25; // ball width
     final int BallHeight = 25; // ball height
     final int MaxAngle = 360; // maximum angle
     final int MinAngle = 0; // minimum angle
-    final int MinSpeed = 1; // minimum speed of balls
-    final int MaxSpeed = 5; // maximum speed of balls
+    int MinSpeed; // minimum speed of balls, from the settings
+    int MaxSpeed; // maximum speed of balls, from the settings
+    final int BarSpeed = 8; // speed of the player bar when moved with the keyboard
+    final int MaxBounces = 4; // maximum bounces resolved per ball per update
+    final float Far = 1e6f; // extent of the boundaries used for collision sweeps
+    final Path QuickSaveFile = Paths.get("pong.sav"); // where F5 saves and F9 loads
+    final int BallTag = 1; // tag of the balls
+    final int PaddleTag = 2; // tag of the player and computer bars
+    final Color PlayerColor = new Color(0, 255, 0); // color of the player bar
+    final Color ComputerColor = new Color(0, 0, 255); // color of the computer bar
+    final int MaxBallColors = 4096; // ball colors kept for reuse before the cache starts over
+
+    private final SweptCollision sweep = new SweptCollision();
+    private ScheduledTask countDown; // the running count down, if any
+    private ScheduledTask restartPrompt; // the pending restart message, if any
+    private long matchStart; // game time at which the current match started
+    private long matchLength = -1; // game time the current match lasted once it is lost
+    private int rallyLength; // balls returned by the player in the current match
+    private int bounces; // wall and paddle bounces in the current match
+    private PongSettings settings; // null until the constructor has run
+    private boolean twoPlayer; // a second player moves the computer bar
+    private DrawableSprite loser; // the bar that missed the ball, once the match is lost
+    private final ComputerPlayer ai = new ComputerPlayer(this); // plays the computer bar without a second player
+    private SaveFormat.ColorCache ballColors = new SaveFormat.ColorCache(); // one Color per ball color in use
 
     /**
      * Construct a Pong game window with given width and height.
@@ -32,18 +51,181 @@ public class PongGame extends Game {
      * @param height window height
      */
     public PongGame(int width, int height) {
-        super("Pong Game", width, height);
+        this(width, height, false);
+    }
+
+    /**
+     * Construct a Pong game with given width and height, optionally without a
+     * window.
+     *
+     * @param width    window or virtual playfield width
+     * @param height   window or virtual playfield height
+     * @param headless true to run without a window
+     */
+    public PongGame(int width, int height, boolean headless) {
+        this(width, height, (headless) ? RenderMode.HEADLESS : RenderMode.PASSIVE);
+    }
+
+    /**
+     * Construct a Pong game with given width and height, drawn with the given
+     * render mode.
+     *
+     * @param width      window or virtual playfield width
+     * @param height     window or virtual playfield height
+     * @param renderMode how the screen is drawn, or HEADLESS for no window
+     */
+    public PongGame(int width, int height, RenderMode renderMode) {
+        this(width, height, renderMode, new PongSettings());
+    }
+
+    /**
+     * Construct a Pong game with given width and height and rules, drawn with
+     * the given render mode.
+     *
+     * @param width      window or virtual playfield width
+     * @param height     window or virtual playfield height
+     * @param renderMode how the screen is drawn, or HEADLESS for no window
+     * @param settings   the rules of the match
+     */
+    public PongGame(int width, int height, RenderMode renderMode, PongSettings settings) {
+        super("Pong Game", width, height, renderMode);
+        setup(settings);
+        setLocationRelativeTo(null); // place the window at center of the screen
+    }
+
+    /**
+     * Construct a headless Pong game with its own random seed and rules, for
+     * running matches in bulk.
+     *
+     * @param width    virtual playfield width
+     * @param height   virtual playfield height
+     * @param seed     seed of the random generator that places the balls
+     * @param settings the rules of the match
+     */
+    public PongGame(int width, int height, long seed, PongSettings settings) {
+        super("Pong Game", width, height, seed);
+        setup(settings);
+    }
+
+    /**
+     * Construct a headless Pong game that replicates a recorded one, ready to
+     * replay its input.
+     *
+     * @param replay the recording to replicate
+     */
+    public PongGame(InputReplay replay) {
+        super("Pong Game", replay);
+        setup(new PongSettings());
+    }
+
+    /**
+     * Apply the rules and set up the play area. The fields of this class are
+     * not assigned yet while the Game constructor runs, so the play area is
+     * set up here instead of there.
+     *
+     * @param settings the rules of the match
+     */
+    private void setup(PongSettings settings) {
+        this.settings = new PongSettings(settings);
+        MinSpeed = settings.getMinSpeed();
+        MaxSpeed = settings.getMaxSpeed();
+        BarHeight = settings.getBarHeight();
+        twoPlayer = settings.isTwoPlayer();
+        ai.setDifficulty(settings.getDifficulty());
         curState = GameState.WelcomeScreen;
         setMessage("<ENTER> to START");
-        setLocationRelativeTo(null); // place the window at center of the screen
+        initialize();
+    }
+
+    /**
+     * Get the rules this game is played with.
+     *
+     * @return a copy of the settings
+     */
+    public PongSettings getSettings() {
+        return new PongSettings(settings);
+    }
+
+    /**
+     * Get how many balls the player returned in the current match.
+     *
+     * @return the rally length
+     */
+    public int getRallyLength() {
+        return rallyLength;
+    }
+
+    /**
+     * Get how often balls bounced off a wall or paddle in the current match.
+     *
+     * @return the number of bounces
+     */
+    public int getBounces() {
+        return bounces;
+    }
+
+    /**
+     * Get how much game time the current match lasted before it was lost.
+     *
+     * @return the match length in milliseconds, or -1 while it is not lost
+     */
+    public long getMatchLength() {
+        return matchLength;
+    }
+
+    /**
+     * Get the bar that missed the ball and lost the current match.
+     *
+     * @return the player or computer bar, or null while the match is not lost
+     */
+    DrawableSprite getLoser() {
+        return loser;
+    }
+
+    /**
+     * Move the computer bar for the second player of a two player game.
+     *
+     * @param y the desired center of the bar, in play area coordinates
+     */
+    void moveOpponent(int y) {
+        if (twoPlayer && curState == GameState.Started) {
+            computer.moveTo(computer.getX(), clampBarY(y));
+        }
+    }
+
+    /**
+     * Find the ball the player has to return next: the nearest one moving
+     * towards the player, or the nearest one if none is.
+     *
+     * @return the ball, or null if there is none
+     */
+    Sprite getNearestBall() {
+        Sprite nearest = null;
+        for (int index = 0; index < getSpriteCount(); index++) {
+            Sprite sprite = getSpriteAt(index);
+            if (!sprite.hasTag(BallTag)) {
+                continue;
+            }
+            if (nearest == null) {
+                nearest = sprite;
+                continue;
+            }
+            boolean approaching = sprite.getVelocityX() < 0;
+            boolean nearestApproaching = nearest.getVelocityX() < 0;
+            if ((approaching != nearestApproaching) ? approaching : sprite.getX() < nearest.getX()) {
+                nearest = sprite;
+            }
+        }
+        return nearest;
     }
 
     /**
      * Do a count down before starting or restarting the game.
      */
     private void startCountDown() {
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
+        cancel(countDown);
+        cancel(restartPrompt);
+        countDown = getScheduler().scheduleAtFixedRate(new Runnable() {
             int countDown = 3;
 
             @Override
@@ -59,11 +241,8 @@ public class PongGame extends Game {
                     setMessage("1");
                     break;
                 default:
-                    clearMessage();
-                    clearSprites();
-                    initialize();
-                    curState = GameState.Started;
-                    timer.cancel();
+                    startMatch();
+                    cancel(PongGame.this.countDown);
                     break;
                 }
                 countDown--;
@@ -71,127 +250,415 @@ public class PongGame extends Game {
         }, 0, 1500);
     }
 
+    /**
+     * Show the restart game message after a moment of game time.
+     */
+    private void schedulePrompt() {
+        restartPrompt = getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                setMessage("<r> to RESTART");
+            }
+        }, 2500);
+    }
+
+    /**
+     * Cancel a scheduled task if there is one.
+     *
+     * @param task the task to cancel, or null
+     */
+    private static void cancel(ScheduledTask task) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Reset the play area and start a new match immediately.
+     */
+    void startMatch() {
+        clearMessage();
+        recycleSprites(BallTag | PaddleTag);
+        ai.clear();
+        initialize();
+        curState = GameState.Started;
+        matchStart = getGameTime();
+        matchLength = -1;
+        loser = null;
+        rallyLength = 0;
+        bounces = 0;
+    }
+
     @Override
-    public void getInput(InputEvent[] events, long interval) {
-        for (InputEvent event : events) {
-            // key press event
-            if (event instanceof KeyEvent) {
-                char key = ((KeyEvent) event).getKeyChar();
-                switch (key) {
-                case 'r':
-                case 'R':
-                    if (curState != GameState.Started && curState != GameState.WelcomeScreen) {
-                        // restart the game
-                        startCountDown();
-                    }
-                    break;
-                case KeyEvent.VK_SPACE:
-                    if (curState == GameState.Started) {
-                        addSprite(getNewBall());
-                    }
-                    break;
-                case KeyEvent.VK_ENTER:
-                    if (curState == GameState.WelcomeScreen) {
-                        startCountDown();
-                    }
-                    break;
-                default:
-                    break;
-                }
+    public long getStateChecksum() {
+        return mix(super.getStateChecksum(), curState.ordinal());
+    }
+
+    @Override
+    public void getInput(InputSnapshot input, long interval) {
+        // key press events
+        if (input.wasPressed(KeyEvent.VK_R)) {
+            if (curState != GameState.Started && curState != GameState.WelcomeScreen) {
+                // restart the game
+                startCountDown();
+            }
+        }
+        if (input.wasPressed(KeyEvent.VK_F3)) {
+            // show or hide the latency of each phase of the game loop
+            setMetricsOverlay(!isMetricsOverlay());
+        }
+        if (input.wasPressed(KeyEvent.VK_F5)) {
+            try {
+                quickSave(QuickSaveFile);
+            } catch (IOException e) {
+                System.err.println("Quicksave failed: " + e);
+            }
+        }
+        if (input.wasPressed(KeyEvent.VK_F9)) {
+            try {
+                quickLoad(QuickSaveFile);
+                return;
+            } catch (IOException e) {
+                System.err.println("Quickload failed: " + e);
             }
+        }
+        if (input.wasPressed(KeyEvent.VK_ENTER)) {
+            if (curState == GameState.WelcomeScreen) {
+                startCountDown();
+            }
+        }
+        if (curState != GameState.Started) {
+            return;
+        }
+        if (input.wasPressed(KeyEvent.VK_P)) {
+            // pause or resume the match; the ball and the timers stop together
+            setPaused(!isPaused());
+            if (isPaused()) {
+                setMessage("PAUSED");
+            } else {
+                clearMessage();
+            }
+        }
+        if (isPaused()) {
+            return;
+        }
+        if (!twoPlayer) {
+            ai.update(getGameTime(), interval);
+        }
+        for (int count = input.getPressCount(KeyEvent.VK_SPACE); count > 0; count--) {
+            addBall();
+        }
 
-            // mouse events
-            if (event instanceof MouseEvent && curState == GameState.Started) {
-                // move the player bar according to the mouse y coordinate
-                int mouseY = ((MouseEvent) event).getY();
-                Insets insets = getInsets();
-                int playerBarY = mouseY - insets.top;
-                if (mouseY <= ((BarHeight / 2) + insets.top)) {
-                    playerBarY = BarHeight / 2;
-                } else if ((mouseY + BarHeight / 2) >= (getHeight() - insets.bottom)) {
-                    playerBarY = getHeight() - (BarHeight / 2) - insets.bottom - insets.top - 1;
-                }
-                player.moveTo(player.getX(), playerBarY);
+        // move the player bar according to the latest mouse y coordinate
+        if (input.hasMouseMoved()) {
+            player.moveTo(player.getX(), clampBarY(input.getMouseY() - getInsets().top));
+        }
+        // or the up and down arrow keys while they are held
+        int direction = (input.isKeyDown(KeyEvent.VK_DOWN) ? 1 : 0) - (input.isKeyDown(KeyEvent.VK_UP) ? 1 : 0);
+        if (direction != 0) {
+            int distance = Math.round(BarSpeed * interval * (60.0f / 1000.0f));
+            player.moveTo(player.getX(), clampBarY(player.getY() + direction * distance));
+        }
 
-                if (((MouseEvent) event).getButton() == MouseEvent.BUTTON1) {
-                    // add a new ball
-                    addSprite(getNewBall());
-                }
+        // add a new ball for every left click
+        for (int count = input.getClickCount(MouseEvent.BUTTON1); count > 0; count--) {
+            addBall();
+        }
+    }
+
+    @Override
+    protected void saveState(ByteBuffer out) {
+        out.put((byte) curState.ordinal());
+        out.putInt(MinSpeed).putInt(MaxSpeed).putInt(BarHeight).put((byte) (twoPlayer ? 1 : 0));
+        out.putLong(matchStart).putLong(matchLength).putInt(rallyLength).putInt(bounces);
+        out.put((byte) ((loser == player) ? 1 : (loser == computer) ? 2 : 0));
+        out.put((byte) (isPending(countDown) ? 1 : 0));
+        out.put((byte) (isPending(restartPrompt) ? 1 : 0));
+        out.put((byte) ai.getDifficulty().ordinal());
+    }
+
+    @Override
+    protected Runnable loadState(ByteBuffer in) {
+        GameState state = GameState.values()[in.get()];
+        int minSpeed = in.getInt();
+        int maxSpeed = in.getInt();
+        int barHeight = in.getInt();
+        boolean savedTwoPlayer = in.get() != 0;
+        long savedMatchStart = in.getLong();
+        long savedMatchLength = in.getLong();
+        int savedRallyLength = in.getInt();
+        int savedBounces = in.getInt();
+        int lost = in.get();
+        boolean countingDown = in.get() != 0;
+        boolean prompting = in.get() != 0;
+        Difficulty difficulty = in.hasRemaining() ? Difficulty.values()[in.get()] : Difficulty.PERFECT;
+        PongSettings savedSettings = new PongSettings().setSpeedRange(minSpeed, maxSpeed).setBarHeight(barHeight)
+                .setTwoPlayer(savedTwoPlayer).setDifficulty(difficulty);
+
+        return () -> {
+            curState = state;
+            MinSpeed = minSpeed;
+            MaxSpeed = maxSpeed;
+            BarHeight = barHeight;
+            twoPlayer = savedTwoPlayer;
+            settings = savedSettings;
+            matchStart = savedMatchStart;
+            matchLength = savedMatchLength;
+            rallyLength = savedRallyLength;
+            bounces = savedBounces;
+            ai.setDifficulty(difficulty);
+            restoreSprites(lost, countingDown, prompting);
+        };
+    }
+
+    /**
+     * Find the bars and balls among the loaded sprites, and schedule what was
+     * pending when the game was saved.
+     *
+     * @param lost         1 if the player lost the last point, 2 if the computer did
+     * @param countingDown true if the count down was running
+     * @param prompting    true if the restart prompt was about to show
+     */
+    private void restoreSprites(int lost, boolean countingDown, boolean prompting) {
+        // the sprites are new, find the bars by name
+        for (int index = 0; index < getSpriteCount(); index++) {
+            Sprite sprite = getSpriteAt(index);
+            String name = ((DrawableSprite) sprite).getName();
+            if ("PLAYER".equals(name)) {
+                player = (DrawableSprite) sprite;
+            } else if ("COMPUTER".equals(name)) {
+                computer = (DrawableSprite) sprite;
+            }
+        }
+        loser = (lost == 1) ? player : (lost == 2) ? computer : null;
+        ai.clear();
+        for (int index = 0; index < getSpriteCount(); index++) {
+            if (getSpriteAt(index).hasTag(BallTag)) {
+                ai.track(getSpriteAt(index), getGameTime());
             }
         }
+
+        // scheduled tasks are not saved: count down again or prompt again
+        countDown = null;
+        restartPrompt = null;
+        if (countingDown) {
+            startCountDown();
+        } else if (prompting) {
+            schedulePrompt();
+        }
+    }
+
+    /**
+     * Check if a scheduled task is still going to run.
+     *
+     * @param task the task, or null
+     * @return true if the task is waiting to run (again)
+     */
+    private static boolean isPending(ScheduledTask task) {
+        return task != null && !task.isCancelled() && !task.isDone();
+    }
+
+    /**
+     * Keep the center of a bar inside the play area.
+     *
+     * @param y the desired center of the bar
+     * @return the nearest center at which the whole bar is visible
+     */
+    private int clampBarY(int y) {
+        Insets insets = getInsets();
+        int maxY = getHeight() - (BarHeight / 2) - insets.bottom - insets.top - 1;
+        return Math.max(BarHeight / 2, Math.min(y, maxY));
     }
 
     @Override
     public boolean updatePosition(Sprite sprite, long interval) {
-        DrawableSprite dSprite = (DrawableSprite) sprite;
-        if (dSprite.getName() == null) {
-            // move the ball anyway
-            dSprite.move(interval);
+        if (sprite.hasTag(BallTag)) {
+            DrawableSprite dSprite = (DrawableSprite) sprite;
+            // move the ball, resolving every wall and paddle hit along the way
+            moveBall(dSprite, interval);
 
-            // check if its hit by upper or lower boundary
-            if ((dSprite.getY() - dSprite.getHeight() / 2) <= 0 || (dSprite.getY() + dSprite.getHeight() / 2
-                    + getInsets().bottom + getInsets().top + 1) >= getHeight()) {
-                dSprite.bounceY();
+            // check if the ball got past the player's paddle
+            // update player input only if game is running
+            DrawableSprite missed = null;
+            if (curState == GameState.Started && dSprite.getMinX() < player.getMaxX()
+                    && !dSprite.collidesWith(player)) {
+                missed = player;
+            } else if (computerCanMiss() && curState == GameState.Started && dSprite.getMaxX() > computer.getMinX()
+                    && !dSprite.collidesWith(computer)) {
+                missed = computer;
             }
+            if (missed != null) {
+                setGameover(true);
+                if (missed == computer && !twoPlayer) {
+                    setMessage("YOU WIN");
+                }
+                ai.forget(dSprite);
+                recycleSprite(dSprite);
+                curState = GameState.GameOver;
+                matchLength = getGameTime() - matchStart;
+                loser = missed;
 
-            // check if its crossing player's boundary
-            // update player input only if game is running
-            if (curState == GameState.Started) {
-                if ((player.getX() + BarWidth / 2) >= (dSprite.getX() - dSprite.getWidth() / 2)) {
-                    if (dSprite.collidesWith(player)) {
-                        // bounce the ball
-                        dSprite.bounceX();
-                    } else {
-                        setGameover(true);
-                        removeSprite(dSprite);
-                        curState = GameState.GameOver;
-
-                        // start a timer to show the restart game message eventually
-                        Timer timer = new Timer();
-                        timer.scheduleAtFixedRate(new TimerTask() {
-                            @Override
-                            public void run() {
-                                setMessage("<r> to RESTART");
-                                timer.cancel();
-                            }
-                        }, 2500, 1000);
-                    }
+                GameOverEvent event = new GameOverEvent();
+                if (event.shouldCommit()) {
+                    event.matchLength = matchLength;
+                    event.gameTime = getGameTime();
+                    event.sprites = getSpriteCount();
+                    event.commit();
                 }
+
+                // show the restart game message after a moment of game time
+                defer(new Runnable() {
+                    @Override
+                    public void run() {
+                        schedulePrompt();
+                    }
+                });
             }
+        }
+        return true;
+    }
+
+    /**
+     * Move a ball for a whole update interval using swept collision tests, so
+     * that a fast ball or a long interval cannot skip through a paddle. The
+     * ball is advanced to the earliest hit, bounced, and then moved for the
+     * remaining time, up to MaxBounces times per update.
+     *
+     * @param ball     the ball to move
+     * @param interval the amount of time that has passed since the last update
+     */
+    private void moveBall(DrawableSprite ball, long interval) {
+        Insets insets = getInsets();
+        float bottom = getHeight() - insets.bottom - insets.top - 1;
+        float remaining = interval;
+        boolean deflected = false;
+
+        // a sweep misses a wall the ball already overlaps, such as after spawning
+        // at the edge, so push the ball out and bounce it if it moves further in
+        float halfHeight = ball.getHeight() / 2.0f;
+        float y = ball.getExactY();
+        if (y - halfHeight < 0 && ball.getVelocityY() < 0) {
+            ball.translate(0, halfHeight - y);
+            ball.bounceY();
+            bounces++;
+        } else if (y + halfHeight > bottom && ball.getVelocityY() > 0) {
+            ball.translate(0, bottom - halfHeight - y);
+            ball.bounceY();
+            bounces++;
+        }
+
+        for (int bounce = 0; bounce <= MaxBounces && remaining > 0; bounce++) {
+            float time = 1;
+            Sprite hit = null;
+            int normalY = 0;
 
-            // check if its crossing computer's boundary
-            if ((computer.getX() - BarWidth / 2) <= (dSprite.getX() + dSprite.getWidth() / 2)) {
-                // move the computer bar to right position
-                int computerY = dSprite.getY();
-                Insets insets = getInsets();
-                if (computerY <= ((BarHeight / 2) + insets.top)) {
-                    computerY = BarHeight / 2;
-                } else if ((computerY + BarHeight / 2) >= (getHeight() - insets.bottom)) {
-                    computerY = getHeight() - (BarHeight / 2) - insets.bottom - insets.top - 1;
+            // upper and lower boundary
+            if (sweep.sweep(ball, remaining, -Far, -Far, Far, 0) && sweep.getTime() < time) {
+                time = sweep.getTime();
+                normalY = sweep.getNormalY();
+                hit = null;
+            }
+            if (sweep.sweep(ball, remaining, -Far, bottom, Far, Far) && sweep.getTime() < time) {
+                time = sweep.getTime();
+                normalY = sweep.getNormalY();
+                hit = null;
+            }
+            // player's paddle, only while the game is running
+            if (curState == GameState.Started && sweep.sweep(ball, remaining, player.getMinX(), player.getMinY(),
+                    player.getMaxX(), player.getMaxY()) && sweep.getTime() < time) {
+                time = sweep.getTime();
+                normalY = sweep.getNormalY();
+                hit = player;
+            }
+            if (computerCanMiss() && curState == GameState.Started) {
+                // second player's or computer's paddle, which can miss like the player's
+                if (sweep.sweep(ball, remaining, computer.getMinX(), computer.getMinY(), computer.getMaxX(),
+                        computer.getMaxY()) && sweep.getTime() < time) {
+                    time = sweep.getTime();
+                    normalY = sweep.getNormalY();
+                    hit = computer;
                 }
-                computer.moveTo(computer.getX(), computerY);
+            } else if (sweep.sweep(ball, remaining, computer.getMinX(), -Far, Far, Far) && sweep.getTime() < time) {
+                // computer's boundary, the computer never misses
+                time = sweep.getTime();
+                normalY = 0;
+                hit = computer;
+            }
 
-                // bounce the ball anyway
-                dSprite.bounceX();
+            if (time >= 1) {
+                ball.move(remaining);
+                break;
+            }
+            ball.move(remaining * time);
+            remaining -= remaining * time;
+            bounces++;
+            if (hit == player) {
+                rallyLength++;
+            }
+            deflected |= hit != null;
+
+            if (normalY != 0) {
+                ball.bounceY();
+            } else {
+                ball.bounceX();
             }
         }
-        return true;
+        if (deflected) {
+            // a paddle changed when and where the ball reaches the computer
+            ai.track(ball, getGameTime() + interval);
+        }
+    }
+
+    /**
+     * Check if the computer bar is a paddle that can miss, played by a second
+     * player or by a computer that is not perfect, rather than a wall.
+     *
+     * @return true if a ball can get past the computer bar
+     */
+    private boolean computerCanMiss() {
+        return twoPlayer || ai.getDifficulty().canMiss();
     }
 
     /**
-     * Generates a random Color
+     * Picks a random Color. A color that was picked before is reused rather
+     * than allocated again.
      * 
      * @return A random color.
      */
     private Color getRandomColor() {
-        return (new Color(getRandom().nextInt(255), getRandom().nextInt(255), getRandom().nextInt(255)));
+        int red = getRandom().nextInt(255);
+        int green = getRandom().nextInt(255);
+        int blue = getRandom().nextInt(255);
+        if (ballColors.size() >= MaxBallColors) {
+            ballColors = new SaveFormat.ColorCache();
+        }
+        return ballColors.get(0xff000000 | (red << 16) | (green << 8) | blue);
+    }
+
+    /**
+     * Add a new ball to the play area and report it to the flight recorder.
+     */
+    private void addBall() {
+        DrawableSprite ball = spawnBall();
+
+        BallSpawnEvent event = new BallSpawnEvent();
+        if (event.shouldCommit()) {
+            event.x = ball.getX();
+            event.y = ball.getY();
+            event.angle = ball.getAngle();
+            event.speed = ball.getSpeed();
+            event.sprites = getSpriteCount();
+            event.commit();
+        }
     }
 
     /**
-     * Get a randomly constructed ball with new color and positioned at the center x
+     * Add a randomly constructed ball with new color and positioned at the center x
      * of the screen. The ball will have a random speed and angle.
+     *
+     * @return the ball
      */
-    DrawableSprite getNewBall() {
+    DrawableSprite spawnBall() {
         int speed = getRandom().nextInt(MaxSpeed - MinSpeed + 1) + MinSpeed;
         float angle = -1.0f;
         do {
@@ -202,28 +669,46 @@ public class PongGame extends Game {
         int yMax = getHeight() - BallHeight / 2 - getInsets().top - getInsets().bottom - 1;
         int yMin = BallHeight / 2 + getInsets().top;
         int ballY = getRandom().nextInt(yMax - yMin + 1) + yMin;
-        DrawableSprite ball = new DrawableSprite(getWidth() / 2 - BallWidth / 2 - getInsets().left, ballY, BallWidth,
+        DrawableSprite ball = spawnSprite(getWidth() / 2 - BallWidth / 2 - getInsets().left, ballY, BallWidth,
                 BallHeight, angle, speed);
-        ball.setColor(color);
+        ball.setColor(color).setName(null).setTags(BallTag);
+        ai.track(ball, getGameTime());
         return ball;
     }
 
+    /**
+     * Add a sprite to the play area, reusing a recycled ball or bar if there is one.
+     *
+     * @param x      the center on the horizontal axis
+     * @param y      the center on the vertical axis
+     * @param width  the width
+     * @param height the height
+     * @param angle  the direction of movement
+     * @param speed  the speed
+     * @return the sprite, without a name or tags
+     */
+    private DrawableSprite spawnSprite(int x, int y, int width, int height, float angle, int speed) {
+        DrawableSprite sprite = spawnSprite(DrawableSprite.class, () -> new DrawableSprite(0, 0, 0, 0, 0, 0));
+        sprite.reset(x, y, width, height, angle, speed);
+        sprite.setName(null);
+        return sprite;
+    }
+
     @Override
     public void initialize() {
+        if (settings == null) {
+            // called by the Game constructor, before the rules are known
+            return;
+        }
         // add player bar
-        player = new DrawableSprite(20 + BarWidth / 2, getHeight() / 2 - getInsets().top / 2, BarWidth, BarHeight, 0,
-                1);
-        player.setColor(new Color(0, 255, 0));
-        player.setName("PLAYER");
-        addSprite(player);
+        player = spawnSprite(20 + BarWidth / 2, getHeight() / 2 - getInsets().top / 2, BarWidth, BarHeight, 0, 1);
+        player.setColor(PlayerColor).setName("PLAYER").setTags(PaddleTag);
 
         // add computer bar
-        computer = new DrawableSprite(getWidth() - 20 - BarWidth / 2 - getInsets().right * 2,
+        computer = spawnSprite(getWidth() - 20 - BarWidth / 2 - getInsets().right * 2,
                 getHeight() / 2 - getInsets().top / 2, BarWidth, BarHeight, 0, 1);
-        computer.setColor(new Color(0, 0, 255));
-        computer.setName("COMPUTER");
-        addSprite(computer);
+        computer.setColor(ComputerColor).setName("COMPUTER").setTags(PaddleTag);
 
-        addSprite(getNewBall());
+        addBall();
     }
 }
@@ -0,0 +1,60 @@
+package edu.uwsp.cnmt110;
+
+import java.util.Random;
+
+/**
+ * Plays the player's paddle of a headless Pong game by feeding it input, the
+ * way a person would with the mouse. Used to run matches in bulk without
+ * anyone at the keyboard.
+ */
+public enum PongPlayer {
+  /**
+   * Never moves the paddle.
+   */
+  IDLE {
+    @Override
+    void play(PongGame game, InputBuffer input, Random random) {
+    }
+  },
+
+  /**
+   * Keeps the paddle level with the ball that comes next, every update.
+   */
+  TRACKING {
+    @Override
+    void play(PongGame game, InputBuffer input, Random random) {
+      Sprite ball = game.getNearestBall();
+      if (ball != null) {
+        input.moveMouse(0, ball.getY() + game.getInsets().top);
+      }
+    }
+  },
+
+  /**
+   * Follows the ball that comes next, but only looks now and then and aims
+   * up to a paddle height off.
+   */
+  SLOPPY {
+    @Override
+    void play(PongGame game, InputBuffer input, Random random) {
+      Sprite ball = game.getNearestBall();
+      if ((ball != null) && (random.nextInt(REACTION) == 0)) {
+        int error = random.nextInt(2 * game.BarHeight + 1) - game.BarHeight;
+        input.moveMouse(0, ball.getY() + error + game.getInsets().top);
+      }
+    }
+  };
+
+  /**
+   * The average number of updates between two moves of a sloppy player.
+   */
+  private static final int REACTION = 20;
+
+  /**
+   * Gives the game the input of the next update.
+   * @param game The game being played.
+   * @param input The input buffer of the game.
+   * @param random The random generator of the player, seeded per match.
+   */
+  abstract void play(PongGame game, InputBuffer input, Random random);
+}
@@ -0,0 +1,141 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * The tunable rules of a Pong match: how fast new balls may move, how tall
+ * the paddles are, who plays the right paddle and how well the computer does. A game copies the settings it is created with, so one
+ * instance can be reused for many games.
+ */
+public class PongSettings {
+  private static final int DEFAULT_MIN_SPEED = 1;
+  private static final int DEFAULT_MAX_SPEED = 5;
+  private static final int DEFAULT_BAR_HEIGHT = 70;
+
+  private int minSpeed = DEFAULT_MIN_SPEED;
+  private int maxSpeed = DEFAULT_MAX_SPEED;
+  private int barHeight = DEFAULT_BAR_HEIGHT;
+  private boolean twoPlayer;
+  private Difficulty difficulty = Difficulty.PERFECT;
+
+  /**
+   * Creates an instance of the PongSettings class with the default rules.
+   */
+  public PongSettings() {
+  }
+
+  /**
+   * Creates a copy of the specified settings.
+   * @param settings The settings to copy.
+   */
+  public PongSettings(PongSettings settings) {
+    this.minSpeed = settings.minSpeed;
+    this.maxSpeed = settings.maxSpeed;
+    this.barHeight = settings.barHeight;
+    this.twoPlayer = settings.twoPlayer;
+    this.difficulty = settings.difficulty;
+  }
+
+  /**
+   * Retrieves the lowest speed a new ball is given.
+   * @return The minimum speed.
+   */
+  public int getMinSpeed() {
+    return(minSpeed);
+  }
+
+  /**
+   * Retrieves the highest speed a new ball is given.
+   * @return The maximum speed.
+   */
+  public int getMaxSpeed() {
+    return(maxSpeed);
+  }
+
+  /**
+   * Sets the range new balls pick their speed from.
+   * @param minSpeed The minimum speed, at least 1.
+   * @param maxSpeed The maximum speed, at least the minimum speed.
+   * @return The current settings instance.
+   */
+  public PongSettings setSpeedRange(int minSpeed, int maxSpeed) {
+    if ((minSpeed < 1) || (maxSpeed < minSpeed)) {
+      throw new IllegalArgumentException("speed range must be 1 <= minSpeed <= maxSpeed");
+    }
+    this.minSpeed = minSpeed;
+    this.maxSpeed = maxSpeed;
+    return(this);
+  }
+
+  /**
+   * Retrieves the height of the player and computer paddles.
+   * @return The height in pixels.
+   */
+  public int getBarHeight() {
+    return(barHeight);
+  }
+
+  /**
+   * Sets the height of the player and computer paddles.
+   * @param barHeight The height in pixels, at least 1.
+   * @return The current settings instance.
+   */
+  public PongSettings setBarHeight(int barHeight) {
+    if (barHeight < 1) {
+      throw new IllegalArgumentException("barHeight must be at least 1");
+    }
+    this.barHeight = barHeight;
+    return(this);
+  }
+
+  /**
+   * Indicates if a second player moves the right paddle. Otherwise the
+   * computer plays it as well as the difficulty allows.
+   * @return True for two players, false if otherwise.
+   */
+  public boolean isTwoPlayer() {
+    return(twoPlayer);
+  }
+
+  /**
+   * Sets if a second player moves the right paddle, which can then miss.
+   * @param twoPlayer True for two players, false to play against the computer.
+   * @return The current settings instance.
+   */
+  public PongSettings setTwoPlayer(boolean twoPlayer) {
+    this.twoPlayer = twoPlayer;
+    return(this);
+  }
+
+  /**
+   * Retrieves how well the computer plays the right paddle when there is no
+   * second player.
+   * @return The difficulty.
+   */
+  public Difficulty getDifficulty() {
+    return(difficulty);
+  }
+
+  /**
+   * Sets how well the computer plays the right paddle when there is no second
+   * player. Below {@link Difficulty#PERFECT} the computer can miss, and the
+   * player wins the match when it does.
+   * @param difficulty The difficulty.
+   * @return The current settings instance.
+   */
+  public PongSettings setDifficulty(Difficulty difficulty) {
+    if (difficulty == null) {
+      throw new IllegalArgumentException("difficulty must not be null");
+    }
+    this.difficulty = difficulty;
+    return(this);
+  }
+
+  /**
+   * Describes the settings.
+   * @return The speed range, paddle height and who plays the right paddle.
+   */
+  @Override
+  public String toString() {
+    return("PongSettings[speed:" + minSpeed + "-" + maxSpeed + ",bar height:" + barHeight
+           + ((twoPlayer) ? ",two player" : ",computer:" + difficulty) + "]");
+  }
+}
@@ -22,10 +22,23 @@ public class RandomSprite extends DrawableSprite {
    * @param screenHeight The maximum height of the screen.
    */
   public RandomSprite(int screenWidth, int screenHeight) {
-    super(getRandom().nextInt(screenWidth), getRandom().nextInt(screenHeight),
-         getRandomWidth(), getRandomHeight(),
-         getRandom().nextInt(360), getRandomSpeed());
+    super(0, 0, 0, 0, 0, 0);
+    randomize(screenWidth, screenHeight);
+  }
+
+  /**
+   * Gives the sprite a new random position, size, movement and color, such as
+   * when it is reused.
+   * @param screenWidth The maximum width of the screen.
+   * @param screenHeight The maximum height of the screen.
+   * @return The instance of RandomSprite so subsequent methods can be chained together.
+   */
+  public RandomSprite randomize(int screenWidth, int screenHeight) {
+    reset(getRandom().nextInt(screenWidth), getRandom().nextInt(screenHeight),
+          getRandomWidth(), getRandomHeight(),
+          getRandom().nextInt(360), getRandomSpeed());
     setColor(getRandomColor());
+    return(this);
   }
 
   /**
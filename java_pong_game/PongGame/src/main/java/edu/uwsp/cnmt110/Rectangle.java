@@ -5,8 +5,10 @@ package edu.uwsp.cnmt110;
  * and four right angles in a 2D coordinate space.
  */
 public class Rectangle {
-  private Point x1y1;
-  private Point x2y2;
+  private int x1;
+  private int y1;
+  private int x2;
+  private int y2;
 
   /**
    * Creates an instance of the Rectangle class.
@@ -15,8 +17,7 @@ public class Rectangle {
    * @param height The height or distance along the Y axis.
    */
   public Rectangle(Point x1y1, int width, int height) {
-    this.x1y1 = x1y1.clone();
-    this.x2y2 = new Point(x1y1.getX() + width, x1y1.getY() + height);
+    this(x1y1.getX(), x1y1.getY(), x1y1.getX() + width, x1y1.getY() + height);
   }
 
   /**
@@ -25,24 +26,66 @@ public class Rectangle {
    * @param x2y2 The lower right point or 2D coordinate position.
    */
   public Rectangle(Point x1y1, Point x2y2) {
-    this.x1y1 = x1y1.clone();
-    this.x2y2 = x2y2.clone();
+    this(x1y1.getX(), x1y1.getY(), x2y2.getX(), x2y2.getY());
+  }
+
+  /**
+   * Creates an instance of the Rectangle class.
+   * @param x1 The horizontal coordinate of the upper left corner.
+   * @param y1 The vertical coordinate of the upper left corner.
+   * @param x2 The horizontal coordinate of the lower right corner.
+   * @param y2 The vertical coordinate of the lower right corner.
+   */
+  public Rectangle(int x1, int y1, int x2, int y2) {
+    this.set(x1, y1, x2, y2);
+  }
+
+  /**
+   * Creates an empty instance of the Rectangle class, intended to be filled in
+   * and reused through {@link #set(int, int, int, int)}.
+   */
+  public Rectangle() {
+  }
+
+  /**
+   * Sets or changes the corners of the rectangle.
+   * @param x1 The horizontal coordinate of the upper left corner.
+   * @param y1 The vertical coordinate of the upper left corner.
+   * @param x2 The horizontal coordinate of the lower right corner.
+   * @param y2 The vertical coordinate of the lower right corner.
+   * @return The instance of Rectangle so calls can be chained together in succession.
+   */
+  public Rectangle set(int x1, int y1, int x2, int y2) {
+    this.x1 = x1;
+    this.y1 = y1;
+    this.x2 = x2;
+    this.y2 = y2;
+    return(this);
+  }
+
+  /**
+   * Sets or changes the corners of the rectangle to those of another rectangle.
+   * @param rectangle The rectangle to copy from.
+   * @return The instance of Rectangle so calls can be chained together in succession.
+   */
+  public Rectangle set(Rectangle rectangle) {
+    return(set(rectangle.x1, rectangle.y1, rectangle.x2, rectangle.y2));
   }
 
   /**
    * Retrieves the upper left corner 2D coordinate position.
-   * @return The upper left corner.
+   * @return A copy of the upper left corner.
    */
   public Point getX1Y1() {
-    return(this.x1y1.clone());
+    return(new Point(x1, y1));
   }
 
   /**
    * Retrieves the lower right corner 2D coordinate position.
-   * @return The lower right corner.
+   * @return A copy of the lower right corner.
    */
   public Point getX2Y2() {
-    return(this.x2y2.clone());
+    return(new Point(x2, y2));
   }
 
   /**
@@ -50,7 +93,7 @@ public class Rectangle {
    * @return The horizontal 2D coordinate from the upper left corner.
    */
   public int getX1() {
-    return(this.getX1Y1().getX());
+    return(x1);
   }
 
   /**
@@ -58,7 +101,7 @@ public class Rectangle {
    * @return The horizontal 2D coordinate from the lower right corner.
    */
   public int getX2() {
-    return(this.getX2Y2().getX());
+    return(x2);
   }
 
   /**
@@ -66,7 +109,7 @@ public class Rectangle {
    * @return The vertical 2D coordinate from the upper left corner.
    */
   public int getY1() {
-    return(this.getX1Y1().getY());
+    return(y1);
   }
 
   /**
@@ -74,7 +117,39 @@ public class Rectangle {
    * @return The vertical 2D coordinate from the lower right corner.
    */
   public int getY2() {
-    return(this.getX2Y2().getY());
+    return(y2);
+  }
+
+  /**
+   * Retrieves the smallest horizontal coordinate of the rectangle.
+   * @return The left edge.
+   */
+  public int getMinX() {
+    return(Math.min(x1, x2));
+  }
+
+  /**
+   * Retrieves the smallest vertical coordinate of the rectangle.
+   * @return The top edge.
+   */
+  public int getMinY() {
+    return(Math.min(y1, y2));
+  }
+
+  /**
+   * Retrieves the largest horizontal coordinate of the rectangle.
+   * @return The right edge.
+   */
+  public int getMaxX() {
+    return(Math.max(x1, x2));
+  }
+
+  /**
+   * Retrieves the largest vertical coordinate of the rectangle.
+   * @return The bottom edge.
+   */
+  public int getMaxY() {
+    return(Math.max(y1, y2));
   }
 
   /**
@@ -82,7 +157,7 @@ public class Rectangle {
    * @return The height
    */
   public int getHeight() {
-    return (Math.abs(this.getX1Y1().getY() - this.getX2Y2().getY()));
+    return (Math.abs(y1 - y2));
   }
 
   /**
@@ -90,7 +165,7 @@ public class Rectangle {
    * @return The height
    */
   public int getWidth() {
-    return (Math.abs(this.getX1Y1().getX() - this.getX2Y2().getX()));
+    return (Math.abs(x1 - x2));
   }
 
   /**
@@ -100,8 +175,8 @@ public class Rectangle {
    */
   public boolean equals(Rectangle rectangle) {
     if (rectangle == null) return(false);
-    return(this.getX1Y1().equals(rectangle.getX1Y1()) &&
-           this.getX2Y2().equals(rectangle.getX2Y2()));
+    return((x1 == rectangle.x1) && (y1 == rectangle.y1) &&
+           (x2 == rectangle.x2) && (y2 == rectangle.y2));
   }
 
   /**
@@ -119,7 +194,7 @@ public class Rectangle {
    * @return A new instance of Rectangle.
    */
   public Rectangle clone() {
-    return(new Rectangle(this.getX1Y1(), this.getX2Y2()));
+    return(new Rectangle(x1, y1, x2, y2));
   }
 
   /**
@@ -129,11 +204,37 @@ public class Rectangle {
    * @return Tue if they intesect, false if otherwise.
    */
   public boolean intersectsWith(Rectangle rectangle) {
-    int left = Math.max(getX1(), rectangle.getX1());
-    int right = Math.min(getX2(), rectangle.getX2());
-    int top = Math.max(getY1(), rectangle.getY1());
-    int bottom = Math.min(getY2(), rectangle.getY2());
+    return(intersects(rectangle.getMinX(), rectangle.getMinY(), rectangle.getMaxX(), rectangle.getMaxY()));
+  }
+
+  /**
+   * Checks to see if the rectangle intersects or overlaps with the specified bounds.
+   * @param minX The left edge of the bounds.
+   * @param minY The top edge of the bounds.
+   * @param maxX The right edge of the bounds.
+   * @param maxY The bottom edge of the bounds.
+   * @return True if they intersect, false if otherwise.
+   */
+  public boolean intersects(int minX, int minY, int maxX, int maxY) {
+    return(intersects(getMinX(), getMinY(), getMaxX(), getMaxY(), minX, minY, maxX, maxY));
+  }
 
-    return((left < right) && (bottom > top));
+  /**
+   * Checks to see if two sets of bounds intersect or overlap. Bounds that only
+   * touch along an edge do not intersect.
+   * @param minX1 The left edge of the first bounds.
+   * @param minY1 The top edge of the first bounds.
+   * @param maxX1 The right edge of the first bounds.
+   * @param maxY1 The bottom edge of the first bounds.
+   * @param minX2 The left edge of the second bounds.
+   * @param minY2 The top edge of the second bounds.
+   * @param maxX2 The right edge of the second bounds.
+   * @param maxY2 The bottom edge of the second bounds.
+   * @return True if they intersect, false if otherwise.
+   */
+  public static boolean intersects(int minX1, int minY1, int maxX1, int maxY1,
+                                   int minX2, int minY2, int maxX2, int maxY2) {
+    return((Math.max(minX1, minX2) < Math.min(maxX1, maxX2)) &&
+           (Math.max(minY1, minY2) < Math.min(maxY1, maxY2)));
   }
 }
@@ -0,0 +1,21 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * Selects how a Game draws its screen.
+ */
+public enum RenderMode {
+  /**
+   * No window is created and nothing is drawn.
+   */
+  HEADLESS,
+  /**
+   * The screen is a Swing panel that is repainted by the event dispatch thread
+   * whenever it gets round to it.
+   */
+  PASSIVE,
+  /**
+   * The screen is a canvas with a buffer strategy that is drawn and presented
+   * by a dedicated render thread once per frame.
+   */
+  ACTIVE,
+}
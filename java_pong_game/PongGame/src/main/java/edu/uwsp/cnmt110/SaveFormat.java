@@ -0,0 +1,299 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary format of a saved game, see {@link Game#save(WritableByteChannel)}.
+ * Everything is little-endian, the byte order of the machines the game runs
+ * on, so the sprite columns are copied in and out of the arrays of a
+ * {@link SpriteStore} in bulk instead of value by value.
+ * <pre>
+ * header   magic:long version:int
+ * game     gameTime:long tickInterval:long paused:byte gameover:byte message:string
+ *          random:long gaussian:double schedulerTime:long schedulerProcessed:long
+ * slots    count:int x,y,previousX,previousY,angle,vx,vy:float[count]
+ *          width,height,speed,directionX,directionY,tags:int[count]
+ *          types:int type:string[types] typeIndex:int[count]
+ *          color,textColor:int[count] names:int name:string[names] nameIndex:int[count]
+ * state    length:int bytes:byte[length]
+ * </pre>
+ * The slots are in the order the game updates and draws its sprites, and a
+ * type is the name of the class of a sprite.
+ * A string is its length in UTF-8 bytes, or -1 for null, followed by the bytes.
+ */
+final class SaveFormat {
+  static final long MAGIC = 0x504f4e4753415601L; // "PONGSAV" 1
+  static final int VERSION = 3;
+  static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+  static final int STATE_CAPACITY = 64 * 1024;
+  static final int BUFFER_SIZE = 1024 * 1024;
+
+  private SaveFormat() {
+  }
+
+  /**
+   * Reads a string.
+   * @param in The buffer to read from.
+   * @return The string, or null.
+   */
+  static String getString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return(null);
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return(new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads a column of floats into an array in one bulk copy.
+   * @param in The buffer to read from.
+   * @param values The array to fill.
+   * @param count The number of values.
+   */
+  static void getFloats(ByteBuffer in, float[] values, int count) {
+    in.asFloatBuffer().get(values, 0, count);
+    in.position(in.position() + count * Float.BYTES);
+  }
+
+  /**
+   * Reads a column of ints into an array in one bulk copy.
+   * @param in The buffer to read from.
+   * @param values The array to fill.
+   * @param count The number of values.
+   */
+  static void getInts(ByteBuffer in, int[] values, int count) {
+    in.asIntBuffer().get(values, 0, count);
+    in.position(in.position() + count * Integer.BYTES);
+  }
+
+  /**
+   * Writes a save to a channel through a buffer, in blocks of the buffer size.
+   */
+  static class Writer {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates an instance of the Writer class.
+     * @param channel The channel to write to.
+     * @param buffer The buffer to write through, preferably direct.
+     */
+    Writer(WritableByteChannel channel, ByteBuffer buffer) {
+      this.channel = channel;
+      this.buffer = buffer;
+      buffer.clear();
+      buffer.order(ORDER);
+    }
+
+    /**
+     * Writes a byte.
+     * @param value The value.
+     * @return The current writer instance.
+     */
+    Writer putByte(int value) throws IOException {
+      ensureSpace(Byte.BYTES);
+      buffer.put((byte) value);
+      return(this);
+    }
+
+    /**
+     * Writes an int.
+     * @param value The value.
+     * @return The current writer instance.
+     */
+    Writer putInt(int value) throws IOException {
+      ensureSpace(Integer.BYTES);
+      buffer.putInt(value);
+      return(this);
+    }
+
+    /**
+     * Writes a long.
+     * @param value The value.
+     * @return The current writer instance.
+     */
+    Writer putLong(long value) throws IOException {
+      ensureSpace(Long.BYTES);
+      buffer.putLong(value);
+      return(this);
+    }
+
+    /**
+     * Writes a double.
+     * @param value The value.
+     * @return The current writer instance.
+     */
+    Writer putDouble(double value) throws IOException {
+      ensureSpace(Double.BYTES);
+      buffer.putDouble(value);
+      return(this);
+    }
+
+    /**
+     * Writes a string.
+     * @param value The string, or null.
+     * @return The current writer instance.
+     */
+    Writer putString(String value) throws IOException {
+      if (value == null) {
+        return(putInt(-1));
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      return(put(ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer.
+     * @param bytes The bytes to write.
+     * @return The current writer instance.
+     */
+    Writer put(ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        ensureSpace(1);
+        int chunk = Math.min(bytes.remaining(), buffer.remaining());
+        ByteBuffer slice = bytes.duplicate();
+        slice.limit(slice.position() + chunk);
+        buffer.put(slice);
+        bytes.position(bytes.position() + chunk);
+      }
+      return(this);
+    }
+
+    /**
+     * Writes a column of floats in bulk copies.
+     * @param values The array holding the values.
+     * @param count The number of values.
+     * @return The current writer instance.
+     */
+    Writer putFloats(float[] values, int count) throws IOException {
+      for (int offset = 0; offset < count;) {
+        ensureSpace(Float.BYTES);
+        int chunk = Math.min(count - offset, buffer.remaining() / Float.BYTES);
+        buffer.asFloatBuffer().put(values, offset, chunk);
+        buffer.position(buffer.position() + chunk * Float.BYTES);
+        offset += chunk;
+      }
+      return(this);
+    }
+
+    /**
+     * Writes a column of ints in bulk copies.
+     * @param values The array holding the values.
+     * @param count The number of values.
+     * @return The current writer instance.
+     */
+    Writer putInts(int[] values, int count) throws IOException {
+      for (int offset = 0; offset < count;) {
+        ensureSpace(Integer.BYTES);
+        int chunk = Math.min(count - offset, buffer.remaining() / Integer.BYTES);
+        buffer.asIntBuffer().put(values, offset, chunk);
+        buffer.position(buffer.position() + chunk * Integer.BYTES);
+        offset += chunk;
+      }
+      return(this);
+    }
+
+    /**
+     * Writes out everything that is buffered.
+     */
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Makes sure the buffer has room for a value, writing it out if not.
+     * @param bytes The size of the value.
+     */
+    private void ensureSpace(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Shares one Color instance among all sprites of the same color, such as
+   * while a save is loaded, with a primitive hash table so that looking up a
+   * color allocates nothing.
+   */
+  static class ColorCache {
+    private int[] keys = new int[64];
+    private Color[] colors = new Color[64];
+    private int size;
+
+    /**
+     * Retrieves the number of colors in the cache.
+     * @return The number of colors.
+     */
+    int size() {
+      return(size);
+    }
+
+    /**
+     * Retrieves the color for an ARGB value.
+     * @param argb The color as written by {@link Color#getRGB()}, or 0 for none.
+     * @return The color, or null for 0.
+     */
+    Color get(int argb) {
+      if (argb == 0) {
+        return(null);
+      }
+      int mask = keys.length - 1;
+      for (int index = mix(argb) & mask;; index = (index + 1) & mask) {
+        if (colors[index] == null) {
+          Color color = new Color(argb, true);
+          keys[index] = argb;
+          colors[index] = color;
+          if (++size * 2 > keys.length) {
+            grow();
+          }
+          return(color);
+        }
+        if (keys[index] == argb) {
+          return(colors[index]);
+        }
+      }
+    }
+
+    /**
+     * Doubles the table.
+     */
+    private void grow() {
+      int[] oldKeys = keys;
+      Color[] oldColors = colors;
+      keys = new int[oldKeys.length * 2];
+      colors = new Color[oldColors.length * 2];
+      int mask = keys.length - 1;
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldColors[slot] != null) {
+          int index = mix(oldKeys[slot]) & mask;
+          while (colors[index] != null) {
+            index = (index + 1) & mask;
+          }
+          keys[index] = oldKeys[slot];
+          colors[index] = oldColors[slot];
+        }
+      }
+    }
+
+    /**
+     * Spreads the bits of a color over the table.
+     */
+    private static int mix(int argb) {
+      int hash = argb * 0x9e3779b9;
+      return(hash ^ (hash >>> 16));
+    }
+  }
+}
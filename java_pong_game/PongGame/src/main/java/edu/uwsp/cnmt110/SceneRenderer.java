@@ -0,0 +1,394 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the game scene: the background, every drawable sprite, the statistics
+ * and the overlay message. Shared by the passive and active screens.
+ *
+ * The scene is composited from three layers: the background, the sprites and
+ * the heads-up display. The background and the message rarely change, so they
+ * are rendered into cached images once and only composited on later frames.
+ *
+ * Sprites are drawn from the latest world snapshot published by the game
+ * thread rather than from the live sprites, so a frame is always consistent.
+ */
+class SceneRenderer {
+  private static final Font STATISTICS_FONT = new Font("dialog", Font.PLAIN, 12);
+  private static final Font MESSAGE_FONT = new Font("helvetica", Font.PLAIN | Font.BOLD, 36);
+  private static final int MESSAGE_CACHE_SIZE = 8;
+  private static final GamePhase[] PHASES = GamePhase.values();
+  private static final String[] PHASE_LABELS = {"input", "update", "render", "present"};
+  private static final int MAX_STATISTICS_LINES = 1 + PHASES.length;
+
+  private final Game game;
+  private final SnapshotBuffer snapshots;
+  private final GameMetrics gameMetrics;
+  private long frames = 0;
+  private long frameStart;
+  private volatile boolean metricsOverlay;
+  private WorldSnapshot snapshot;
+  private String message;
+  private final SpriteBatch batch = new SpriteBatch();
+  private volatile int bitsPerChannel = 8;
+  private int batchBits = 8;
+  private int drawCalls;
+  private int stateChanges;
+  private int lastDrawCalls;
+  private int lastStateChanges;
+  private int lastSprites;
+  private final StringBuilder statistics = new StringBuilder(128);
+  private char[] statisticsChars = new char[128];
+  private final int[] statisticsLineEnds = new int[MAX_STATISTICS_LINES];
+  private int statisticsLines;
+  private FontMetrics statisticsMetrics;
+  private FontMetrics messageMetrics;
+  private final TextImageCache messageImages = new TextImageCache(MESSAGE_CACHE_SIZE);
+  private String cachedMessage;
+  private BufferedImage cachedMessageImage;
+  private IDrawable cachedBackground;
+  private BufferedImage backgroundImage;
+
+  /**
+   * Creates an instance of the SceneRenderer class.
+   * @param game The game whose scene is drawn.
+   * @param snapshots The buffer the game publishes its world snapshots to.
+   */
+  SceneRenderer(Game game, SnapshotBuffer snapshots) {
+    this.game = game;
+    this.snapshots = snapshots;
+    this.gameMetrics = game.getMetrics();
+  }
+
+  /**
+   * Retrieves the number of frames drawn so far.
+   * @return The frame count.
+   */
+  long getFrames() {
+    return(frames);
+  }
+
+  /**
+   * Sets the palette used to group sprite outlines by color. Takes effect from
+   * the next frame.
+   * @param bitsPerChannel 8 to group by exact color, fewer for a coarser palette.
+   */
+  void setColorQuantization(int bitsPerChannel) {
+    if ((bitsPerChannel < 1) || (bitsPerChannel > 8)) {
+      throw new IllegalArgumentException("bitsPerChannel must be between 1 and 8");
+    }
+    this.bitsPerChannel = bitsPerChannel;
+  }
+
+  /**
+   * Retrieves the number of draw calls made for sprites in the last frame.
+   * @return The draw call count.
+   */
+  int getDrawCalls() {
+    return(lastDrawCalls);
+  }
+
+  /**
+   * Retrieves the number of drawable sprites in the last frame.
+   * @return The sprite count.
+   */
+  int getSprites() {
+    return(lastSprites);
+  }
+
+  /**
+   * Retrieves the number of color changes made for sprites in the last frame.
+   * @return The state change count.
+   */
+  int getStateChanges() {
+    return(lastStateChanges);
+  }
+
+  /**
+   * Shows or hides the latency of each phase of the game loop above the
+   * statistics line.
+   * @param metricsOverlay True to show the latencies, false to hide them.
+   */
+  void setMetricsOverlay(boolean metricsOverlay) {
+    this.metricsOverlay = metricsOverlay;
+  }
+
+  /**
+   * Indicates if the latency of each phase is shown.
+   * @return True if shown, false if otherwise.
+   */
+  boolean isMetricsOverlay() {
+    return(metricsOverlay);
+  }
+
+  /**
+   * Records how long it took to present the last frame.
+   * @param presentNanos The present time in nanoseconds.
+   */
+  void setPresentNanos(long presentNanos) {
+    gameMetrics.record(GamePhase.PRESENT, presentNanos);
+  }
+
+  /**
+   * Appends a duration in milliseconds with two decimals without allocating.
+   * @param nanos The duration in nanoseconds.
+   */
+  private void appendMillis(long nanos) {
+    long hundredths = nanos / 10000;
+    statistics.append(hundredths / 100).append('.');
+    if (hundredths % 100 < 10) {
+      statistics.append('0');
+    }
+    statistics.append(hundredths % 100);
+  }
+
+  /**
+   * Ends the current line of the statistics.
+   */
+  private void endStatisticsLine() {
+    statisticsLineEnds[statisticsLines++] = statistics.length();
+  }
+
+  /**
+   * Formats the statistics into the reusable character buffer without
+   * allocating: the latency of each phase when the overlay is on, then the
+   * rates and counts of the game loop and the renderer.
+   * @param sprites The number of sprites in the game.
+   */
+  private void formatStatistics(int sprites) {
+    statistics.setLength(0);
+    statisticsLines = 0;
+    if (metricsOverlay) {
+      for (int phase = 0; phase < PHASES.length; phase++) {
+        LatencyHistogram histogram = gameMetrics.getHistogram(PHASES[phase]);
+        statistics.append(PHASE_LABELS[phase]).append(": p50 ");
+        appendMillis(histogram.getPercentile(50));
+        statistics.append(", p99 ");
+        appendMillis(histogram.getPercentile(99));
+        statistics.append(", p99.9 ");
+        appendMillis(histogram.getPercentile(99.9));
+        statistics.append(", max ");
+        appendMillis(histogram.getMax());
+        statistics.append("ms");
+        endStatisticsLine();
+      }
+    }
+    statistics.append("Statistics: (ticks/s: ").append(Math.round(gameMetrics.getTicksPerSecond()))
+              .append(", frames/s: ").append(Math.round(gameMetrics.getFramesPerSecond()))
+              .append(", dropped: ").append(gameMetrics.getDroppedFrames())
+              .append(", sprites: ").append(sprites)
+              .append(", draws: ").append(lastDrawCalls)
+              .append(", colors: ").append(lastStateChanges).append(')');
+    endStatisticsLine();
+    int length = statistics.length();
+    if (statisticsChars.length < length) {
+      statisticsChars = new char[length * 2];
+    }
+    statistics.getChars(0, length, statisticsChars, 0);
+  }
+
+  /**
+   * Displays / draws the statistics to the lower corner of the screen, the
+   * last line at the bottom.
+   * @param g The graphics / canvas to draw or paint on.
+   * @param height The height of the area being drawn.
+   */
+  private void overlayStatistics(Graphics g, int height) {
+    g.setColor(Color.LIGHT_GRAY);
+    g.setFont(STATISTICS_FONT);
+    FontMetrics fontMetrics = metrics(g, STATISTICS_FONT);
+    int y = height - fontMetrics.getHeight() / 2 - (statisticsLines - 1) * fontMetrics.getHeight();
+    int start = 0;
+    for (int line = 0; line < statisticsLines; line++) {
+      g.drawChars(statisticsChars, start, statisticsLineEnds[line] - start, 5, y);
+      start = statisticsLineEnds[line];
+      y += fontMetrics.getHeight();
+    }
+  }
+
+  /**
+   * Displays or overlays the specified message to the center of the screen.
+   * The message is rasterized once and then composited from the image cache.
+   * @param g The graphics / canvas to draw to.
+   * @param message The message to display.
+   * @param width The width of the area being drawn.
+   * @param height The height of the area being drawn.
+   */
+  private void overlayMessage(Graphics g, String message, int width, int height) {
+    if (message != cachedMessage) {
+      cachedMessageImage = messageImages.get(g, message, MESSAGE_FONT, Color.ORANGE);
+      cachedMessage = message;
+    }
+    g.drawImage(cachedMessageImage, width / 2 - cachedMessageImage.getWidth() / 2,
+                height / 2 - metrics(g, MESSAGE_FONT).getAscent(), null);
+  }
+
+  /**
+   * Retrieves the metrics of one of the overlay fonts, measuring it only once.
+   * @param g The graphics used to measure the font.
+   * @param font The overlay font.
+   * @return The font metrics.
+   */
+  private FontMetrics metrics(Graphics g, Font font) {
+    if (font == STATISTICS_FONT) {
+      if (statisticsMetrics == null) {
+        statisticsMetrics = g.getFontMetrics(font);
+      }
+      return(statisticsMetrics);
+    }
+    if (messageMetrics == null) {
+      messageMetrics = g.getFontMetrics(font);
+    }
+    return(messageMetrics);
+  }
+
+  /**
+   * Draws the background layer. A plain background is filled directly; a
+   * custom one is drawn once into a compatible image and composited after.
+   * @param g The graphics / canvas to draw to.
+   * @param width The width of the area to draw.
+   * @param height The height of the area to draw.
+   */
+  private void renderBackground(Graphics g, int width, int height) {
+    IDrawable background = game.getBackground();
+    if (background == null) {
+      g.setColor(Color.BLACK);
+      g.fillRect(0, 0, width, height);
+      return;
+    }
+    if ((background != cachedBackground) || (backgroundImage == null) ||
+        (backgroundImage.getWidth() != width) || (backgroundImage.getHeight() != height)) {
+      backgroundImage = (g instanceof Graphics2D)
+          ? ((Graphics2D) g).getDeviceConfiguration().createCompatibleImage(width, height)
+          : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics graphics = backgroundImage.getGraphics();
+      try {
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(0, 0, width, height);
+        background.paint(graphics);
+      } finally {
+        graphics.dispose();
+      }
+      cachedBackground = background;
+    }
+    g.drawImage(backgroundImage, 0, 0, null);
+  }
+
+  /**
+   * Draws or renders a complete frame.
+   * @param g The graphics / canvas to draw to.
+   * @param width The width of the area to draw.
+   * @param height The height of the area to draw.
+   */
+  void render(Graphics g, int width, int height) {
+    beginFrame();
+    renderScene(g, width, height);
+    endFrame();
+  }
+
+  /**
+   * Starts a new frame, taking the latest world snapshot to draw in it.
+   */
+  void beginFrame() {
+    frameStart = System.nanoTime();
+    frames++;
+    snapshot = snapshots.acquire();
+    message = snapshot.getMessage();
+    drawCalls = 0;
+    stateChanges = 0;
+    formatStatistics(snapshot.getSpriteCount());
+    if (bitsPerChannel != batchBits) {
+      batchBits = bitsPerChannel;
+      batch.setBitsPerChannel(batchBits);
+    }
+  }
+
+  /**
+   * Finishes the current frame.
+   */
+  void endFrame() {
+    gameMetrics.record(GamePhase.RENDER, System.nanoTime() - frameStart);
+    gameMetrics.countFrame();
+    lastSprites = snapshot.size();
+    snapshot = null;
+    lastDrawCalls = drawCalls;
+    lastStateChanges = stateChanges;
+  }
+
+  /**
+   * Collects the screen rectangles that the current frame draws on: the
+   * outline of each drawable sprite, the statistics and the message.
+   * @param g The graphics used to measure text.
+   * @param regions The list to add the rectangles to.
+   * @param width The width of the area being drawn.
+   * @param height The height of the area being drawn.
+   */
+  void collectBounds(Graphics g, DirtyRegions regions, int width, int height) {
+    for (int index = 0; index < snapshot.size(); index++) {
+      // outlines are drawn on both the min and the max edge, so include the latter
+      regions.add(snapshot.getMinX(index), snapshot.getMinY(index),
+                  snapshot.getWidth(index) + 1, snapshot.getHeight(index) + 1);
+    }
+
+    FontMetrics metrics = metrics(g, STATISTICS_FONT);
+    int statisticsTop = height - metrics.getHeight() / 2 - metrics.getAscent()
+                        - (statisticsLines - 1) * metrics.getHeight();
+    regions.add(0, statisticsTop, width, height - statisticsTop);
+
+    if ((message != null) && (!message.isEmpty())) {
+      metrics = metrics(g, MESSAGE_FONT);
+      int messageWidth = metrics.stringWidth(message);
+      regions.add(width / 2 - messageWidth / 2, height / 2 - metrics.getAscent(),
+                  messageWidth + 1, metrics.getAscent() + metrics.getDescent());
+    }
+  }
+
+  /**
+   * Draws the current frame. Only sprites that touch the clip of the graphics
+   * are drawn, so a frame can be redrawn one dirty region at a time. Plain
+   * sprite outlines are batched by color, and the batch is drawn before each
+   * sprite that paints itself, so such a sprite still covers the outlines
+   * before it and is covered by the ones after it.
+   * @param g The graphics / canvas to draw to.
+   * @param width The width of the area to draw.
+   * @param height The height of the area to draw.
+   */
+  void renderScene(Graphics g, int width, int height) {
+    renderBackground(g, width, height);
+
+    for (int index = 0; index < snapshot.size(); index++) {
+      int x = snapshot.getMinX(index);
+      int y = snapshot.getMinY(index);
+      int spriteWidth = snapshot.getWidth(index);
+      int spriteHeight = snapshot.getHeight(index);
+      if (g.hitClip(x, y, spriteWidth + 1, spriteHeight + 1)) {
+        IDrawable painter = snapshot.getPainter(index);
+        if (painter == null) {
+          batch.add(snapshot.getColor(index), x, y, spriteWidth, spriteHeight);
+        } else {
+          flushBatch(g);
+          painter.paint(g);
+          drawCalls++;
+          stateChanges++;
+        }
+      }
+    }
+    flushBatch(g);
+
+    overlayStatistics(g, height);
+    if ((message != null) && (!message.isEmpty())) {
+      overlayMessage(g, message, width, height);
+    }
+  }
+
+  /**
+   * Draws the outlines batched so far and counts its draw calls.
+   * @param g The graphics / canvas to draw to.
+   */
+  private void flushBatch(Graphics g) {
+    batch.flush(g);
+    drawCalls += batch.getDrawCalls();
+    stateChanges += batch.getStateChanges();
+  }
+}
@@ -0,0 +1,69 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * A handle to an action scheduled on a {@link Scheduler}. Tasks waiting in
+ * the same wheel slot form an intrusive doubly linked list, so cancelling one
+ * takes constant time.
+ */
+public class ScheduledTask {
+  final Runnable action;
+  final long period;
+  long deadline;
+  long rounds;
+  boolean cancelled;
+  boolean done;
+  ScheduledTask previous;
+  ScheduledTask next;
+  Scheduler.Slot slot;
+
+  /**
+   * Creates an instance of the ScheduledTask class.
+   * @param action The action to run.
+   * @param deadline The game time at which the action first runs.
+   * @param period The game time between runs, or 0 to run once.
+   */
+  ScheduledTask(Runnable action, long deadline, long period) {
+    this.action = action;
+    this.deadline = deadline;
+    this.period = period;
+  }
+
+  /**
+   * Stops the task from running again. Has no effect if it already finished.
+   * @return True if the task was pending and is now cancelled, false if otherwise.
+   */
+  public boolean cancel() {
+    if (cancelled || done) {
+      return(false);
+    }
+    cancelled = true;
+    if (slot != null) {
+      slot.remove(this);
+    }
+    return(true);
+  }
+
+  /**
+   * Indicates if the task was cancelled.
+   * @return True if cancelled, false if otherwise.
+   */
+  public boolean isCancelled() {
+    return(cancelled);
+  }
+
+  /**
+   * Indicates if a one-off task has run.
+   * @return True if it ran, false if otherwise.
+   */
+  public boolean isDone() {
+    return(done);
+  }
+
+  /**
+   * Retrieves the game time at which the task runs next.
+   * @return The deadline in milliseconds of game time.
+   */
+  public long getDeadline() {
+    return(deadline);
+  }
+}
@@ -0,0 +1,214 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * Runs delayed and repeating actions on the game thread, driven by the game
+ * clock rather than the wall clock. Tasks are kept in a hashed timer wheel:
+ * each slot covers one millisecond of game time and holds the tasks due in
+ * that millisecond of any lap around the wheel, so scheduling, cancelling and
+ * advancing all take constant time per task. Because nothing runs on another
+ * thread, scheduled actions never race with the game loop and behave the same
+ * in headless and fast-forwarded runs.
+ */
+public class Scheduler {
+  private static final int WHEEL_SIZE = 1024;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  /**
+   * The tasks due in one slot of the wheel, in the order they were added.
+   */
+  static class Slot {
+    private ScheduledTask head;
+    private ScheduledTask tail;
+
+    /**
+     * Adds a task to the end of the slot, so that tasks with the same
+     * deadline run in the order they were scheduled.
+     * @param task The task to add.
+     */
+    void add(ScheduledTask task) {
+      task.slot = this;
+      task.previous = tail;
+      task.next = null;
+      if (tail != null) {
+        tail.next = task;
+      } else {
+        head = task;
+      }
+      tail = task;
+    }
+
+    /**
+     * Removes a task from the slot.
+     * @param task The task to remove.
+     */
+    void remove(ScheduledTask task) {
+      if (task.previous != null) {
+        task.previous.next = task.next;
+      } else {
+        head = task.next;
+      }
+      if (task.next != null) {
+        task.next.previous = task.previous;
+      } else {
+        tail = task.previous;
+      }
+      task.previous = null;
+      task.next = null;
+      task.slot = null;
+    }
+  }
+
+  private final Slot[] wheel = new Slot[WHEEL_SIZE];
+  private long time;
+  private long processed;
+  private boolean paused;
+
+  /**
+   * Creates an instance of the Scheduler class.
+   */
+  public Scheduler() {
+    for (int index = 0; index < WHEEL_SIZE; index++) {
+      wheel[index] = new Slot();
+    }
+  }
+
+  /**
+   * Retrieves the current time of the scheduler's clock.
+   * @return The game time in milliseconds.
+   */
+  public long getTime() {
+    return(time);
+  }
+
+  /**
+   * Indicates if the scheduler's clock is stopped.
+   * @return True if paused, false if otherwise.
+   */
+  public boolean isPaused() {
+    return(paused);
+  }
+
+  /**
+   * Stops or restarts the scheduler's clock. While paused no time passes, so
+   * pending tasks keep their remaining delay.
+   * @param paused True to pause, false to resume.
+   */
+  public void setPaused(boolean paused) {
+    this.paused = paused;
+  }
+
+  /**
+   * Retrieves the next millisecond of the clock whose tasks have not run yet.
+   * @return The game time in milliseconds.
+   */
+  long getProcessed() {
+    return(processed);
+  }
+
+  /**
+   * Sets the clock to a time saved before and cancels every pending task.
+   * Tasks hold code rather than data, so a saved game schedules its tasks
+   * again after it is loaded.
+   * @param time The time of the clock, from {@link #getTime()}.
+   * @param processed The next millisecond to run, from {@link #getProcessed()}.
+   */
+  void restore(long time, long processed) {
+    for (Slot slot : wheel) {
+      while (slot.head != null) {
+        ScheduledTask task = slot.head;
+        slot.remove(task);
+        task.cancelled = true;
+      }
+    }
+    this.time = time;
+    this.processed = processed;
+  }
+
+  /**
+   * Schedules an action to run once.
+   * @param action The action to run.
+   * @param delay The game time in milliseconds until it runs. 0 runs it on the next advance.
+   * @return The handle to the task.
+   */
+  public ScheduledTask schedule(Runnable action, long delay) {
+    return(insert(new ScheduledTask(action, time + Math.max(0, delay), 0)));
+  }
+
+  /**
+   * Schedules an action to run repeatedly.
+   * @param action The action to run.
+   * @param delay The game time in milliseconds until it first runs.
+   * @param period The game time in milliseconds between runs.
+   * @return The handle to the task.
+   */
+  public ScheduledTask scheduleAtFixedRate(Runnable action, long delay, long period) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("period must be positive");
+    }
+    return(insert(new ScheduledTask(action, time + Math.max(0, delay), period)));
+  }
+
+  /**
+   * Advances the scheduler's clock, running every task that falls due in
+   * order of its deadline. Has no effect while paused.
+   * @param elapsed The game time in milliseconds that has passed.
+   */
+  public void advance(long elapsed) {
+    if (paused || (elapsed <= 0)) {
+      return;
+    }
+    time += elapsed;
+    while (processed <= time) {
+      Slot slot = wheel[(int) (processed & MASK)];
+      processed++;
+      // Detach the slot first so anything scheduled while it runs waits for a later lap
+      ScheduledTask task = slot.head;
+      slot.head = null;
+      slot.tail = null;
+      for (ScheduledTask detached = task; detached != null; detached = detached.next) {
+        detached.slot = null;
+      }
+      while (task != null) {
+        ScheduledTask next = task.next;
+        task.previous = null;
+        task.next = null;
+        if (!task.cancelled) {
+          if (task.rounds > 0) {
+            task.rounds--;
+            slot.add(task);
+          } else {
+            run(task);
+          }
+        }
+        task = next;
+      }
+    }
+  }
+
+  /**
+   * Runs a task that fell due, rescheduling it if it repeats.
+   * @param task The task to run.
+   */
+  private void run(ScheduledTask task) {
+    if (task.period == 0) {
+      task.done = true;
+    }
+    task.action.run();
+    if ((task.period > 0) && !task.cancelled) {
+      task.deadline += task.period;
+      insert(task);
+    }
+  }
+
+  /**
+   * Places a task into the wheel slot of its deadline.
+   * @param task The task to place.
+   * @return The task.
+   */
+  private ScheduledTask insert(ScheduledTask task) {
+    long due = Math.max(task.deadline, processed);
+    task.rounds = (due - processed) / WHEEL_SIZE;
+    wheel[(int) (due & MASK)].add(task);
+    return(task);
+  }
+}
@@ -0,0 +1,63 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * Represents the throughput of a headless simulation run.
+ */
+public class SimulationReport {
+  private final long ticks;
+  private final long gameTime;
+  private final long elapsedNanos;
+
+  /**
+   * Creates an instance of the SimulationReport class.
+   * @param ticks The number of updates that were simulated.
+   * @param gameTime The amount of virtual time in milliseconds that was simulated.
+   * @param elapsedNanos The amount of wall clock time in nanoseconds the run took.
+   */
+  public SimulationReport(long ticks, long gameTime, long elapsedNanos) {
+    this.ticks = ticks;
+    this.gameTime = gameTime;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Retrieves the number of updates that were simulated.
+   * @return The number of ticks.
+   */
+  public long getTicks() {
+    return ticks;
+  }
+
+  /**
+   * Retrieves the amount of virtual time that was simulated.
+   * @return The game time in milliseconds.
+   */
+  public long getGameTime() {
+    return gameTime;
+  }
+
+  /**
+   * Retrieves the amount of wall clock time the run took.
+   * @return The elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Retrieves the simulation throughput.
+   * @return The number of updates simulated per wall clock second.
+   */
+  public double getTicksPerSecond() {
+    return((elapsedNanos > 0) ? ticks * 1e9 / elapsedNanos : 0);
+  }
+
+  /**
+   * Returns the string representation of the SimulationReport.
+   * @return The string representation.
+   */
+  public String toString() {
+    return(String.format("Simulation[ticks:%d,game time:%dms,elapsed:%.1fms,ticks/s:%.0f]",
+      getTicks(), getGameTime(), getElapsedNanos() / 1e6, getTicksPerSecond()));
+  }
+}
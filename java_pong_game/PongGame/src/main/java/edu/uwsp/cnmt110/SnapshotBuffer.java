@@ -0,0 +1,54 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands world snapshots from the game thread to the render thread without
+ * locks. Three snapshots are kept: the game thread fills the back one, the
+ * renderer reads the front one and the third holds the latest published
+ * frame. Publishing and acquiring each swap with the middle snapshot in a
+ * single atomic operation, so neither side ever waits for the other and the
+ * renderer always gets the newest complete frame.
+ */
+class SnapshotBuffer {
+  private static final int INDEX = 0x3;
+  private static final int FRESH = 0x4;
+
+  private final WorldSnapshot[] snapshots = {
+    new WorldSnapshot(), new WorldSnapshot(), new WorldSnapshot()
+  };
+  private final AtomicInteger middle = new AtomicInteger(1);
+  private int back = 0;
+  private int front = 2;
+
+  /**
+   * Retrieves the snapshot to capture the next frame into. Must only be
+   * called by the game thread.
+   * @return The back snapshot.
+   */
+  WorldSnapshot getBack() {
+    return(snapshots[back]);
+  }
+
+  /**
+   * Publishes the back snapshot as the latest frame and takes over the
+   * previous middle snapshot as the new back one. Must only be called by the
+   * game thread.
+   */
+  void publish() {
+    back = middle.getAndSet(back | FRESH) & INDEX;
+  }
+
+  /**
+   * Retrieves the latest published frame. If nothing was published since the
+   * last call the same snapshot is returned again. Must only be called by
+   * the render thread.
+   * @return The front snapshot.
+   */
+  WorldSnapshot acquire() {
+    if ((middle.get() & FRESH) != 0) {
+      front = middle.getAndSet(front) & INDEX;
+    }
+    return(snapshots[front]);
+  }
+}
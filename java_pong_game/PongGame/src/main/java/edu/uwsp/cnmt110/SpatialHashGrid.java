@@ -0,0 +1,254 @@
+package edu.uwsp.cnmt110;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid broad phase for sprite-vs-sprite collisions. Every sprite
+ * of a {@link SpriteStore} is bucketed into the grid cells its bounding
+ * rectangle covers, and only sprites sharing a cell are tested against each
+ * other. The grid is rebuilt from scratch with a counting sort on each call
+ * to {@link #build(SpriteStore)}, reusing its arrays between builds.
+ */
+class SpatialHashGrid {
+  private int cellSize;
+  private boolean autoSize;
+
+  private int[] bucketStart = new int[0];
+  private int[] entrySlot = new int[0];
+  private int[] entryCellX = new int[0];
+  private int[] entryCellY = new int[0];
+  private int[] scratchSlot = new int[0];
+  private int[] scratchBucket = new int[0];
+  private int[] scratchCellX = new int[0];
+  private int[] scratchCellY = new int[0];
+  private int[] minX = new int[0];
+  private int[] minY = new int[0];
+  private int[] maxX = new int[0];
+  private int[] maxY = new int[0];
+  private int[] cellMinX = new int[0];
+  private int[] cellMinY = new int[0];
+  private int[] cellMaxX = new int[0];
+  private int[] cellMaxY = new int[0];
+  private int[] pairs = new int[0];
+  private int pairCount;
+
+  /**
+   * Creates an instance of the SpatialHashGrid class whose cell size is taken
+   * from the largest sprite each time it is built.
+   */
+  SpatialHashGrid() {
+    this.autoSize = true;
+  }
+
+  /**
+   * Creates an instance of the SpatialHashGrid class with a fixed cell size.
+   * @param cellSize The width and height of a cell in pixels.
+   */
+  SpatialHashGrid(int cellSize) {
+    if (cellSize < 1) {
+      throw new IllegalArgumentException("cellSize must be at least 1");
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Retrieves the cell size used by the last build.
+   * @return The width and height of a cell in pixels.
+   */
+  int getCellSize() {
+    return(cellSize);
+  }
+
+  /**
+   * Retrieves the number of overlapping pairs found by the last build.
+   * @return The number of pairs.
+   */
+  int getPairCount() {
+    return(pairCount);
+  }
+
+  /**
+   * Retrieves the first slot of an overlapping pair.
+   * @param pair The pair index, less than {@link #getPairCount()}.
+   * @return The slot index in the store.
+   */
+  int getFirst(int pair) {
+    return(pairs[pair * 2]);
+  }
+
+  /**
+   * Retrieves the second slot of an overlapping pair.
+   * @param pair The pair index, less than {@link #getPairCount()}.
+   * @return The slot index in the store.
+   */
+  int getSecond(int pair) {
+    return(pairs[pair * 2 + 1]);
+  }
+
+  /**
+   * Rebuilds the grid from the current sprite positions and collects every
+   * pair of overlapping sprites. Each pair is reported once, from the cell
+   * holding the upper left corner of the overlap.
+   * @param store The store holding the sprites.
+   * @return The number of overlapping pairs.
+   */
+  int build(SpriteStore store) {
+    final int n = store.size();
+    pairCount = 0;
+    if (n < 2) {
+      return(0);
+    }
+    computeBounds(store, n);
+
+    // Emit one unsorted entry per covered cell, remembering its bucket
+    int entries = 0;
+    for (int slot = 0; slot < n; slot++) {
+      entries += (cellMaxX[slot] - cellMinX[slot] + 1) * (cellMaxY[slot] - cellMinY[slot] + 1);
+    }
+    int buckets = Integer.highestOneBit(Math.max(2, entries) * 2 - 1);
+    int mask = buckets - 1;
+    ensureEntries(entries);
+    if (bucketStart.length < buckets + 1) {
+      bucketStart = new int[buckets + 1];
+    } else {
+      Arrays.fill(bucketStart, 0, buckets + 1, 0);
+    }
+    int entry = 0;
+    for (int slot = 0; slot < n; slot++) {
+      for (int cy = cellMinY[slot]; cy <= cellMaxY[slot]; cy++) {
+        for (int cx = cellMinX[slot]; cx <= cellMaxX[slot]; cx++) {
+          int bucket = hash(cx, cy) & mask;
+          scratchSlot[entry] = slot;
+          scratchBucket[entry] = bucket;
+          scratchCellX[entry] = cx;
+          scratchCellY[entry] = cy;
+          bucketStart[bucket + 1]++;
+          entry++;
+        }
+      }
+    }
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      bucketStart[bucket + 1] += bucketStart[bucket];
+    }
+
+    // Counting sort the entries by bucket, using bucketStart[b] as the fill cursor for bucket b
+    for (int i = 0; i < entries; i++) {
+      int sorted = bucketStart[scratchBucket[i]]++;
+      entrySlot[sorted] = scratchSlot[i];
+      entryCellX[sorted] = scratchCellX[i];
+      entryCellY[sorted] = scratchCellY[i];
+    }
+    // The cursors now point at the end of each bucket, which is the start of the next
+    System.arraycopy(bucketStart, 0, bucketStart, 1, buckets);
+    bucketStart[0] = 0;
+
+    for (int bucket = 0; bucket < buckets; bucket++) {
+      int end = bucketStart[bucket + 1];
+      for (int i = bucketStart[bucket]; i < end; i++) {
+        int a = entrySlot[i];
+        for (int j = i + 1; j < end; j++) {
+          if ((entryCellX[i] != entryCellX[j]) || (entryCellY[i] != entryCellY[j])) {
+            continue;
+          }
+          int b = entrySlot[j];
+          if (Rectangle.intersects(minX[a], minY[a], maxX[a], maxY[a], minX[b], minY[b], maxX[b], maxY[b]) &&
+              (Math.max(cellMinX[a], cellMinX[b]) == entryCellX[i]) &&
+              (Math.max(cellMinY[a], cellMinY[b]) == entryCellY[i])) {
+            addPair(a, b);
+          }
+        }
+      }
+    }
+    return(pairCount);
+  }
+
+  /**
+   * Calculates the bounding rectangle of every slot, matching the integer
+   * bounds reported by {@link Sprite#getMinX()} and friends.
+   * @param store The store holding the sprites.
+   * @param n The number of slots.
+   */
+  private void computeBounds(SpriteStore store, int n) {
+    if (minX.length < n) {
+      int length = Math.max(n, minX.length * 2);
+      minX = new int[length];
+      minY = new int[length];
+      maxX = new int[length];
+      maxY = new int[length];
+      cellMinX = new int[length];
+      cellMinY = new int[length];
+      cellMaxX = new int[length];
+      cellMaxY = new int[length];
+    }
+    int largest = 1;
+    for (int slot = 0; slot < n; slot++) {
+      int width = store.width[slot];
+      int height = store.height[slot];
+      minX[slot] = Math.round(store.x[slot]) - width / 2;
+      minY[slot] = Math.round(store.y[slot]) - height / 2;
+      maxX[slot] = minX[slot] + width;
+      maxY[slot] = minY[slot] + height;
+      largest = Math.max(largest, Math.max(width, height));
+    }
+    if (autoSize) {
+      cellSize = largest;
+    }
+    for (int slot = 0; slot < n; slot++) {
+      cellMinX[slot] = cell(minX[slot]);
+      cellMinY[slot] = cell(minY[slot]);
+      cellMaxX[slot] = cell(maxX[slot]);
+      cellMaxY[slot] = cell(maxY[slot]);
+    }
+  }
+
+  /**
+   * Grows the entry arrays so that the specified number of entries fit.
+   * @param entries The required number of entries.
+   */
+  private void ensureEntries(int entries) {
+    if (entrySlot.length < entries) {
+      int length = Math.max(entries, entrySlot.length * 2);
+      entrySlot = new int[length];
+      entryCellX = new int[length];
+      entryCellY = new int[length];
+      scratchSlot = new int[length];
+      scratchBucket = new int[length];
+      scratchCellX = new int[length];
+      scratchCellY = new int[length];
+    }
+  }
+
+  /**
+   * Converts a coordinate into a cell coordinate.
+   * @param value The coordinate in pixels.
+   * @return The cell coordinate.
+   */
+  private int cell(int value) {
+    return(Math.floorDiv(value, cellSize));
+  }
+
+  /**
+   * Hashes a cell coordinate.
+   * @param cx The horizontal cell coordinate.
+   * @param cy The vertical cell coordinate.
+   * @return The hash code.
+   */
+  private static int hash(int cx, int cy) {
+    int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA77;
+    return(h ^ (h >>> 16));
+  }
+
+  /**
+   * Appends a pair to the pair list, growing it as needed.
+   * @param a The first slot.
+   * @param b The second slot.
+   */
+  private void addPair(int a, int b) {
+    if (pairs.length < (pairCount + 1) * 2) {
+      pairs = Arrays.copyOf(pairs, Math.max(64, pairs.length * 2));
+    }
+    pairs[pairCount * 2] = a;
+    pairs[pairCount * 2 + 1] = b;
+    pairCount++;
+  }
+}
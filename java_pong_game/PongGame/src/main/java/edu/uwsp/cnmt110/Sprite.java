@@ -1,18 +1,28 @@
 package edu.uwsp.cnmt110;
 
 /**
- * Represents a sprite for a game.
+ * Represents a sprite for a game. A Sprite is a handle onto a slot of a
+ * {@link SpriteStore}, which holds the actual position and movement state.
+ * A sprite that is not part of a game has no store and keeps its state in
+ * fields of its own, which are copied into a store when it joins one.
  */
 public abstract class Sprite {
-  private int directionX = 1;
-  private int directionY = 1;
+  private SpriteStore store;
+  private int index = -1;
+  private long handle;
 
+  // the state while the sprite has no store
   private float x;
   private float y;
+  private float angle;
+  private float vx;
+  private float vy;
   private int width;
   private int height;
-  private float angle;
   private int speed;
+  private int directionX = 1;
+  private int directionY = 1;
+  private int tags;
 
   /**
    * Creates an instance of the Sprite class.
@@ -61,8 +71,156 @@ public abstract class Sprite {
    */
   protected Sprite(Point location, int width, int height, float angle, int speed) {
     this(location, width, height);
-    this.setAngle(angle);
     this.speed = speed;
+    this.setAngle(angle);
+  }
+
+  /**
+   * Retrieves the store holding the state of the sprite.
+   * @return The store, or null if the sprite keeps its state itself.
+   */
+  SpriteStore getStore() {
+    return(store);
+  }
+
+  /**
+   * Retrieves the slot of the sprite within its store.
+   * @return The slot index.
+   */
+  int getIndex() {
+    return(index);
+  }
+
+  /**
+   * Rebinds the sprite to a slot after its state was moved.
+   * @param store The store now holding the state, or null.
+   * @param index The slot index within the store, or -1.
+   */
+  void bind(SpriteStore store, int index) {
+    this.store = store;
+    this.index = index;
+  }
+
+  /**
+   * Copies the state the sprite keeps itself into a slot, when it joins a store.
+   * @param target The store.
+   * @param slot The slot index within the store.
+   */
+  void copyTo(SpriteStore target, int slot) {
+    target.x[slot] = x;
+    target.y[slot] = y;
+    target.previousX[slot] = x;
+    target.previousY[slot] = y;
+    target.angle[slot] = angle;
+    target.vx[slot] = vx;
+    target.vy[slot] = vy;
+    target.width[slot] = width;
+    target.height[slot] = height;
+    target.speed[slot] = speed;
+    target.directionX[slot] = directionX;
+    target.directionY[slot] = directionY;
+    target.tags[slot] = tags;
+  }
+
+  /**
+   * Copies the state of the slot of the sprite into its own fields and leaves
+   * the store, before the store frees the slot.
+   */
+  void unbind() {
+    x = store.x[index];
+    y = store.y[index];
+    angle = store.angle[index];
+    vx = store.vx[index];
+    vy = store.vy[index];
+    width = store.width[index];
+    height = store.height[index];
+    speed = store.speed[index];
+    directionX = store.directionX[index];
+    directionY = store.directionY[index];
+    tags = store.tags[index];
+    bind(null, -1);
+  }
+
+  /**
+   * Retrieves the handle of the sprite within its game. A handle stays the
+   * same while the sprite is in the game, and never refers to another sprite
+   * once it has left, so it can be kept instead of the sprite and looked up
+   * again with {@link Game#getSprite(long)}.
+   * @return The handle, or 0 if the sprite is not in a game.
+   */
+  public long getHandle() {
+    return(handle);
+  }
+
+  /**
+   * Sets the handle of the sprite when it joins or leaves a game.
+   * @param handle The handle, or 0.
+   */
+  void setHandle(long handle) {
+    this.handle = handle;
+  }
+
+  /**
+   * Retrieves the tags of the sprite, a set of bits whose meaning is up to the
+   * game, such as whether the sprite is a ball or a paddle.
+   * @return The tags.
+   */
+  public int getTags() {
+    return((store != null) ? store.tags[index] : tags);
+  }
+
+  /**
+   * Sets the tags of the sprite.
+   * @param tags The tags, a set of bits.
+   * @return The instance of Sprite so subsequent methods can be chained together.
+   */
+  public Sprite setTags(int tags) {
+    if (store != null) {
+      store.tags[index] = tags;
+    } else {
+      this.tags = tags;
+    }
+    return(this);
+  }
+
+  /**
+   * Checks if the sprite has any of the specified tags.
+   * @param tags The tags to look for, a set of bits.
+   * @return True if at least one of the tags is set.
+   */
+  public boolean hasTag(int tags) {
+    return((getTags() & tags) != 0);
+  }
+
+  /**
+   * Puts the sprite in the state a constructor would, such as after it was
+   * recycled: its direction is reset and it has no tags.
+   * @param x The center position on the horizontal axis.
+   * @param y The center position on the vertical axis.
+   * @param width The width of the sprite.
+   * @param height The height of the sprite.
+   * @param angle The angle or direction that the sprite is moving.
+   * @param speed The distance that the sprite moves along the specified angle per second.
+   * @return The instance of Sprite so subsequent methods can be chained together.
+   */
+  public Sprite reset(int x, int y, int width, int height, float angle, int speed) {
+    if (store != null) {
+      store.width[index] = width;
+      store.height[index] = height;
+      store.speed[index] = speed;
+      store.directionX[index] = 1;
+      store.directionY[index] = 1;
+      store.tags[index] = 0;
+    } else {
+      this.width = width;
+      this.height = height;
+      this.speed = speed;
+      this.directionX = 1;
+      this.directionY = 1;
+      this.tags = 0;
+    }
+    moveTo(x, y);
+    return(setAngle(angle));
   }
 
   /**
@@ -79,7 +237,7 @@ public abstract class Sprite {
    * @return The width in pixels.
    */
   public int getWidth() {
-    return width;
+    return (store != null) ? store.width[index] : width;
   }
 
   /**
@@ -87,7 +245,7 @@ public abstract class Sprite {
    * @return The height in pixels.
    */
   public int getHeight() {
-    return height;
+    return (store != null) ? store.height[index] : height;
   }
 
   /**
@@ -95,7 +253,7 @@ public abstract class Sprite {
    * @return The angle between 0-359.
    */
   public float getAngle() {
-    return angle;
+    return (store != null) ? store.angle[index] : angle;
   }
 
   /**
@@ -104,7 +262,14 @@ public abstract class Sprite {
    * @return The instance of Sprite so subsequent methods can be chained together.
    */
   public Sprite setAngle(float angle) {
-    this.angle = (angle >= 360) ? angle % 360 : angle;
+    angle = (angle >= 360) ? angle % 360 : angle;
+    if (store != null) {
+      store.angle[index] = angle;
+      store.updateVelocity(index);
+    } else {
+      this.angle = angle;
+      updateVelocity();
+    }
     return(this);
   }
 
@@ -113,7 +278,7 @@ public abstract class Sprite {
    * @return The speed or distance of the sprite.
    */
   public int getSpeed() {
-    return speed;
+    return (store != null) ? store.speed[index] : speed;
   }
 
   /**
@@ -122,10 +287,26 @@ public abstract class Sprite {
    * @return The instance of Sprite so subsequent methods can be chained together.
    */
   public Sprite setSpeed(int speed) {
-    this.speed = speed;
+    if (store != null) {
+      store.speed[index] = speed;
+      store.updateVelocity(index);
+    } else {
+      this.speed = speed;
+      updateVelocity();
+    }
     return(this);
   }
 
+  /**
+   * Recalculates the velocity the sprite keeps itself from its speed, angle
+   * and direction, the same way {@link SpriteStore#updateVelocity(int)} does.
+   */
+  private void updateVelocity() {
+    float distance = speed * (60.0f / 1000.0f);
+    vx = TrigTable.cos(angle) * distance * directionX;
+    vy = TrigTable.sin(angle) * distance * directionY;
+  }
+
   /**
    * Returns the center point for the Sprite.
    * @return The center point.
@@ -135,14 +316,31 @@ public abstract class Sprite {
   }
 
   /**
-   * Moves or repositions the sprite to the specified location.
+   * Copies the center point for the Sprite into an existing Point.
+   * @param position The point to fill in.
+   * @return The filled in point.
+   */
+  public Point getPosition(Point position) {
+    position.set(getX(), getY());
+    return(position);
+  }
+
+  /**
+   * Moves or repositions the sprite to the specified location. The sprite is
+   * drawn at the new location straight away rather than sliding to it.
    * @param x The new position on the horizontal axis.
    * @param y The new position on the veritical axis.
    * @return The instance of Sprite so subsequent methods can be chained together.
    */
   public Sprite moveTo(int x, int y) {
-    this.x = x;
-    this.y = y;
+    if (store != null) {
+      store.x[index] = x;
+      store.y[index] = y;
+      store.snap(index);
+    } else {
+      this.x = x;
+      this.y = y;
+    }
     return(this);
   }
 
@@ -155,23 +353,63 @@ public abstract class Sprite {
     return(moveTo(point.getX(), point.getY()));
   }
 
+  /**
+   * Returns the distance the sprite moves per millisecond on the horizontal axis, including any bounces.
+   * @return The horizontal velocity.
+   */
+  public float getVelocityX() {
+    return((store != null) ? store.vx[index] : vx);
+  }
+
+  /**
+   * Returns the distance the sprite moves per millisecond on the vertical axis, including any bounces.
+   * @return The vertical velocity.
+   */
+  public float getVelocityY() {
+    return((store != null) ? store.vy[index] : vy);
+  }
+
   /**
    * Performs a automatic move or recalculation of the Sprites position based on it's speed and angle.
+   * The distance travelled is proportional to the time interval, so a sprite covers the same ground
+   * per second regardless of how often it is updated.
    * @param timeInterval The amount of time in milliseconds that has passed since the last update interval.
-   * @return The new location of the Sprite.
+   * @return The instance of Sprite so subsequent methods can be chained together.
    */
-  public Point move(long timeInterval) {
-    if (timeInterval > 0) {
-      float distance = getSpeed() / ((float) timeInterval / (60.0f / 1000.0f));
+  public Sprite move(long timeInterval) {
+    if (store != null) {
+      store.move(index, timeInterval);
+    } else if (timeInterval > 0) {
+      x += vx * timeInterval;
+      y += vy * timeInterval;
+    }
+    return(this);
+  }
 
-      float radianAngle = (float) (getAngle() * Math.PI/180f);
-      float distanceX = (float) Math.cos(radianAngle) * distance;
-      float distanceY = (float) Math.sin(radianAngle) * distance;
+  /**
+   * Moves the sprite along its velocity for a fraction of an update interval.
+   * @param timeInterval The amount of time in milliseconds to move for.
+   * @return The instance of Sprite so subsequent methods can be chained together.
+   */
+  public Sprite move(float timeInterval) {
+    return(translate(getVelocityX() * timeInterval, getVelocityY() * timeInterval));
+  }
 
-      this.x += (distanceX * directionX);
-      this.y += (distanceY * directionY);
+  /**
+   * Moves the sprite by the specified distance without rounding.
+   * @param dx The distance to move on the horizontal axis.
+   * @param dy The distance to move on the vertical axis.
+   * @return The instance of Sprite so subsequent methods can be chained together.
+   */
+  public Sprite translate(float dx, float dy) {
+    if (store != null) {
+      store.x[index] += dx;
+      store.y[index] += dy;
+    } else {
+      x += dx;
+      y += dy;
     }
-    return(new Point(getX(), getY()));
+    return(this);
   }
 
   /**
@@ -179,10 +417,48 @@ public abstract class Sprite {
    * @return The bounding rectangle.
    */
   public Rectangle getBoundingRect() {
-    Point position = getPosition();
-    return(new Rectangle(new Point(position.getX() - (getWidth() / 2),
-                                   position.getY() - (getHeight() /2 )),
-                         getWidth(), getHeight()));
+    return(getBoundingRect(new Rectangle()));
+  }
+
+  /**
+   * Copies the bounding rectangle that encompasses or outlines the sprite into an existing Rectangle.
+   * @param rectangle The rectangle to fill in.
+   * @return The filled in rectangle.
+   */
+  public Rectangle getBoundingRect(Rectangle rectangle) {
+    return(rectangle.set(getMinX(), getMinY(), getMaxX(), getMaxY()));
+  }
+
+  /**
+   * Returns the left edge of the bounding rectangle.
+   * @return The smallest position on the x axis.
+   */
+  public int getMinX() {
+    return(getX() - (getWidth() / 2));
+  }
+
+  /**
+   * Returns the top edge of the bounding rectangle.
+   * @return The smallest position on the y axis.
+   */
+  public int getMinY() {
+    return(getY() - (getHeight() / 2));
+  }
+
+  /**
+   * Returns the right edge of the bounding rectangle.
+   * @return The largest position on the x axis.
+   */
+  public int getMaxX() {
+    return(getMinX() + getWidth());
+  }
+
+  /**
+   * Returns the bottom edge of the bounding rectangle.
+   * @return The largest position on the y axis.
+   */
+  public int getMaxY() {
+    return(getMinY() + getHeight());
   }
 
   /**
@@ -191,7 +467,19 @@ public abstract class Sprite {
    * @return True if colliding, false if otherwise.
    */
   public boolean collidesWith(Sprite sprite) {
-    return(this.getBoundingRect().intersectsWith(sprite.getBoundingRect()));
+    return(intersects(sprite.getMinX(), sprite.getMinY(), sprite.getMaxX(), sprite.getMaxY()));
+  }
+
+  /**
+   * Checks to see if the sprite is intersecting with the specified bounds.
+   * @param minX The left edge of the bounds.
+   * @param minY The top edge of the bounds.
+   * @param maxX The right edge of the bounds.
+   * @param maxY The bottom edge of the bounds.
+   * @return True if intersecting, false if otherwise.
+   */
+  public boolean intersects(int minX, int minY, int maxX, int maxY) {
+    return(Rectangle.intersects(getMinX(), getMinY(), getMaxX(), getMaxY(), minX, minY, maxX, maxY));
   }
 
   /**
@@ -199,7 +487,23 @@ public abstract class Sprite {
    * @return The position on the x axis.
    */
   public int getX() {
-    return Math.round(this.x);
+    return Math.round(getExactX());
+  }
+
+  /**
+   * Returns the unrounded center location on the horizontal axis.
+   * @return The exact position on the x axis.
+   */
+  public float getExactX() {
+    return (store != null) ? store.x[index] : x;
+  }
+
+  /**
+   * Returns the unrounded center location on the vertical axis.
+   * @return The exact position on the y axis.
+   */
+  public float getExactY() {
+    return (store != null) ? store.y[index] : y;
   }
 
   /**
@@ -207,7 +511,7 @@ public abstract class Sprite {
    * @return The position on the y axis.
    */
   public int getY() {
-    return Math.round(this.y);
+    return Math.round(getExactY());
   }
 
   /**
@@ -216,7 +520,12 @@ public abstract class Sprite {
    * @return The instance of Sprite so subsequent methods can be chained together.
    */
   public Sprite bounceX() {
-    this.directionX *= -1;
+    if (store != null) {
+      store.bounceX(index);
+    } else {
+      directionX = -directionX;
+      vx = -vx;
+    }
     return(this);
   }
 
@@ -226,7 +535,12 @@ public abstract class Sprite {
    * @return The instance of Sprite so subsequent methods can be chained together.
    */
   public Sprite bounceY() {
-    this.directionY *= -1;
+    if (store != null) {
+      store.bounceY(index);
+    } else {
+      directionY = -directionY;
+      vy = -vy;
+    }
     return(this);
   }
 }
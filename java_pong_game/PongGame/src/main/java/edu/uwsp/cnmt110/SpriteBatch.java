@@ -0,0 +1,203 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+/**
+ * Draws sprite outlines grouped by color. Outlines are appended to one reusable
+ * path per color and each path is drawn with a single call, so a frame costs
+ * one color change and one draw call per distinct color instead of per sprite.
+ * Colors can be quantized to a smaller palette to make the groups larger.
+ */
+class SpriteBatch {
+  private static final int MAX_BUCKETS = 4096;
+
+  private int bitsPerChannel = 8;
+  private int[] keys = new int[64];
+  private int[] slots = new int[64];
+  private Color[] colors = new Color[16];
+  private Path2D.Float[] paths = new Path2D.Float[16];
+  private boolean[] used = new boolean[16];
+  private int[] usedOrder = new int[16];
+  private int usedCount;
+  private int buckets;
+  private int drawCalls;
+  private int stateChanges;
+
+  /**
+   * Creates an instance of the SpriteBatch class.
+   */
+  SpriteBatch() {
+    Arrays.fill(keys, -1);
+  }
+
+  /**
+   * Sets the number of bits kept of each color channel when grouping.
+   * @param bitsPerChannel 8 to group by exact color, fewer for a coarser palette.
+   */
+  void setBitsPerChannel(int bitsPerChannel) {
+    if ((bitsPerChannel < 1) || (bitsPerChannel > 8)) {
+      throw new IllegalArgumentException("bitsPerChannel must be between 1 and 8");
+    }
+    this.bitsPerChannel = bitsPerChannel;
+    reset();
+  }
+
+  /**
+   * Retrieves the number of draw calls made by the last flush.
+   * @return The draw call count.
+   */
+  int getDrawCalls() {
+    return(drawCalls);
+  }
+
+  /**
+   * Retrieves the number of color changes made by the last flush.
+   * @return The state change count.
+   */
+  int getStateChanges() {
+    return(stateChanges);
+  }
+
+  /**
+   * Appends the outline of a sprite to the path of its color.
+   * @param color The outline color.
+   * @param x The left edge of the outline.
+   * @param y The top edge of the outline.
+   * @param width The width of the outline.
+   * @param height The height of the outline.
+   */
+  void add(Color color, int x, int y, int width, int height) {
+    int bucket = bucketFor(color);
+    if (!used[bucket]) {
+      used[bucket] = true;
+      usedOrder[usedCount++] = bucket;
+    }
+    Path2D.Float path = paths[bucket];
+    path.moveTo(x, y);
+    path.lineTo(x + width, y);
+    path.lineTo(x + width, y + height);
+    path.lineTo(x, y + height);
+    path.closePath();
+  }
+
+  /**
+   * Draws every outline added since the last flush, one path per color.
+   * @param g The graphics / canvas to draw to.
+   */
+  void flush(Graphics g) {
+    drawCalls = 0;
+    stateChanges = 0;
+    Graphics2D g2 = (Graphics2D) g;
+    for (int index = 0; index < usedCount; index++) {
+      int bucket = usedOrder[index];
+      g2.setColor(colors[bucket]);
+      g2.draw(paths[bucket]);
+      stateChanges++;
+      drawCalls++;
+      paths[bucket].reset();
+      used[bucket] = false;
+    }
+    usedCount = 0;
+  }
+
+  /**
+   * Finds or creates the bucket for a color.
+   * @param color The color.
+   * @return The bucket index.
+   */
+  private int bucketFor(Color color) {
+    int rgb = color.getRGB() & 0xFFFFFF;
+    int key = quantize(rgb);
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (keys[slot] != -1) {
+      if (keys[slot] == key) {
+        return(slots[slot]);
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    if ((usedCount == 0) && (buckets >= MAX_BUCKETS)) {
+      // Too many colors seen over time, start over rather than grow without bound
+      reset();
+      return(bucketFor(color));
+    }
+    int bucket = buckets++;
+    if (bucket >= paths.length) {
+      int length = paths.length * 2;
+      colors = Arrays.copyOf(colors, length);
+      paths = Arrays.copyOf(paths, length);
+      used = Arrays.copyOf(used, length);
+      usedOrder = Arrays.copyOf(usedOrder, length);
+    }
+    colors[bucket] = (key == rgb) ? color : new Color(key);
+    paths[bucket] = new Path2D.Float();
+    keys[slot] = key;
+    slots[slot] = bucket;
+    if (buckets * 2 > keys.length) {
+      rehash();
+    }
+    return(bucket);
+  }
+
+  /**
+   * Reduces a color to the configured palette, keeping the center of the
+   * range of colors that map to it.
+   * @param rgb The 24 bit color.
+   * @return The quantized 24 bit color.
+   */
+  private int quantize(int rgb) {
+    if (bitsPerChannel == 8) {
+      return(rgb);
+    }
+    int dropped = 8 - bitsPerChannel;
+    int channelMask = (0xFF >> dropped) << dropped;
+    int mask = (channelMask << 16) | (channelMask << 8) | channelMask;
+    int half = (1 << dropped) >> 1;
+    return((rgb & mask) | (half << 16) | (half << 8) | half);
+  }
+
+  /**
+   * Spreads the bits of a color key for the lookup table.
+   * @param key The color key.
+   * @return The hash code.
+   */
+  private static int hash(int key) {
+    int h = key * 0x9E3779B1;
+    return(h ^ (h >>> 16));
+  }
+
+  /**
+   * Doubles the lookup table.
+   */
+  private void rehash() {
+    int[] oldKeys = keys;
+    int[] oldSlots = slots;
+    keys = new int[oldKeys.length * 2];
+    slots = new int[oldSlots.length * 2];
+    Arrays.fill(keys, -1);
+    int mask = keys.length - 1;
+    for (int index = 0; index < oldKeys.length; index++) {
+      if (oldKeys[index] != -1) {
+        int slot = hash(oldKeys[index]) & mask;
+        while (keys[slot] != -1) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[index];
+        slots[slot] = oldSlots[index];
+      }
+    }
+  }
+
+  /**
+   * Forgets every color seen so far.
+   */
+  private void reset() {
+    Arrays.fill(keys, -1);
+    Arrays.fill(colors, null);
+    Arrays.fill(paths, null);
+    buckets = 0;
+  }
+}
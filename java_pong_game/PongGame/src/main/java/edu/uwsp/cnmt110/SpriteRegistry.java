@@ -0,0 +1,314 @@
+package edu.uwsp.cnmt110;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the sprites of a game. The sprites are the occupied slots of
+ * a {@link SpriteStore}, so adding a sprite appends a slot and removing one
+ * moves the last slot into its place, both in constant time.
+ *
+ * Every sprite in the registry has a handle: a slot of an id table in the low
+ * 32 bits and the generation of that slot in the high 32 bits. The generation
+ * changes whenever a sprite leaves, so a handle kept after its sprite is gone
+ * no longer resolves, even once the id is reused.
+ *
+ * Recycled sprites are kept in a pool per class and handed out again by
+ * {@link #spawn(Class, Supplier)}, so a game that keeps spawning and removing
+ * the same kind of sprite stops allocating once the pools are warm. Loading a
+ * save takes its sprites from the same pools and puts the sprites it replaces
+ * back into them.
+ */
+class SpriteRegistry {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private SpriteStore store;
+  private Sprite[] sprites = new Sprite[DEFAULT_CAPACITY];
+  private int[] generations = new int[DEFAULT_CAPACITY];
+  private int[] freeIds = new int[DEFAULT_CAPACITY];
+  private int freeCount;
+  private int nextId;
+  private final Map<Class<?>, ArrayDeque<Sprite>> pools = new HashMap<Class<?>, ArrayDeque<Sprite>>();
+  private final Map<Class<?>, Supplier<? extends Sprite>> factories = new HashMap<Class<?>, Supplier<? extends Sprite>>();
+
+  /**
+   * Creates an instance of the SpriteRegistry class.
+   * @param store The store of the game, which must be empty.
+   */
+  SpriteRegistry(SpriteStore store) {
+    this.store = store;
+    Arrays.fill(generations, 1);
+    factories.put(DrawableSprite.class, () -> new DrawableSprite(0, 0, 0, 0, 0, 0));
+  }
+
+  /**
+   * Retrieves the store holding the state of the sprites.
+   * @return The store.
+   */
+  SpriteStore getStore() {
+    return(store);
+  }
+
+  /**
+   * Retrieves the number of sprites.
+   * @return The number of sprites.
+   */
+  int size() {
+    return(store.size());
+  }
+
+  /**
+   * Checks if a sprite is in the registry.
+   * @param sprite The sprite, or null.
+   * @return True if the sprite is in the registry.
+   */
+  boolean contains(Sprite sprite) {
+    return((sprite != null) && (sprite.getStore() == store));
+  }
+
+  /**
+   * Looks up a sprite by its handle.
+   * @param handle The handle of the sprite.
+   * @return The sprite, or null if it has left since.
+   */
+  Sprite get(long handle) {
+    int id = (int) handle;
+    if ((id < 0) || (id >= nextId) || (generations[id] != (int) (handle >>> 32))) {
+      return(null);
+    }
+    return(sprites[id]);
+  }
+
+  /**
+   * Adds a sprite, moving its state into the store.
+   * @param sprite The sprite to add.
+   * @return True if it was added, false if it already was in the registry.
+   */
+  boolean add(Sprite sprite) {
+    if (contains(sprite)) {
+      return(false);
+    }
+    store.adopt(sprite);
+    register(sprite);
+    return(true);
+  }
+
+  /**
+   * Adds many sprites, growing the store once for all of them.
+   * @param batch The sprites to add; nulls are skipped.
+   */
+  void addAll(Collection<? extends Sprite> batch) {
+    store.ensureCapacity(store.size() + batch.size());
+    for (Sprite sprite : batch) {
+      if (sprite != null) {
+        add(sprite);
+      }
+    }
+  }
+
+  /**
+   * Removes a sprite. Its state moves into a store of its own, so it keeps
+   * working and may be added again.
+   * @param sprite The sprite to remove.
+   * @return True if it was removed, false if it was not in the registry.
+   */
+  boolean remove(Sprite sprite) {
+    if (!contains(sprite)) {
+      return(false);
+    }
+    unregister(sprite);
+    store.release(sprite);
+    return(true);
+  }
+
+  /**
+   * Removes every sprite the same way as {@link #remove(Sprite)}.
+   */
+  void clear() {
+    for (int index = store.size() - 1; index >= 0; index--) {
+      remove(store.get(index));
+    }
+  }
+
+  /**
+   * Removes a sprite and keeps it in the pool of its class. Its state is
+   * dropped, so it must not be used until {@link #spawn(Class, Supplier)}
+   * hands it out again.
+   * @param sprite The sprite to recycle.
+   * @return True if it was recycled, false if it was not in the registry.
+   */
+  boolean recycle(Sprite sprite) {
+    if (!contains(sprite)) {
+      return(false);
+    }
+    unregister(sprite);
+    store.detach(sprite);
+    pool(sprite);
+    return(true);
+  }
+
+  /**
+   * Keeps a sprite that has no store in the pool of its class.
+   * @param sprite The sprite, which must not be in the registry.
+   */
+  void pool(Sprite sprite) {
+    sprite.bind(null, -1);
+    ArrayDeque<Sprite> pool = pools.get(sprite.getClass());
+    if (pool == null) {
+      pool = new ArrayDeque<Sprite>();
+      pools.put(sprite.getClass(), pool);
+    }
+    pool.push(sprite);
+  }
+
+  /**
+   * Recycles every sprite with any of the specified tags. The slots are
+   * visited from the last one down, so the slot that moves into a freed one
+   * has already been visited.
+   * @param tags The tags to look for.
+   * @return The number of sprites recycled.
+   */
+  int recycleAll(int tags) {
+    int recycled = 0;
+    for (int index = store.size() - 1; index >= 0; index--) {
+      if ((store.tags[index] & tags) != 0) {
+        recycle(store.get(index));
+        recycled++;
+      }
+    }
+    return(recycled);
+  }
+
+  /**
+   * Adds a sprite of the specified class, reusing a recycled one if there is
+   * one. A reused sprite starts out in a cleared slot, a new one in the state
+   * its constructor left it in.
+   * @param <T> The class of the sprite.
+   * @param type The class of the sprite.
+   * @param factory Creates a sprite of exactly that class when none is pooled.
+   *                It is kept for loading sprites of that class.
+   * @return The sprite.
+   */
+  <T extends Sprite> T spawn(Class<T> type, Supplier<? extends T> factory) {
+    factories.putIfAbsent(type, factory);
+    ArrayDeque<Sprite> pool = pools.get(type);
+    T sprite;
+    if ((pool != null) && !pool.isEmpty()) {
+      sprite = type.cast(pool.pop());
+      sprite.bind(store, store.allocate(sprite));
+    } else {
+      sprite = factory.get();
+      store.adopt(sprite);
+    }
+    register(sprite);
+    return(sprite);
+  }
+
+  /**
+   * Sets how sprites of a class are created when they are loaded.
+   * @param type The class of the sprite.
+   * @param factory Creates a sprite of exactly that class.
+   */
+  void addFactory(Class<?> type, Supplier<? extends Sprite> factory) {
+    factories.put(type, factory);
+  }
+
+  /**
+   * Looks up a class of sprites that can be loaded, one that is pooled or
+   * that has been spawned with a factory.
+   * @param name The name of the class.
+   * @return The class, or null if it is not known.
+   */
+  Class<?> findType(String name) {
+    for (Class<?> type : factories.keySet()) {
+      if (type.getName().equals(name)) {
+        return(type);
+      }
+    }
+    for (Class<?> type : pools.keySet()) {
+      if (type.getName().equals(name)) {
+        return(type);
+      }
+    }
+    return(null);
+  }
+
+  /**
+   * Takes a sprite of the specified class for a loaded slot, reusing a
+   * recycled one if there is one. Either way the sprite has no store and
+   * none of its state is kept.
+   * @param type The class of the sprite.
+   * @return The sprite, or null if none is pooled and there is no factory.
+   */
+  Sprite obtain(Class<?> type) {
+    ArrayDeque<Sprite> pool = pools.get(type);
+    if ((pool != null) && !pool.isEmpty()) {
+      return(pool.pop());
+    }
+    Supplier<? extends Sprite> factory = factories.get(type);
+    return((factory != null) ? factory.get() : null);
+  }
+
+  /**
+   * Swaps in the store of a loaded game. Every handle given out so far stops
+   * resolving, the sprites of the old store are put into the pools, and the
+   * sprites of the new store are given new handles.
+   * @param loaded The new store, whose slots are all owned.
+   */
+  void replace(SpriteStore loaded) {
+    // pooled from the last slot down, so the next load hands them out in slot order
+    for (int index = store.size() - 1; index >= 0; index--) {
+      Sprite sprite = store.get(index);
+      unregister(sprite);
+      pool(sprite);
+    }
+    store = loaded;
+    for (int index = 0; index < loaded.size(); index++) {
+      register(loaded.get(index));
+    }
+  }
+
+  /**
+   * Gives a sprite a handle, reusing a free id if there is one.
+   * @param sprite The sprite.
+   */
+  private void register(Sprite sprite) {
+    int id;
+    if (freeCount > 0) {
+      id = freeIds[--freeCount];
+    } else {
+      id = nextId++;
+      if (id == sprites.length) {
+        int length = sprites.length * 2;
+        sprites = Arrays.copyOf(sprites, length);
+        generations = Arrays.copyOf(generations, length);
+        Arrays.fill(generations, id, length, 1);
+      }
+    }
+    sprites[id] = sprite;
+    sprite.setHandle(((long) generations[id] << 32) | id);
+  }
+
+  /**
+   * Takes the handle of a sprite away and frees its id, moving the id on to
+   * its next generation.
+   * @param sprite The sprite.
+   */
+  private void unregister(Sprite sprite) {
+    int id = (int) sprite.getHandle();
+    sprites[id] = null;
+    // generation 0 is skipped so that no handle is ever 0
+    if (++generations[id] == 0) {
+      generations[id] = 1;
+    }
+    if (freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+    }
+    freeIds[freeCount++] = id;
+    sprite.setHandle(0);
+  }
+}
@@ -0,0 +1,401 @@
+package edu.uwsp.cnmt110;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Stores the kinematic state of many sprites in parallel primitive arrays.
+ * Each Sprite in a store is a thin handle holding the store and its slot
+ * index, so bulk updates are tight loops over float[] instead of walks over
+ * objects.
+ * Slots are kept dense: removing a sprite moves the last slot into the gap.
+ */
+class SpriteStore {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private Sprite[] sprites;
+  float[] x;
+  float[] y;
+  float[] previousX;
+  float[] previousY;
+  float[] angle;
+  float[] vx;
+  float[] vy;
+  int[] width;
+  int[] height;
+  int[] speed;
+  int[] directionX;
+  int[] directionY;
+  int[] tags;
+  private boolean[] pending;
+  private int count;
+
+  /**
+   * Creates an instance of the SpriteStore class.
+   */
+  SpriteStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an instance of the SpriteStore class.
+   * @param capacity The initial number of slots.
+   */
+  SpriteStore(int capacity) {
+    capacity = Math.max(1, capacity);
+    sprites = new Sprite[capacity];
+    x = new float[capacity];
+    y = new float[capacity];
+    previousX = new float[capacity];
+    previousY = new float[capacity];
+    angle = new float[capacity];
+    vx = new float[capacity];
+    vy = new float[capacity];
+    width = new int[capacity];
+    height = new int[capacity];
+    speed = new int[capacity];
+    directionX = new int[capacity];
+    directionY = new int[capacity];
+    tags = new int[capacity];
+    pending = new boolean[capacity];
+  }
+
+  /**
+   * Retrieves the number of sprites in the store.
+   * @return The number of occupied slots.
+   */
+  int size() {
+    return(count);
+  }
+
+  /**
+   * Retrieves the sprite occupying the specified slot.
+   * @param index The slot index.
+   * @return The sprite.
+   */
+  Sprite get(int index) {
+    return(sprites[index]);
+  }
+
+  /**
+   * Grows the arrays so that at least the specified number of slots fit.
+   * @param capacity The required number of slots.
+   */
+  void ensureCapacity(int capacity) {
+    if (capacity > sprites.length) {
+      int length = Math.max(capacity, sprites.length * 2);
+      sprites = Arrays.copyOf(sprites, length);
+      x = Arrays.copyOf(x, length);
+      y = Arrays.copyOf(y, length);
+      previousX = Arrays.copyOf(previousX, length);
+      previousY = Arrays.copyOf(previousY, length);
+      angle = Arrays.copyOf(angle, length);
+      vx = Arrays.copyOf(vx, length);
+      vy = Arrays.copyOf(vy, length);
+      width = Arrays.copyOf(width, length);
+      height = Arrays.copyOf(height, length);
+      speed = Arrays.copyOf(speed, length);
+      directionX = Arrays.copyOf(directionX, length);
+      directionY = Arrays.copyOf(directionY, length);
+      tags = Arrays.copyOf(tags, length);
+      pending = Arrays.copyOf(pending, length);
+    }
+  }
+
+  /**
+   * Allocates a new slot for the specified sprite with a default state.
+   * @param sprite The sprite that owns the slot.
+   * @return The slot index.
+   */
+  int allocate(Sprite sprite) {
+    ensureCapacity(count + 1);
+    int index = count++;
+    sprites[index] = sprite;
+    x[index] = 0;
+    y[index] = 0;
+    previousX[index] = 0;
+    previousY[index] = 0;
+    angle[index] = 0;
+    vx[index] = 0;
+    vy[index] = 0;
+    width[index] = 0;
+    height[index] = 0;
+    speed[index] = 0;
+    directionX[index] = 1;
+    directionY[index] = 1;
+    tags[index] = 0;
+    pending[index] = false;
+    return(index);
+  }
+
+  /**
+   * Moves the state of the specified sprite into this store, out of its
+   * current store or its own fields, rebinding the sprite to its new slot.
+   * @param sprite The sprite to adopt.
+   */
+  void adopt(Sprite sprite) {
+    SpriteStore from = sprite.getStore();
+    if (from == this) {
+      return;
+    }
+    int index = allocate(sprite);
+    if (from == null) {
+      sprite.copyTo(this, index);
+      sprite.bind(this, index);
+      return;
+    }
+    int source = sprite.getIndex();
+    x[index] = from.x[source];
+    y[index] = from.y[source];
+    previousX[index] = from.previousX[source];
+    previousY[index] = from.previousY[source];
+    angle[index] = from.angle[source];
+    vx[index] = from.vx[source];
+    vy[index] = from.vy[source];
+    width[index] = from.width[source];
+    height[index] = from.height[source];
+    speed[index] = from.speed[source];
+    directionX[index] = from.directionX[source];
+    directionY[index] = from.directionY[source];
+    tags[index] = from.tags[source];
+    from.remove(source);
+    sprite.bind(this, index);
+  }
+
+  /**
+   * Moves the state of the specified sprite out of this store into its own
+   * fields, so it keeps working after it leaves the game.
+   * @param sprite The sprite to release.
+   */
+  void release(Sprite sprite) {
+    if (sprite.getStore() == this) {
+      int index = sprite.getIndex();
+      sprite.unbind();
+      remove(index);
+    }
+  }
+
+  /**
+   * Frees the slot of the specified sprite without keeping its state, for a
+   * sprite that is put aside to be reused. The sprite is left without a store
+   * and with stale state until it is given a slot again with
+   * {@link #allocate(Sprite)}.
+   * @param sprite The sprite to detach.
+   */
+  void detach(Sprite sprite) {
+    remove(sprite.getIndex());
+    sprite.bind(null, -1);
+  }
+
+  /**
+   * Frees the specified slot by moving the last slot into it.
+   * @param index The slot index to free.
+   */
+  private void remove(int index) {
+    int last = --count;
+    if (index != last) {
+      sprites[index] = sprites[last];
+      x[index] = x[last];
+      y[index] = y[last];
+      previousX[index] = previousX[last];
+      previousY[index] = previousY[last];
+      angle[index] = angle[last];
+      vx[index] = vx[last];
+      vy[index] = vy[last];
+      width[index] = width[last];
+      height[index] = height[last];
+      speed[index] = speed[last];
+      directionX[index] = directionX[last];
+      directionY[index] = directionY[last];
+      tags[index] = tags[last];
+      pending[index] = pending[last];
+      sprites[index].bind(this, index);
+    }
+    sprites[last] = null;
+  }
+
+  /**
+   * Writes the state of every slot to a save, one column at a time.
+   * @param out The save to write to.
+   * @throws IOException If the save cannot be written.
+   */
+  void write(SaveFormat.Writer out) throws IOException {
+    out.putInt(count);
+    out.putFloats(x, count).putFloats(y, count);
+    out.putFloats(previousX, count).putFloats(previousY, count);
+    out.putFloats(angle, count).putFloats(vx, count).putFloats(vy, count);
+    out.putInts(width, count).putInts(height, count).putInts(speed, count);
+    out.putInts(directionX, count).putInts(directionY, count).putInts(tags, count);
+  }
+
+  /**
+   * Empties the store without keeping the state of its slots, so that a save
+   * can be read into it. The sprites that owned the slots are left as they are.
+   */
+  void reset() {
+    Arrays.fill(sprites, 0, count, null);
+    Arrays.fill(pending, 0, count, false);
+    count = 0;
+  }
+
+  /**
+   * Reads the state of every slot from a save into this empty store. The
+   * slots are owned by nobody until {@link #attach(int, Sprite)} is called.
+   * @param in The save, positioned at the slots.
+   * @return The number of slots read.
+   */
+  int read(ByteBuffer in) {
+    int slots = in.getInt();
+    ensureCapacity(slots);
+    SaveFormat.getFloats(in, x, slots);
+    SaveFormat.getFloats(in, y, slots);
+    SaveFormat.getFloats(in, previousX, slots);
+    SaveFormat.getFloats(in, previousY, slots);
+    SaveFormat.getFloats(in, angle, slots);
+    SaveFormat.getFloats(in, vx, slots);
+    SaveFormat.getFloats(in, vy, slots);
+    SaveFormat.getInts(in, width, slots);
+    SaveFormat.getInts(in, height, slots);
+    SaveFormat.getInts(in, speed, slots);
+    SaveFormat.getInts(in, directionX, slots);
+    SaveFormat.getInts(in, directionY, slots);
+    SaveFormat.getInts(in, tags, slots);
+    count = slots;
+    return(slots);
+  }
+
+  /**
+   * Makes a sprite the owner of a slot read from a save.
+   * @param index The slot index.
+   * @param sprite The sprite, which must already be bound to the slot.
+   */
+  void attach(int index, Sprite sprite) {
+    sprites[index] = sprite;
+  }
+
+  /**
+   * Remembers the current position of every slot as its previous position,
+   * the state the renderer interpolates from during the next update.
+   */
+  void savePositions() {
+    System.arraycopy(x, 0, previousX, 0, count);
+    System.arraycopy(y, 0, previousY, 0, count);
+  }
+
+  /**
+   * Makes the previous position of a slot its current one, so that a sprite
+   * that was placed rather than moved is not drawn sliding to its new spot.
+   * @param index The slot index.
+   */
+  void snap(int index) {
+    previousX[index] = x[index];
+    previousY[index] = y[index];
+  }
+
+  /**
+   * Calculates the position of a slot between its previous and current one.
+   * @param index The slot index.
+   * @param alpha The fraction of the way from the previous position, 0 to 1.
+   * @return The position on the x axis.
+   */
+  float interpolateX(int index, float alpha) {
+    return(previousX[index] + (x[index] - previousX[index]) * alpha);
+  }
+
+  /**
+   * Calculates the position of a slot between its previous and current one.
+   * @param index The slot index.
+   * @param alpha The fraction of the way from the previous position, 0 to 1.
+   * @return The position on the y axis.
+   */
+  float interpolateY(int index, float alpha) {
+    return(previousY[index] + (y[index] - previousY[index]) * alpha);
+  }
+
+  /**
+   * Flags the specified slot to be moved by the next call to {@link #movePending(long)}.
+   * @param index The slot index.
+   */
+  void markPending(int index) {
+    pending[index] = true;
+  }
+
+  /**
+   * Recalculates the cached velocity of a slot from its speed, angle and
+   * direction. Must be called whenever one of those changes.
+   * @param index The slot index.
+   */
+  void updateVelocity(int index) {
+    float distance = speed[index] * (60.0f / 1000.0f);
+    vx[index] = TrigTable.cos(angle[index]) * distance * directionX[index];
+    vy[index] = TrigTable.sin(angle[index]) * distance * directionY[index];
+  }
+
+  /**
+   * Reverses the direction of a slot on the horizontal axis.
+   * @param index The slot index.
+   */
+  void bounceX(int index) {
+    directionX[index] = -directionX[index];
+    vx[index] = -vx[index];
+  }
+
+  /**
+   * Reverses the direction of a slot on the vertical axis.
+   * @param index The slot index.
+   */
+  void bounceY(int index) {
+    directionY[index] = -directionY[index];
+    vy[index] = -vy[index];
+  }
+
+  /**
+   * Moves a single slot along its cached velocity.
+   * @param index The slot index.
+   * @param timeInterval The amount of time in milliseconds that has passed since the last update.
+   */
+  void move(int index, long timeInterval) {
+    if (timeInterval > 0) {
+      x[index] += vx[index] * timeInterval;
+      y[index] += vy[index] * timeInterval;
+    }
+  }
+
+  /**
+   * Moves every slot flagged with {@link #markPending(int)} and clears the flags.
+   * @param timeInterval The amount of time in milliseconds that has passed since the last update.
+   */
+  void movePending(long timeInterval) {
+    movePending(0, count, timeInterval);
+  }
+
+  /**
+   * Moves every slot within a range flagged with {@link #markPending(int)} and clears the flags.
+   * Disjoint ranges may be moved concurrently.
+   * @param from The first slot index, inclusive.
+   * @param to The last slot index, exclusive.
+   * @param timeInterval The amount of time in milliseconds that has passed since the last update.
+   */
+  void movePending(int from, int to, long timeInterval) {
+    if (timeInterval <= 0) {
+      // nothing moves, but the flags must not carry over to the next update
+      Arrays.fill(pending, from, to, false);
+      return;
+    }
+    final int n = to;
+    final float dt = timeInterval;
+    final boolean[] pending = this.pending;
+    final float[] x = this.x;
+    final float[] y = this.y;
+    final float[] vx = this.vx;
+    final float[] vy = this.vy;
+    for (int index = from; index < n; index++) {
+      if (pending[index]) {
+        pending[index] = false;
+        x[index] += vx[index] * dt;
+        y[index] += vy[index] * dt;
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * Continuous collision detection between a moving and a stationary axis
+ * aligned box. Rather than testing where a box ends up, the sweep finds the
+ * fraction of the move at which the two boxes first touch, so fast movers
+ * cannot tunnel through thin obstacles. An instance holds the result of the
+ * last sweep and may be reused.
+ */
+public class SweptCollision {
+  private float time;
+  private int normalX;
+  private int normalY;
+
+  /**
+   * Retrieves the fraction of the move at which contact happened.
+   * @return The time of impact between 0 and 1.
+   */
+  public float getTime() {
+    return(time);
+  }
+
+  /**
+   * Retrieves the horizontal component of the surface normal that was hit.
+   * @return -1 or 1 if an edge facing along the x axis was hit, 0 if otherwise.
+   */
+  public int getNormalX() {
+    return(normalX);
+  }
+
+  /**
+   * Retrieves the vertical component of the surface normal that was hit.
+   * @return -1 or 1 if an edge facing along the y axis was hit, 0 if otherwise.
+   */
+  public int getNormalY() {
+    return(normalY);
+  }
+
+  /**
+   * Sweeps a moving box along a displacement against a stationary box. Boxes
+   * that already overlap, or that touch while moving apart, are not reported.
+   * @param minX The left edge of the moving box.
+   * @param minY The top edge of the moving box.
+   * @param maxX The right edge of the moving box.
+   * @param maxY The bottom edge of the moving box.
+   * @param dx The horizontal displacement of the move.
+   * @param dy The vertical displacement of the move.
+   * @param otherMinX The left edge of the stationary box.
+   * @param otherMinY The top edge of the stationary box.
+   * @param otherMaxX The right edge of the stationary box.
+   * @param otherMaxY The bottom edge of the stationary box.
+   * @return True if the boxes touch during the move, false if otherwise.
+   */
+  public boolean sweep(float minX, float minY, float maxX, float maxY, float dx, float dy,
+                       float otherMinX, float otherMinY, float otherMaxX, float otherMaxY) {
+    float entryX, exitX, entryY, exitY;
+    if (dx > 0) {
+      entryX = (otherMinX - maxX) / dx;
+      exitX = (otherMaxX - minX) / dx;
+    } else if (dx < 0) {
+      entryX = (otherMaxX - minX) / dx;
+      exitX = (otherMinX - maxX) / dx;
+    } else if ((maxX > otherMinX) && (minX < otherMaxX)) {
+      entryX = Float.NEGATIVE_INFINITY;
+      exitX = Float.POSITIVE_INFINITY;
+    } else {
+      return(false);
+    }
+    if (dy > 0) {
+      entryY = (otherMinY - maxY) / dy;
+      exitY = (otherMaxY - minY) / dy;
+    } else if (dy < 0) {
+      entryY = (otherMaxY - minY) / dy;
+      exitY = (otherMinY - maxY) / dy;
+    } else if ((maxY > otherMinY) && (minY < otherMaxY)) {
+      entryY = Float.NEGATIVE_INFINITY;
+      exitY = Float.POSITIVE_INFINITY;
+    } else {
+      return(false);
+    }
+
+    float entry = Math.max(entryX, entryY);
+    float exit = Math.min(exitX, exitY);
+    if ((entry >= exit) || (entry < 0) || (entry > 1)) {
+      return(false);
+    }
+
+    time = entry;
+    if (entryX > entryY) {
+      normalX = (dx > 0) ? -1 : 1;
+      normalY = 0;
+    } else {
+      normalX = 0;
+      normalY = (dy > 0) ? -1 : 1;
+    }
+    return(true);
+  }
+
+  /**
+   * Sweeps a sprite along its velocity for the specified time against a stationary box.
+   * @param sprite The moving sprite.
+   * @param timeInterval The amount of time in milliseconds the sprite moves for.
+   * @param otherMinX The left edge of the stationary box.
+   * @param otherMinY The top edge of the stationary box.
+   * @param otherMaxX The right edge of the stationary box.
+   * @param otherMaxY The bottom edge of the stationary box.
+   * @return True if the sprite touches the box during the move, false if otherwise.
+   */
+  public boolean sweep(Sprite sprite, float timeInterval,
+                       float otherMinX, float otherMinY, float otherMaxX, float otherMaxY) {
+    float halfWidth = sprite.getWidth() / 2.0f;
+    float halfHeight = sprite.getHeight() / 2.0f;
+    float x = sprite.getExactX();
+    float y = sprite.getExactY();
+    return(sweep(x - halfWidth, y - halfHeight, x + halfWidth, y + halfHeight,
+                 sprite.getVelocityX() * timeInterval, sprite.getVelocityY() * timeInterval,
+                 otherMinX, otherMinY, otherMaxX, otherMaxY));
+  }
+}
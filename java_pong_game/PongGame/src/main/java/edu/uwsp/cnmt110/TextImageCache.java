@@ -0,0 +1,74 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small least recently used cache of text rendered into translucent images,
+ * so text that rarely changes is rasterized once and then only composited.
+ */
+class TextImageCache {
+  private final int capacity;
+  private final Map<String, BufferedImage> images;
+
+  /**
+   * Creates an instance of the TextImageCache class.
+   * @param capacity The maximum number of images kept.
+   */
+  TextImageCache(int capacity) {
+    this.capacity = capacity;
+    this.images = new LinkedHashMap<String, BufferedImage>(capacity * 2, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+        return(size() > TextImageCache.this.capacity);
+      }
+    };
+  }
+
+  /**
+   * Retrieves the image of a text, rendering it on a miss. The baseline of the
+   * text lies at the font ascent from the top of the image.
+   * @param g The graphics the image will be drawn to, used to create a compatible image.
+   * @param text The text to render.
+   * @param font The font to render with.
+   * @param color The color to render with.
+   * @return The image of the text.
+   */
+  BufferedImage get(Graphics g, String text, Font font, Color color) {
+    String key = font.getName() + '/' + font.getStyle() + '/' + font.getSize() + '/' + color.getRGB() + '/' + text;
+    BufferedImage image = images.get(key);
+    if (image == null) {
+      image = render(g, text, font, color);
+      images.put(key, image);
+    }
+    return(image);
+  }
+
+  /**
+   * Renders a text into a new translucent image.
+   * @param g The graphics the image will be drawn to.
+   * @param text The text to render.
+   * @param font The font to render with.
+   * @param color The color to render with.
+   * @return The image of the text.
+   */
+  private static BufferedImage render(Graphics g, String text, Font font, Color color) {
+    FontMetrics metrics = g.getFontMetrics(font);
+    int width = Math.max(1, metrics.stringWidth(text));
+    int height = Math.max(1, metrics.getAscent() + metrics.getDescent());
+    BufferedImage image = (g instanceof Graphics2D)
+        ? ((Graphics2D) g).getDeviceConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+        : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setFont(font);
+      graphics.setColor(color);
+      graphics.drawString(text, 0, metrics.getAscent());
+    } finally {
+      graphics.dispose();
+    }
+    return(image);
+  }
+}
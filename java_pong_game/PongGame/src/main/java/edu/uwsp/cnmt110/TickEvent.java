@@ -0,0 +1,42 @@
+package edu.uwsp.cnmt110;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event spanning one update of the game loop, with the
+ * time spent in each of its phases. Recorded by Game.tick() when the event is
+ * enabled, e.g. with {@code -XX:StartFlightRecording}; when it is not, the
+ * event object is never committed and is optimized away.
+ */
+@Name("edu.uwsp.cnmt110.Tick")
+@Label("Tick")
+@Category({"Pong Game", "Game Loop"})
+@Description("One fixed timestep update of the game")
+@StackTrace(false)
+class TickEvent extends Event {
+  @Label("Input")
+  @Description("Time spent draining and handling input")
+  @Timespan(Timespan.NANOSECONDS)
+  long input;
+
+  @Label("Update")
+  @Description("Time spent running timers, moving sprites and detecting collisions")
+  @Timespan(Timespan.NANOSECONDS)
+  long update;
+
+  @Label("Sprites")
+  int sprites;
+
+  @Label("Game Time")
+  @Timespan(Timespan.MILLISECONDS)
+  long gameTime;
+
+  @Label("Paused")
+  boolean paused;
+}
@@ -0,0 +1,69 @@
+package edu.uwsp.cnmt110;
+
+/**
+ * Provides sine and cosine lookups for whole degree angles, which is all the
+ * random sprite and ball spawning code ever produces.
+ */
+public final class TrigTable {
+  private static final float[] SIN = new float[360];
+  private static final float[] COS = new float[360];
+
+  static {
+    for (int degrees = 0; degrees < 360; degrees++) {
+      double radians = Math.toRadians(degrees);
+      SIN[degrees] = (float) Math.sin(radians);
+      COS[degrees] = (float) Math.cos(radians);
+    }
+  }
+
+  private TrigTable() {
+  }
+
+  /**
+   * Normalizes an angle into the range 0-359.
+   * @param degrees The angle in degrees.
+   * @return The equivalent angle between 0-359.
+   */
+  private static int normalize(int degrees) {
+    int angle = degrees % 360;
+    return((angle < 0) ? angle + 360 : angle);
+  }
+
+  /**
+   * Looks up the sine of a whole degree angle.
+   * @param degrees The angle in degrees.
+   * @return The sine of the angle.
+   */
+  public static float sin(int degrees) {
+    return(SIN[normalize(degrees)]);
+  }
+
+  /**
+   * Looks up the cosine of a whole degree angle.
+   * @param degrees The angle in degrees.
+   * @return The cosine of the angle.
+   */
+  public static float cos(int degrees) {
+    return(COS[normalize(degrees)]);
+  }
+
+  /**
+   * Calculates the sine of an angle, using the lookup table when the angle is a whole degree.
+   * @param degrees The angle in degrees.
+   * @return The sine of the angle.
+   */
+  public static float sin(float degrees) {
+    int whole = (int) degrees;
+    return((whole == degrees) ? sin(whole) : (float) Math.sin(Math.toRadians(degrees)));
+  }
+
+  /**
+   * Calculates the cosine of an angle, using the lookup table when the angle is a whole degree.
+   * @param degrees The angle in degrees.
+   * @return The cosine of the angle.
+   */
+  public static float cos(float degrees) {
+    int whole = (int) degrees;
+    return((whole == degrees) ? cos(whole) : (float) Math.cos(Math.toRadians(degrees)));
+  }
+}
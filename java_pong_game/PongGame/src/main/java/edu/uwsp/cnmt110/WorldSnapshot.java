@@ -0,0 +1,199 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * A copy of everything the screen needs to draw one frame: the outline and
+ * color of each drawable sprite, the message and the number of sprites. It is
+ * filled in on the game thread and then only read by the renderer, so a frame
+ * never shows a sprite halfway through an update. Snapshots are recycled by a
+ * {@link SnapshotBuffer} and their arrays only grow, so capturing a frame does
+ * not allocate once the game has reached its largest sprite count.
+ *
+ * Sprites that paint themselves cannot be copied; they are kept by reference
+ * and still paint from their live state.
+ */
+class WorldSnapshot {
+  /**
+   * Tells, per sprite class, if its outline can be drawn from the snapshot
+   * because it does not override how a DrawableSprite paints itself.
+   */
+  private static final ClassValue<Boolean> BATCHABLE = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return(DrawableSprite.class.isAssignableFrom(type) &&
+             (declaringClass(type, "paint") == DrawableSprite.class) &&
+             (declaringClass(type, "paintLabel") == DrawableSprite.class));
+    }
+  };
+
+  private int count;
+  private int sprites;
+  private int[] minX = new int[16];
+  private int[] minY = new int[16];
+  private int[] width = new int[16];
+  private int[] height = new int[16];
+  private Color[] colors = new Color[16];
+  private IDrawable[] painters = new IDrawable[16];
+  private String message;
+  private long gameTime;
+
+  /**
+   * Finds the class in the hierarchy of a type that declares a paint method.
+   * @param type The type to search from.
+   * @param name The name of the method taking a Graphics.
+   * @return The declaring class, or null if none declares it.
+   */
+  private static Class<?> declaringClass(Class<?> type, String name) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      try {
+        current.getDeclaredMethod(name, Graphics.class);
+        return(current);
+      } catch (NoSuchMethodException e) {
+        // keep looking in the superclass
+      }
+    }
+    return(null);
+  }
+
+  /**
+   * Empties the snapshot so that a new frame can be captured into it.
+   * @param message The message to display, or null for none.
+   * @param gameTime The game time of the frame.
+   */
+  void clear(String message, long gameTime) {
+    // Drop the references of the last frame so removed sprites can be collected
+    Arrays.fill(painters, 0, count, null);
+    Arrays.fill(colors, 0, count, null);
+    this.count = 0;
+    this.sprites = 0;
+    this.message = message;
+    this.gameTime = gameTime;
+  }
+
+  /**
+   * Captures a sprite. Sprites that are not drawable are only counted.
+   * Sprites drawn from the snapshot are placed between their previous and
+   * current update, so motion stays smooth when frames are drawn more often
+   * than the game is updated.
+   * @param sprite The sprite to capture.
+   * @param alpha The fraction of an update that has passed since the last one, 0 to 1.
+   */
+  void add(Sprite sprite, float alpha) {
+    sprites++;
+    if (!(sprite instanceof IDrawable)) {
+      return;
+    }
+    if (count == minX.length) {
+      int capacity = count * 2;
+      minX = Arrays.copyOf(minX, capacity);
+      minY = Arrays.copyOf(minY, capacity);
+      width = Arrays.copyOf(width, capacity);
+      height = Arrays.copyOf(height, capacity);
+      colors = Arrays.copyOf(colors, capacity);
+      painters = Arrays.copyOf(painters, capacity);
+    }
+    SpriteStore store = sprite.getStore();
+    int slot = sprite.getIndex();
+    width[count] = store.width[slot];
+    height[count] = store.height[slot];
+    if (BATCHABLE.get(sprite.getClass())) {
+      minX[count] = Math.round(store.interpolateX(slot, alpha)) - (width[count] / 2);
+      minY[count] = Math.round(store.interpolateY(slot, alpha)) - (height[count] / 2);
+      colors[count] = ((DrawableSprite) sprite).getColor();
+    } else {
+      // A sprite that paints itself draws where it is now, so its bounds must match
+      minX[count] = sprite.getMinX();
+      minY[count] = sprite.getMinY();
+      painters[count] = (IDrawable) sprite;
+    }
+    count++;
+  }
+
+  /**
+   * Retrieves the number of drawable sprites captured.
+   * @return The drawable sprite count.
+   */
+  int size() {
+    return(count);
+  }
+
+  /**
+   * Retrieves the number of sprites in the game when the frame was captured.
+   * @return The sprite count.
+   */
+  int getSpriteCount() {
+    return(sprites);
+  }
+
+  /**
+   * Retrieves the left edge of a captured sprite.
+   * @param index The index of the sprite.
+   * @return The left edge.
+   */
+  int getMinX(int index) {
+    return(minX[index]);
+  }
+
+  /**
+   * Retrieves the top edge of a captured sprite.
+   * @param index The index of the sprite.
+   * @return The top edge.
+   */
+  int getMinY(int index) {
+    return(minY[index]);
+  }
+
+  /**
+   * Retrieves the width of a captured sprite.
+   * @param index The index of the sprite.
+   * @return The width.
+   */
+  int getWidth(int index) {
+    return(width[index]);
+  }
+
+  /**
+   * Retrieves the height of a captured sprite.
+   * @param index The index of the sprite.
+   * @return The height.
+   */
+  int getHeight(int index) {
+    return(height[index]);
+  }
+
+  /**
+   * Retrieves the outline color of a captured sprite.
+   * @param index The index of the sprite.
+   * @return The color, or null if the sprite paints itself.
+   */
+  Color getColor(int index) {
+    return(colors[index]);
+  }
+
+  /**
+   * Retrieves a captured sprite that paints itself.
+   * @param index The index of the sprite.
+   * @return The sprite, or null if its outline is drawn from the snapshot.
+   */
+  IDrawable getPainter(int index) {
+    return(painters[index]);
+  }
+
+  /**
+   * Retrieves the message captured with the frame.
+   * @return The message, or null for none.
+   */
+  String getMessage() {
+    return(message);
+  }
+
+  /**
+   * Retrieves the game time at which the frame was captured.
+   * @return The game time in milliseconds.
+   */
+  long getGameTime() {
+    return(gameTime);
+  }
+}
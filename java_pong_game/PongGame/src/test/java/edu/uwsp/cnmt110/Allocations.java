@@ -0,0 +1,52 @@
+package edu.uwsp.cnmt110;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the heap memory the current thread allocates, for the tests that
+ * check a hot path does not allocate.
+ */
+final class Allocations {
+  private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+  /**
+   * Prevents instances of the Allocations class.
+   */
+  private Allocations() {
+  }
+
+  /**
+   * Retrieves the bean that counts allocated bytes per thread, if the JVM has one.
+   * @return The bean, or null if the JVM does not count allocations.
+   */
+  private static com.sun.management.ThreadMXBean threads() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return(null);
+    }
+    com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+    if (!counting.isThreadAllocatedMemorySupported()) {
+      return(null);
+    }
+    counting.setThreadAllocatedMemoryEnabled(true);
+    return(counting);
+  }
+
+  /**
+   * Runs a task and reports how many bytes it allocated, less what reading
+   * the counter costs. Skips the test if the JVM does not count allocations.
+   * @param task The task to run.
+   * @return The number of bytes allocated.
+   */
+  static long measure(Runnable task) {
+    assumeTrue("the JVM does not count allocated bytes", THREADS != null);
+    long thread = Thread.currentThread().getId();
+    long start = THREADS.getThreadAllocatedBytes(thread);
+    long overhead = THREADS.getThreadAllocatedBytes(thread) - start;
+    start = THREADS.getThreadAllocatedBytes(thread);
+    task.run();
+    return(Math.max(0, THREADS.getThreadAllocatedBytes(thread) - start - overhead));
+  }
+}
@@ -0,0 +1,100 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests that a recorded session of a Pong game replays into the same state.
+ */
+public class InputReplayTest {
+  private static final int TICKS = 20000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Plays a headless session with random mouse moves and key presses while
+   * recording it, changing the tick interval halfway through.
+   * @param file The file to record to.
+   * @param seed The seed of the random input.
+   * @return The checksum of the state the session ended in.
+   * @throws IOException If the recording cannot be written.
+   */
+  private static long record(Path file, long seed) throws IOException {
+    PongGame game = new PongGame(800, 600, true);
+    game.startRecording(file);
+    Random random = new Random(seed);
+    InputBuffer input = game.getInputBuffer();
+    input.press(KeyEvent.VK_ENTER);
+    input.release(KeyEvent.VK_ENTER);
+    for (int tick = 0; tick < TICKS; tick++) {
+      if (random.nextInt(50) == 0) {
+        input.moveMouse(random.nextInt(800), random.nextInt(600));
+      }
+      if (random.nextInt(300) == 0) {
+        input.press(KeyEvent.VK_SPACE);
+        input.release(KeyEvent.VK_SPACE);
+      }
+      if (random.nextInt(2000) == 0) {
+        input.press(KeyEvent.VK_R);
+        input.release(KeyEvent.VK_R);
+      }
+      if (tick == TICKS / 2) {
+        game.setTickInterval(7);
+      }
+      game.simulate(1, game.getTickInterval());
+    }
+    long checksum = game.getStateChecksum();
+    game.stopRecording();
+    return(checksum);
+  }
+
+  /**
+   * Replaying a recording ends in the state the recording ended in.
+   * @throws IOException If the recording cannot be read or written.
+   */
+  @Test
+  public void replayReproducesChecksum() throws IOException {
+    Path file = folder.newFile("session.rec").toPath();
+    long checksum = record(file, 7);
+    InputReplay replay = InputReplay.open(file);
+    try {
+      assertEquals(TICKS, replay.getTicks());
+      assertEquals(checksum, replay.getChecksum());
+      PongGame game = new PongGame(replay);
+      assertEquals(TICKS, game.replay(replay).getTicks());
+      assertEquals(checksum, game.getStateChecksum());
+    } finally {
+      replay.close();
+    }
+  }
+
+  /**
+   * Replaying another session does not end in the recorded state, so the
+   * checksum is worth comparing.
+   * @throws IOException If the recordings cannot be read or written.
+   */
+  @Test
+  public void otherSessionDiffers() throws IOException {
+    long checksum = record(folder.newFile("session.rec").toPath(), 7);
+    Path other = folder.newFile("other.rec").toPath();
+    record(other, 8);
+    InputReplay replay = InputReplay.open(other);
+    try {
+      PongGame game = new PongGame(replay);
+      game.replay(replay);
+      assertNotEquals(checksum, game.getStateChecksum());
+    } finally {
+      replay.close();
+    }
+  }
+}
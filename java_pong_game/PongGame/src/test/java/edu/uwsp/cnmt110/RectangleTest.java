@@ -0,0 +1,96 @@
+package edu.uwsp.cnmt110;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the intersection checks of the Rectangle class.
+ */
+public class RectangleTest {
+  private static final int CHECKS = 1000000;
+
+  /**
+   * Overlapping rectangles intersect, whichever one is checked against the other.
+   */
+  @Test
+  public void overlappingRectanglesIntersect() {
+    Rectangle first = new Rectangle(0, 0, 10, 10);
+    Rectangle second = new Rectangle(5, 5, 15, 15);
+    assertTrue(first.intersectsWith(second));
+    assertTrue(second.intersectsWith(first));
+    assertTrue(first.intersects(9, 9, 20, 20));
+  }
+
+  /**
+   * A rectangle inside another one intersects it.
+   */
+  @Test
+  public void containedRectangleIntersects() {
+    assertTrue(new Rectangle(0, 0, 100, 100).intersectsWith(new Rectangle(40, 40, 60, 60)));
+    assertTrue(new Rectangle(40, 40, 60, 60).intersectsWith(new Rectangle(0, 0, 100, 100)));
+  }
+
+  /**
+   * Rectangles that only touch along an edge or at a corner do not intersect.
+   */
+  @Test
+  public void touchingRectanglesDoNotIntersect() {
+    Rectangle rectangle = new Rectangle(0, 0, 10, 10);
+    assertFalse(rectangle.intersects(10, 0, 20, 10));
+    assertFalse(rectangle.intersects(-10, 0, 0, 10));
+    assertFalse(rectangle.intersects(0, 10, 10, 20));
+    assertFalse(rectangle.intersects(0, -10, 10, 0));
+    assertFalse(rectangle.intersects(10, 10, 20, 20));
+  }
+
+  /**
+   * Separate rectangles do not intersect.
+   */
+  @Test
+  public void separateRectanglesDoNotIntersect() {
+    Rectangle rectangle = new Rectangle(0, 0, 10, 10);
+    assertFalse(rectangle.intersects(20, 0, 30, 10));
+    assertFalse(rectangle.intersects(0, 20, 10, 30));
+    assertFalse(rectangle.intersects(5, 11, 8, 12));
+  }
+
+  /**
+   * Corners given in any order describe the same rectangle.
+   */
+  @Test
+  public void cornersInAnyOrder() {
+    assertTrue(new Rectangle(10, 10, 0, 0).intersects(5, 5, 15, 15));
+    assertFalse(new Rectangle(10, 0, 0, 10).intersects(10, 0, 20, 10));
+  }
+
+  /**
+   * Checking intersections does not allocate.
+   */
+  @Test
+  public void intersectsDoesNotAllocate() {
+    final Rectangle rectangle = new Rectangle(0, 0, 10, 10);
+    final Rectangle other = new Rectangle(5, 5, 15, 15);
+    final int[] hits = new int[1];
+    Runnable checks = new Runnable() {
+      @Override
+      public void run() {
+        for (int check = 0; check < CHECKS; check++) {
+          int offset = check & 15;
+          if (rectangle.intersects(offset, offset, offset + 10, offset + 10)) {
+            hits[0]++;
+          }
+          if (rectangle.intersectsWith(other)) {
+            hits[0]++;
+          }
+        }
+      }
+    };
+    checks.run();
+    hits[0] = 0;
+    assertEquals(0, Allocations.measure(checks));
+    assertEquals(CHECKS / 16 * 26, hits[0]);
+  }
+}
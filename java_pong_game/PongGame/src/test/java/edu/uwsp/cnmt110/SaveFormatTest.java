@@ -0,0 +1,196 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that saving a game and loading it again restores the same state.
+ */
+public class SaveFormatTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Saves a game into memory.
+   * @param game The game to save.
+   * @return The saved game, ready to be read.
+   * @throws IOException If the game cannot be saved.
+   */
+  private static ByteBuffer save(Game game) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    game.save(Channels.newChannel(bytes));
+    return(ByteBuffer.wrap(bytes.toByteArray()));
+  }
+
+  /**
+   * Plays a headless Pong game with a sloppy player.
+   * @param game The game.
+   * @param random The random numbers of the player.
+   * @param ticks The number of updates to play at most.
+   */
+  private static void play(PongGame game, Random random, int ticks) {
+    for (int tick = 0; (tick < ticks) && !game.isGameover(); tick++) {
+      PongPlayer.SLOPPY.play(game, game.getInputBuffer(), random);
+      game.simulate(1, game.getTickInterval());
+    }
+  }
+
+  /**
+   * A loaded Pong game has the checksum of the saved one and goes on to play
+   * the same way.
+   * @throws IOException If the game cannot be saved or loaded.
+   */
+  @Test
+  public void pongGameRoundTrip() throws IOException {
+    PongGame saved = new PongGame(800, 600, 5, new PongSettings().setSpeedRange(2, 7));
+    saved.startMatch();
+    play(saved, new Random(1), 600);
+    PongGame loaded = new PongGame(800, 600, 77, new PongSettings());
+    loaded.load(save(saved));
+    assertEquals(saved.getStateChecksum(), loaded.getStateChecksum());
+    assertEquals(saved.getGameTime(), loaded.getGameTime());
+    assertEquals(saved.getSettings().toString(), loaded.getSettings().toString());
+
+    play(saved, new Random(2), 5000);
+    play(loaded, new Random(2), 5000);
+    assertEquals(saved.getStateChecksum(), loaded.getStateChecksum());
+  }
+
+  /**
+   * A game of plain sprites survives a quicksave to a file and a quickload.
+   * @throws IOException If the game cannot be saved or loaded.
+   */
+  @Test
+  public void quickSaveRoundTrip() throws IOException {
+    TestGame saved = new TestGame();
+    Random random = new Random(42);
+    for (int index = 0; index < 1000; index++) {
+      DrawableSprite sprite = new DrawableSprite(random.nextInt(800), random.nextInt(600), 5 + random.nextInt(21),
+                                                 5 + random.nextInt(21), random.nextInt(360), 2 + random.nextInt(11));
+      sprite.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+      saved.addSprite(sprite);
+    }
+    saved.simulate(10, saved.getTickInterval());
+    Path file = folder.newFile("quick.sav").toPath();
+    saved.quickSave(file);
+    TestGame loaded = new TestGame();
+    loaded.quickLoad(file);
+    assertEquals(saved.getSprites().length, loaded.getSprites().length);
+    assertEquals(saved.getStateChecksum(), loaded.getStateChecksum());
+  }
+
+  /**
+   * A damaged save is rejected.
+   * @throws IOException If the game cannot be saved.
+   */
+  @Test
+  public void truncatedSaveIsRejected() throws IOException {
+    PongGame game = new PongGame(800, 600, 5, new PongSettings());
+    game.startMatch();
+    ByteBuffer damaged = save(game);
+    damaged.limit(damaged.limit() / 2);
+    try {
+      new PongGame(800, 600, 5, new PongSettings()).load(damaged);
+      fail("a truncated save was loaded");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * A save that fails its check in the Pong section leaves the game it was
+   * loaded into as it was.
+   * @throws IOException If the game cannot be saved.
+   */
+  @Test
+  public void rejectedSaveLeavesGameUnchanged() throws IOException {
+    PongGame saved = new PongGame(800, 600, 5, new PongSettings());
+    saved.startMatch();
+    ByteBuffer damaged = save(saved);
+    // the last byte is the difficulty of the computer player
+    damaged.put(damaged.limit() - 1, (byte) 99);
+    PongGame game = new PongGame(800, 600, 9, new PongSettings().setSpeedRange(2, 7));
+    game.startMatch();
+    play(game, new Random(1), 300);
+    long checksum = game.getStateChecksum();
+    long gameTime = game.getGameTime();
+    int sprites = game.getSprites().length;
+    try {
+      game.load(damaged);
+      fail("a damaged save was loaded");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(checksum, game.getStateChecksum());
+    assertEquals(gameTime, game.getGameTime());
+    assertEquals(sprites, game.getSprites().length);
+    play(game, new Random(2), 300);
+  }
+
+  /**
+   * Sprites come back as the class they were saved as.
+   * @throws IOException If the game cannot be saved or loaded.
+   */
+  @Test
+  public void spritesKeepTheirClass() throws IOException {
+    TestGame saved = new TestGame();
+    saved.addSprite(new DrawableSprite(10, 10, 5, 5, 0, 2));
+    saved.spawnSprite(Marker.class, Marker::new);
+    TestGame loaded = new TestGame();
+    loaded.addSpriteFactory(Marker.class, Marker::new);
+    loaded.load(save(saved));
+    assertSame(DrawableSprite.class, loaded.getSpriteAt(0).getClass());
+    assertSame(Marker.class, loaded.getSpriteAt(1).getClass());
+    assertEquals(saved.getStateChecksum(), loaded.getStateChecksum());
+  }
+
+  /**
+   * A sprite of a class of its own.
+   */
+  private static class Marker extends DrawableSprite {
+    /**
+     * Creates an instance of the Marker class.
+     */
+    Marker() {
+      super(20, 20, 4, 4, 90, 3);
+    }
+  }
+
+  /**
+   * A headless game of plain sprites that only move in straight lines.
+   */
+  private static class TestGame extends Game {
+    /**
+     * Creates an instance of the TestGame class.
+     */
+    TestGame() {
+      super("Test", 800, 600, true);
+    }
+
+    @Override
+    public void getInput(InputSnapshot input, long interval) {
+    }
+
+    @Override
+    public boolean updatePosition(Sprite sprite, long interval) {
+      return(false);
+    }
+
+    @Override
+    public void initialize() {
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package edu.uwsp.cnmt110;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that the SpatialHashGrid class finds the same overlapping pairs as
+ * testing every pair of sprites.
+ */
+public class SpatialHashGridTest {
+  /**
+   * Fills a store with random sprites, some of them partly off the playfield
+   * and some larger than a cell.
+   * @param count The number of sprites.
+   * @param seed The seed that makes the sprites the same on every run.
+   * @return The store.
+   */
+  private static SpriteStore createStore(int count, long seed) {
+    Random random = new Random(seed);
+    SpriteStore store = new SpriteStore();
+    for (int index = 0; index < count; index++) {
+      int size = (random.nextInt(10) == 0) ? 40 + random.nextInt(80) : 2 + random.nextInt(20);
+      store.adopt(new DrawableSprite(random.nextInt(500) - 50, random.nextInt(400) - 50,
+                                     size, 2 + random.nextInt(20), 0, 0));
+    }
+    return(store);
+  }
+
+  /**
+   * Collects the overlapping pairs by testing every pair of sprites.
+   * @param store The store holding the sprites.
+   * @return The pairs, the smaller slot first.
+   */
+  private static Set<Long> bruteForce(SpriteStore store) {
+    Set<Long> pairs = new HashSet<Long>();
+    for (int first = 0; first < store.size(); first++) {
+      for (int second = first + 1; second < store.size(); second++) {
+        if (store.get(first).collidesWith(store.get(second))) {
+          pairs.add(((long) first << 32) | second);
+        }
+      }
+    }
+    return(pairs);
+  }
+
+  /**
+   * Collects the overlapping pairs found by a grid.
+   * @param grid The grid.
+   * @param store The store holding the sprites.
+   * @return The pairs, the smaller slot first.
+   */
+  private static Set<Long> gridPairs(SpatialHashGrid grid, SpriteStore store) {
+    int count = grid.build(store);
+    assertEquals(count, grid.getPairCount());
+    Set<Long> pairs = new HashSet<Long>();
+    for (int pair = 0; pair < count; pair++) {
+      int first = Math.min(grid.getFirst(pair), grid.getSecond(pair));
+      int second = Math.max(grid.getFirst(pair), grid.getSecond(pair));
+      pairs.add(((long) first << 32) | second);
+    }
+    assertEquals("a pair was reported twice", count, pairs.size());
+    return(pairs);
+  }
+
+  /**
+   * A grid sized from the largest sprite finds every pair exactly once.
+   */
+  @Test
+  public void autoSizedGridMatchesBruteForce() {
+    for (long seed = 1; seed <= 5; seed++) {
+      SpriteStore store = createStore(600, seed);
+      assertEquals(bruteForce(store), gridPairs(new SpatialHashGrid(), store));
+    }
+  }
+
+  /**
+   * Grids with cells much smaller or larger than the sprites find the same pairs.
+   */
+  @Test
+  public void fixedSizeGridsMatchBruteForce() {
+    SpriteStore store = createStore(400, 42);
+    Set<Long> expected = bruteForce(store);
+    assertFalse(expected.isEmpty());
+    for (int cellSize : new int[] {1, 7, 16, 64, 1000}) {
+      assertEquals("cell size " + cellSize, expected, gridPairs(new SpatialHashGrid(cellSize), store));
+    }
+  }
+
+  /**
+   * A reused grid follows the sprites when they move.
+   */
+  @Test
+  public void rebuiltGridFollowsMovedSprites() {
+    SpriteStore store = createStore(300, 7);
+    SpatialHashGrid grid = new SpatialHashGrid();
+    assertEquals(bruteForce(store), gridPairs(grid, store));
+    Random random = new Random(8);
+    for (int index = 0; index < store.size(); index++) {
+      store.get(index).moveTo(random.nextInt(300), random.nextInt(200));
+    }
+    assertEquals(bruteForce(store), gridPairs(grid, store));
+  }
+
+  /**
+   * Sprites that only touch along an edge are not a pair.
+   */
+  @Test
+  public void touchingSpritesAreNotPaired() {
+    SpriteStore store = new SpriteStore();
+    store.adopt(new DrawableSprite(10, 10, 20, 20, 0, 0));
+    store.adopt(new DrawableSprite(30, 10, 20, 20, 0, 0));
+    store.adopt(new DrawableSprite(10, 30, 20, 20, 0, 0));
+    assertEquals(0, new SpatialHashGrid(20).build(store));
+    store.adopt(new DrawableSprite(25, 25, 20, 20, 0, 0));
+    assertEquals(3, new SpatialHashGrid(20).build(store));
+  }
+}
@@ -0,0 +1,159 @@
+package edu.uwsp.cnmt110;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the collision checks of the Sprite class.
+ */
+public class SpriteTest {
+  private static final int CHECKS = 1000000;
+
+  /**
+   * Overlapping sprites collide, whichever one is checked against the other.
+   */
+  @Test
+  public void overlappingSpritesCollide() {
+    Sprite first = new DrawableSprite(50, 50, 20, 20, 0, 0);
+    Sprite second = new DrawableSprite(65, 55, 20, 20, 0, 0);
+    assertTrue(first.collidesWith(second));
+    assertTrue(second.collidesWith(first));
+  }
+
+  /**
+   * Sprites that only touch along an edge or at a corner do not collide.
+   */
+  @Test
+  public void touchingSpritesDoNotCollide() {
+    Sprite sprite = new DrawableSprite(50, 50, 20, 20, 0, 0);
+    assertFalse(sprite.collidesWith(new DrawableSprite(70, 50, 20, 20, 0, 0)));
+    assertFalse(sprite.collidesWith(new DrawableSprite(50, 30, 20, 20, 0, 0)));
+    assertFalse(sprite.collidesWith(new DrawableSprite(70, 70, 20, 20, 0, 0)));
+    assertTrue(sprite.collidesWith(new DrawableSprite(69, 69, 20, 20, 0, 0)));
+  }
+
+  /**
+   * A sprite follows its own moves in collision checks.
+   */
+  @Test
+  public void movedSpriteCollides() {
+    Sprite sprite = new DrawableSprite(50, 50, 20, 20, 0, 0);
+    Sprite other = new DrawableSprite(100, 50, 20, 20, 0, 0);
+    assertFalse(sprite.collidesWith(other));
+    sprite.moveTo(85, 50);
+    assertTrue(sprite.collidesWith(other));
+    assertTrue(sprite.intersects(90, 40, 95, 45));
+    assertFalse(sprite.intersects(95, 40, 100, 45));
+  }
+
+  /**
+   * A sprite removed from a game keeps its position and movement, and keeps
+   * moving on its own.
+   */
+  @Test
+  public void removedSpriteKeepsItsState() {
+    Game game = createGame();
+    Sprite sprite = new DrawableSprite(100, 100, 10, 20, 0, 5).setTags(3);
+    game.addSprite(sprite);
+    sprite.moveTo(200, 150);
+    sprite.bounceX();
+    float velocityX = sprite.getVelocityX();
+    game.removeSprite(sprite);
+    assertEquals(200, sprite.getX());
+    assertEquals(150, sprite.getY());
+    assertEquals(20, sprite.getHeight());
+    assertEquals(3, sprite.getTags());
+    assertEquals(velocityX, sprite.getVelocityX(), 0);
+    sprite.move(10);
+    assertEquals(200 + velocityX * 10, sprite.getExactX(), 1e-4);
+    game.addSprite(sprite);
+    assertEquals(200 + velocityX * 10, sprite.getExactX(), 1e-4);
+    assertEquals(velocityX, sprite.getVelocityX(), 0);
+  }
+
+  /**
+   * Adding a sprite to a game and removing it again does not allocate once
+   * the game has room for it.
+   */
+  @Test
+  public void addAndRemoveDoNotAllocate() {
+    final Game game = createGame();
+    final Sprite[] sprites = new Sprite[100];
+    for (int index = 0; index < sprites.length; index++) {
+      sprites[index] = new DrawableSprite(index, index, 10, 10, index, 5);
+    }
+    Runnable churn = new Runnable() {
+      @Override
+      public void run() {
+        for (int round = 0; round < 1000; round++) {
+          for (Sprite sprite : sprites) {
+            game.addSprite(sprite);
+          }
+          for (Sprite sprite : sprites) {
+            game.removeSprite(sprite);
+          }
+        }
+      }
+    };
+    churn.run();
+    assertEquals(0, Allocations.measure(churn));
+  }
+
+  /**
+   * Checking collisions does not allocate, whether the sprites are on their
+   * own or in the store of a game.
+   */
+  @Test
+  public void collidesWithDoesNotAllocate() {
+    Game game = createGame();
+    final Sprite first = new DrawableSprite(50, 50, 20, 20, 0, 0);
+    final Sprite second = new DrawableSprite(60, 60, 20, 20, 0, 0);
+    final Sprite stored = new DrawableSprite(55, 55, 20, 20, 0, 0);
+    game.addSprite(stored);
+    final int[] hits = new int[1];
+    Runnable checks = new Runnable() {
+      @Override
+      public void run() {
+        for (int check = 0; check < CHECKS; check++) {
+          if (first.collidesWith(second)) {
+            hits[0]++;
+          }
+          if (stored.collidesWith(first)) {
+            hits[0]++;
+          }
+          if (second.intersects(check & 63, 0, (check & 63) + 10, 100)) {
+            hits[0]++;
+          }
+        }
+      }
+    };
+    checks.run();
+    hits[0] = 0;
+    assertEquals(0, Allocations.measure(checks));
+    assertEquals(2 * CHECKS + CHECKS / 64 * 23, hits[0]);
+  }
+
+  /**
+   * Creates a headless game that leaves moving its sprites to the engine.
+   * @return The game.
+   */
+  private static Game createGame() {
+    return(new Game("Test", 800, 600, true) {
+      @Override
+      public void getInput(InputSnapshot input, long interval) {
+      }
+
+      @Override
+      public boolean updatePosition(Sprite sprite, long interval) {
+        return(false);
+      }
+
+      @Override
+      public void initialize() {
+      }
+    });
+  }
+}
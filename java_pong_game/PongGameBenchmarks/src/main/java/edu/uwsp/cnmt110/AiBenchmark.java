@@ -0,0 +1,75 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.KeyEvent;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the computer player of a headless Pong match with many balls: one
+ * update of the paddle, and working out again where a ball arrives, which is
+ * what a ball bouncing off a paddle costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class AiBenchmark {
+  @Param({"10", "1000", "10000"})
+  public int balls;
+
+  private PongGame game;
+  private ComputerPlayer ai;
+  private Sprite[] served;
+  private int next;
+
+  /**
+   * Starts a match, serves the balls one press of the space bar each and
+   * has a computer player follow all of them.
+   */
+  @Setup
+  public void setUp() {
+    game = new PongGame(800, 600, true);
+    game.startMatch();
+    for (int ball = 0; ball < balls; ball++) {
+      game.getInputBuffer().press(KeyEvent.VK_SPACE);
+      game.getInputBuffer().release(KeyEvent.VK_SPACE);
+    }
+    game.simulate(1, game.getTickInterval());
+
+    ai = new ComputerPlayer(game);
+    ai.setDifficulty(Difficulty.HARD);
+    served = new Sprite[balls];
+    int count = 0;
+    for (int index = 0; index < game.getSpriteCount(); index++) {
+      Sprite sprite = game.getSpriteAt(index);
+      if (sprite.hasTag(game.BallTag) && (count < balls)) {
+        served[count++] = sprite;
+        ai.track(sprite, game.getGameTime());
+      }
+    }
+  }
+
+  /**
+   * Moves the paddle towards the ball that arrives first.
+   * @return The number of balls followed.
+   */
+  @Benchmark
+  public int update() {
+    ai.update(game.getGameTime(), game.getTickInterval());
+    return(ai.size());
+  }
+
+  /**
+   * Works out again when and where one of the balls arrives.
+   * @return The number of balls followed.
+   */
+  @Benchmark
+  public int track() {
+    ai.track(served[next], game.getGameTime());
+    next = (next + 1) % served.length;
+    return(ai.size());
+  }
+}
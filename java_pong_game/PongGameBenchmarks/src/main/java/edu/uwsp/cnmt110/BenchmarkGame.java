@@ -0,0 +1,66 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A headless game filled with a reproducible set of plain sprites that all
+ * move in a straight line, used as the fixture of the engine benchmarks.
+ */
+class BenchmarkGame extends Game {
+  /**
+   * Creates an instance of the BenchmarkGame class.
+   * @param width The width of the virtual playfield.
+   * @param height The height of the virtual playfield.
+   */
+  BenchmarkGame(int width, int height) {
+    super("Benchmark", width, height, true);
+  }
+
+  /**
+   * Creates sprites with random positions, sizes, colors and velocities.
+   * @param count The number of sprites to create.
+   * @param width The width of the area to place them in.
+   * @param height The height of the area to place them in.
+   * @param seed The seed that makes the sprites the same on every run.
+   * @return The sprites.
+   */
+  static DrawableSprite[] createSprites(int count, int width, int height, long seed) {
+    Random random = new Random(seed);
+    DrawableSprite[] sprites = new DrawableSprite[count];
+    for (int index = 0; index < count; index++) {
+      sprites[index] = new DrawableSprite(random.nextInt(width), random.nextInt(height),
+                                          5 + random.nextInt(21), 5 + random.nextInt(21),
+                                          random.nextInt(360), 2 + random.nextInt(11));
+      sprites[index].setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+    }
+    return(sprites);
+  }
+
+  /**
+   * Adds sprites created by {@link #createSprites(int, int, int, long)} that
+   * fill the playfield.
+   * @param count The number of sprites to add.
+   * @param seed The seed that makes the sprites the same on every run.
+   * @return The instance of BenchmarkGame so that subsequent calls can be chained together.
+   */
+  BenchmarkGame populate(int count, long seed) {
+    addSprites(Arrays.asList(createSprites(count, getWidth(), getHeight(), seed)));
+    return(this);
+  }
+
+  @Override
+  public void getInput(InputSnapshot input, long interval) {
+  }
+
+  @Override
+  public boolean updatePosition(Sprite sprite, long interval) {
+    // let the engine move every sprite in its bulk pass
+    return(false);
+  }
+
+  @Override
+  public void initialize() {
+  }
+}
@@ -0,0 +1,73 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares finding every overlapping pair of sprites by testing all pairs
+ * against the spatial hash grid used by Game.setCollisionDetection. The
+ * playfield grows with the sprite count so the density stays that of 1000
+ * sprites on an 800x600 screen.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class CollisionBenchmark {
+  @Param({"1000", "10000"})
+  public int sprites;
+
+  private SpriteStore store;
+  private SpatialHashGrid grid;
+
+  /**
+   * Fills a sprite store with sprites spread over the scaled playfield.
+   */
+  @Setup
+  public void setUp() {
+    double scale = Math.sqrt(sprites / 1000.0);
+    store = new SpriteStore();
+    for (DrawableSprite sprite : BenchmarkGame.createSprites(sprites, (int) (800 * scale), (int) (600 * scale), 42)) {
+      store.adopt(sprite);
+    }
+    grid = new SpatialHashGrid();
+  }
+
+  /**
+   * Tests every pair of sprites.
+   * @return The number of overlapping pairs.
+   */
+  @Benchmark
+  public int bruteForce() {
+    int pairs = 0;
+    int count = store.size();
+    for (int first = 0; first < count; first++) {
+      int minX = Math.round(store.x[first]) - (store.width[first] / 2);
+      int minY = Math.round(store.y[first]) - (store.height[first] / 2);
+      int maxX = minX + store.width[first];
+      int maxY = minY + store.height[first];
+      for (int second = first + 1; second < count; second++) {
+        int otherMinX = Math.round(store.x[second]) - (store.width[second] / 2);
+        int otherMinY = Math.round(store.y[second]) - (store.height[second] / 2);
+        if (Rectangle.intersects(minX, minY, maxX, maxY, otherMinX, otherMinY,
+                                 otherMinX + store.width[second], otherMinY + store.height[second])) {
+          pairs++;
+        }
+      }
+    }
+    return(pairs);
+  }
+
+  /**
+   * Bins the sprites into the spatial hash grid and tests only sprites that
+   * share a cell.
+   * @return The number of overlapping pairs.
+   */
+  @Benchmark
+  public int spatialHashGrid() {
+    return(grid.build(store));
+  }
+}
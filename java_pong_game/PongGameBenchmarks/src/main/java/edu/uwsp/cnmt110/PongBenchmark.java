@@ -0,0 +1,47 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.event.KeyEvent;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures one update of a running headless Pong match with many balls,
+ * which is dominated by the swept collision tests in PongGame.updatePosition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class PongBenchmark {
+  @Param({"10", "1000", "10000"})
+  public int balls;
+
+  private PongGame game;
+
+  /**
+   * Starts a match and serves the balls the same way a player does, one
+   * press of the space bar each.
+   */
+  @Setup
+  public void setUp() {
+    game = new PongGame(800, 600, true);
+    game.startMatch();
+    for (int ball = 0; ball < balls; ball++) {
+      game.getInputBuffer().press(KeyEvent.VK_SPACE);
+      game.getInputBuffer().release(KeyEvent.VK_SPACE);
+    }
+    game.simulate(1, game.getTickInterval());
+  }
+
+  /**
+   * Runs a single update.
+   * @return The report of the update.
+   */
+  @Benchmark
+  public SimulationReport tick() {
+    return(game.simulate(1, game.getTickInterval()));
+  }
+}
@@ -0,0 +1,100 @@
+package edu.uwsp.cnmt110;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures drawing a frame into an offscreen image: capturing the world
+ * snapshot, rendering the whole scene the way both screens do, and painting
+ * every sprite one by one the way the engine did before outlines were
+ * batched by color.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class RenderBenchmark {
+  private static final int WIDTH = 800;
+  private static final int HEIGHT = 600;
+
+  @Param({"100", "1000", "10000"})
+  public int sprites;
+
+  private BenchmarkGame game;
+  private DrawableSprite[] drawables;
+  private SnapshotBuffer snapshots;
+  private SceneRenderer renderer;
+  private BufferedImage image;
+  private Graphics graphics;
+
+  /**
+   * Creates the game, publishes its first snapshot and opens the image to
+   * draw into.
+   */
+  @Setup
+  public void setUp() {
+    game = new BenchmarkGame(WIDTH, HEIGHT).populate(sprites, 42);
+    game.setMessage("<ENTER> to START");
+    drawables = new DrawableSprite[sprites];
+    int index = 0;
+    for (Sprite sprite : game.getSprites()) {
+      drawables[index++] = (DrawableSprite) sprite;
+    }
+    snapshots = new SnapshotBuffer();
+    renderer = new SceneRenderer(game, snapshots);
+    publish();
+    image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    graphics = image.getGraphics();
+  }
+
+  /**
+   * Releases the graphics of the image.
+   */
+  @TearDown
+  public void tearDown() {
+    graphics.dispose();
+  }
+
+  /**
+   * Captures every sprite into the next world snapshot and publishes it.
+   * @return The number of sprites captured.
+   */
+  @Benchmark
+  public int publish() {
+    WorldSnapshot snapshot = snapshots.getBack();
+    snapshot.clear(game.getMessage(), game.getGameTime());
+    for (DrawableSprite sprite : drawables) {
+      snapshot.add(sprite, 0.5f);
+    }
+    snapshots.publish();
+    return(snapshot.size());
+  }
+
+  /**
+   * Renders a complete frame: background, batched outlines, statistics and
+   * message.
+   * @return The number of frames drawn.
+   */
+  @Benchmark
+  public long renderScene() {
+    renderer.render(graphics, WIDTH, HEIGHT);
+    return(renderer.getFrames());
+  }
+
+  /**
+   * Paints every sprite with its own DrawableSprite.paint call.
+   * @return The image drawn to.
+   */
+  @Benchmark
+  public BufferedImage paintSprites() {
+    for (DrawableSprite sprite : drawables) {
+      sprite.paint(graphics);
+    }
+    return(image);
+  }
+}
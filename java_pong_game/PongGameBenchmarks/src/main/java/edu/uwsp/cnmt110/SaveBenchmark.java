@@ -0,0 +1,95 @@
+package edu.uwsp.cnmt110;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures saving a whole game with Game.save and loading it back with
+ * Game.load, in memory so that the disk does not count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true", "-Xmx4g"})
+@State(Scope.Thread)
+public class SaveBenchmark {
+  @Param({"1000", "1000000"})
+  public int sprites;
+
+  private BenchmarkGame game;
+  private MemoryChannel channel;
+  private ByteBuffer saved;
+
+  /**
+   * A channel that keeps what is written to it in a buffer, like a file
+   * whose pages are already in memory.
+   */
+  private static final class MemoryChannel implements WritableByteChannel {
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates an instance of the MemoryChannel class.
+     * @param capacity The most bytes that can be written.
+     */
+    MemoryChannel(int capacity) {
+      buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+      int count = source.remaining();
+      buffer.put(source);
+      return(count);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return(true);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Creates the game and saves it once for the load benchmark.
+   * @throws IOException If the game can not be saved.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    game = new BenchmarkGame(800, 600).populate(sprites, 42);
+    channel = new MemoryChannel(128 * sprites + 65536);
+    game.save(channel);
+    saved = channel.buffer.duplicate();
+    saved.flip();
+  }
+
+  /**
+   * Saves the game.
+   * @return The number of bytes written.
+   * @throws IOException If the game can not be saved.
+   */
+  @Benchmark
+  public int save() throws IOException {
+    channel.buffer.clear();
+    game.save(channel);
+    return(channel.buffer.position());
+  }
+
+  /**
+   * Loads the saved game, replacing all of its sprites.
+   * @return The game.
+   * @throws IOException If the saved game can not be read.
+   */
+  @Benchmark
+  public Game load() throws IOException {
+    game.load(saved.duplicate());
+    return(game);
+  }
+}
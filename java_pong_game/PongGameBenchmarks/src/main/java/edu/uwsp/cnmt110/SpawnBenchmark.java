@@ -0,0 +1,60 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures filling a headless game with sprites and clearing it again, the
+ * way a spawn storm or a restart does: with new sprites that are added and
+ * removed, and with pooled sprites that are spawned and recycled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true"})
+@State(Scope.Thread)
+public class SpawnBenchmark {
+  private static final int TAG = 1;
+  private static final Supplier<DrawableSprite> FACTORY = () -> new DrawableSprite(0, 0, 0, 0, 0, 0);
+
+  @Param({"1000", "10000"})
+  public int sprites;
+
+  private BenchmarkGame game;
+
+  /**
+   * Creates the empty game.
+   */
+  @Setup
+  public void setUp() {
+    game = new BenchmarkGame(800, 600);
+  }
+
+  /**
+   * Adds new sprites one at a time, then removes them all.
+   * @return The game.
+   */
+  @Benchmark
+  public Game addAndRemove() {
+    for (int index = 0; index < sprites; index++) {
+      game.addSprite(new DrawableSprite(index % 800, index % 600, 10, 10, index % 360, 5));
+    }
+    return(game.clearSprites());
+  }
+
+  /**
+   * Spawns sprites one at a time, then recycles them all.
+   * @return The game.
+   */
+  @Benchmark
+  public Game spawnAndRecycle() {
+    for (int index = 0; index < sprites; index++) {
+      game.spawnSprite(DrawableSprite.class, FACTORY).reset(index % 800, index % 600, 10, 10, index % 360, 5)
+          .setTags(TAG);
+    }
+    return(game.recycleSprites(TAG));
+  }
+}
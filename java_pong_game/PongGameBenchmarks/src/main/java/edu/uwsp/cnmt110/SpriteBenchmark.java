@@ -0,0 +1,71 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the per-sprite primitives: moving a sprite and testing two
+ * bounding rectangles for overlap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpriteBenchmark {
+  private DrawableSprite ball;
+  private DrawableSprite near;
+  private DrawableSprite far;
+  private Rectangle first;
+  private Rectangle second;
+
+  /**
+   * Creates the sprites and rectangles to test.
+   */
+  @Setup
+  public void setUp() {
+    ball = new DrawableSprite(400, 300, 25, 25, 37, 5);
+    near = new DrawableSprite(410, 310, 25, 25, 0, 0);
+    far = new DrawableSprite(100, 100, 25, 25, 0, 0);
+    first = new Rectangle(390, 290, 415, 315);
+    second = new Rectangle(400, 300, 425, 325);
+  }
+
+  /**
+   * Moves a sprite for one 10ms update.
+   * @return The moved sprite.
+   */
+  @Benchmark
+  public Sprite move() {
+    return(ball.move(10L));
+  }
+
+  /**
+   * Tests two overlapping rectangles.
+   * @return True, the rectangles overlap.
+   */
+  @Benchmark
+  public boolean rectangleIntersects() {
+    return(first.intersects(second.getMinX(), second.getMinY(), second.getMaxX(), second.getMaxY()));
+  }
+
+  /**
+   * Tests two overlapping sprites.
+   * @return True, the sprites overlap.
+   */
+  @Benchmark
+  public boolean collidesWithHit() {
+    return(ball.collidesWith(near));
+  }
+
+  /**
+   * Tests two sprites far apart.
+   * @return False, the sprites do not overlap.
+   */
+  @Benchmark
+  public boolean collidesWithMiss() {
+    return(near.collidesWith(far));
+  }
+}
@@ -0,0 +1,51 @@
+package edu.uwsp.cnmt110;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures one fixed timestep update of a headless game with many sprites,
+ * which is dominated by the bulk sprite move in Game.updatePositions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true", "-Xmx2g"})
+@State(Scope.Thread)
+public class UpdateBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  public int sprites;
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  private BenchmarkGame game;
+
+  /**
+   * Creates the game and its sprites.
+   */
+  @Setup
+  public void setUp() {
+    game = new BenchmarkGame(800, 600).populate(sprites, 42);
+    game.setParallelUpdates(parallel);
+  }
+
+  /**
+   * Stops the update pool, if any.
+   */
+  @TearDown
+  public void tearDown() {
+    game.setParallelUpdates(false);
+  }
+
+  /**
+   * Runs a single 10ms update.
+   * @return The report of the update.
+   */
+  @Benchmark
+  public SimulationReport tick() {
+    return(game.simulate(1, 10));
+  }
+}